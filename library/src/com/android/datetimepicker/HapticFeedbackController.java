@@ -4,12 +4,19 @@ import android.app.Service;
 import android.content.Context;
 import android.database.ContentObserver;
 import android.net.Uri;
+import android.os.AsyncTask;
 import android.os.SystemClock;
 import android.os.Vibrator;
 import android.provider.Settings;
 
 /**
  * A simple utility class to handle haptic feedback.
+ * <p>
+ * All started controllers in the process share a single observer of the haptic feedback
+ * setting and a cached copy of its value. The observer is registered when the first controller
+ * starts and unregistered when the last one stops; both happen, along with the settings read,
+ * on a background thread, so that {@link #start()} and {@link #stop()} are cheap enough to call
+ * from {@code onResume} or whenever a picker is attached.
  *
  * @deprecated This module is deprecated. Do not use this class.
  */
@@ -18,46 +25,99 @@ public class HapticFeedbackController {
     private static final int VIBRATE_DELAY_MS = 125;
     private static final int VIBRATE_LENGTH_MS = 5;
 
+    private static final Object sLock = new Object();
+    // Guarded by sLock.
+    private static int sStartedCount;
+    private static Context sAppContext;
+    private static boolean sObserverRegistered;
+
+    private static volatile boolean sIsGloballyEnabled;
+    private static volatile Vibrator sVibrator;
+
+    private static final ContentObserver sContentObserver = new ContentObserver(null) {
+        @Override
+        public void onChange(boolean selfChange) {
+            Context context;
+            synchronized (sLock) {
+                context = sAppContext;
+            }
+            if (context != null) {
+                sIsGloballyEnabled = checkGlobalSetting(context);
+            }
+        }
+    };
+
+    // Brings the observer registration in line with the number of started controllers. Runs
+    // off the main thread and may run any number of times for a single start or stop.
+    private static final Runnable sUpdateObserver = new Runnable() {
+        @Override
+        public void run() {
+            synchronized (sLock) {
+                if (sStartedCount > 0 && !sObserverRegistered) {
+                    if (sVibrator == null) {
+                        sVibrator = (Vibrator) sAppContext.getSystemService(
+                                Service.VIBRATOR_SERVICE);
+                    }
+                    Uri uri = Settings.System.getUriFor(Settings.System.HAPTIC_FEEDBACK_ENABLED);
+                    sAppContext.getContentResolver().registerContentObserver(uri, false,
+                            sContentObserver);
+                    sObserverRegistered = true;
+                    sIsGloballyEnabled = checkGlobalSetting(sAppContext);
+                } else if (sStartedCount == 0 && sObserverRegistered) {
+                    sAppContext.getContentResolver().unregisterContentObserver(sContentObserver);
+                    sObserverRegistered = false;
+                }
+            }
+        }
+    };
+
     private static boolean checkGlobalSetting(Context context) {
         return Settings.System.getInt(context.getContentResolver(),
                 Settings.System.HAPTIC_FEEDBACK_ENABLED, 0) == 1;
     }
 
     private final Context mContext;
-    private final ContentObserver mContentObserver;
 
-    private Vibrator mVibrator;
-    private boolean mIsGloballyEnabled;
+    private boolean mStarted;
     private long mLastVibrate;
 
     public HapticFeedbackController(Context context) {
         mContext = context;
-        mContentObserver = new ContentObserver(null) {
-            @Override
-            public void onChange(boolean selfChange) {
-                mIsGloballyEnabled = checkGlobalSetting(mContext);
-            }
-        };
     }
 
     /**
      * Call to setup the controller.
      */
     public void start() {
-        mVibrator = (Vibrator) mContext.getSystemService(Service.VIBRATOR_SERVICE);
-
-        // Setup a listener for changes in haptic feedback settings
-        mIsGloballyEnabled = checkGlobalSetting(mContext);
-        Uri uri = Settings.System.getUriFor(Settings.System.HAPTIC_FEEDBACK_ENABLED);
-        mContext.getContentResolver().registerContentObserver(uri, false, mContentObserver);
+        if (mStarted) {
+            return;
+        }
+        mStarted = true;
+        synchronized (sLock) {
+            if (sStartedCount++ > 0) {
+                return;
+            }
+            if (sAppContext == null) {
+                sAppContext = mContext.getApplicationContext();
+            }
+        }
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(sUpdateObserver);
     }
 
     /**
      * Call this when you don't need the controller anymore.
      */
     public void stop() {
-        mVibrator = null;
-        mContext.getContentResolver().unregisterContentObserver(mContentObserver);
+        if (!mStarted) {
+            return;
+        }
+        mStarted = false;
+        synchronized (sLock) {
+            if (--sStartedCount > 0) {
+                return;
+            }
+        }
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(sUpdateObserver);
     }
 
     /**
@@ -65,11 +125,12 @@ public class HapticFeedbackController {
      * happen if we have vibrated very recently.
      */
     public void tryVibrate() {
-        if (mVibrator != null && mIsGloballyEnabled) {
+        final Vibrator vibrator = sVibrator;
+        if (mStarted && vibrator != null && sIsGloballyEnabled) {
             long now = SystemClock.uptimeMillis();
             // We want to try to vibrate each individual tick discretely.
             if (now - mLastVibrate >= VIBRATE_DELAY_MS) {
-                mVibrator.vibrate(VIBRATE_LENGTH_MS);
+                vibrator.vibrate(VIBRATE_LENGTH_MS);
                 mLastVibrate = now;
             }
         }
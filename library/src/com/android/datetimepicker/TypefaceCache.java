@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.android.datetimepicker;
+
+import android.graphics.Typeface;
+
+import java.util.HashMap;
+
+/**
+ * Process-wide cache of the typefaces used by the pickers. {@link Typeface#create} does not
+ * cache family lookups on all platform versions, and every month and dial view used to create
+ * its own. Safe to use from any thread.
+ *
+ * @deprecated This module is deprecated. Do not use this class.
+ */
+@Deprecated
+public class TypefaceCache {
+
+    private static final HashMap<String, Typeface> sTypefaces = new HashMap<String, Typeface>();
+
+    private TypefaceCache() {
+    }
+
+    /**
+     * @param familyName The font family, as passed to {@link Typeface#create(String, int)}.
+     * @param style The typeface style, e.g. {@link Typeface#BOLD}.
+     * @return The shared typeface for the family and style.
+     */
+    public static Typeface get(String familyName, int style) {
+        final String key = style + ":" + familyName;
+        synchronized (sTypefaces) {
+            Typeface typeface = sTypefaces.get(key);
+            if (typeface == null) {
+                typeface = Typeface.create(familyName, style);
+                sTypefaces.put(key, typeface);
+            }
+            return typeface;
+        }
+    }
+}
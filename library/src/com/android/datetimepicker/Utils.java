@@ -83,6 +83,39 @@ public class Utils {
         }
     }
 
+    /**
+     * Returns the number of days between Jan 1, 1970 and the given date in the proleptic
+     * Gregorian calendar, without allocating a {@link Calendar}.
+     *
+     * @param year The year
+     * @param month The month, {@link Calendar#JANUARY} through {@link Calendar#DECEMBER}
+     * @param day The day of the month
+     * @return The epoch day, negative for dates before 1970
+     */
+    public static int getEpochDay(int year, int month, int day) {
+        // Counts from March 1 so that the leap day is the last day of the year.
+        int m = month + 1;
+        int y = m <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (m > 2 ? m - 3 : m + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    /**
+     * @param epochDay The number of days since Jan 1, 1970, see {@link #getEpochDay}
+     * @return The day of the week, {@link Calendar#SUNDAY} through {@link Calendar#SATURDAY}
+     */
+    public static int getDayOfWeekFromEpochDay(int epochDay) {
+        // Jan 1, 1970 was a Thursday.
+        int dayOfWeek = (epochDay + 4) % 7;
+        if (dayOfWeek < 0) {
+            dayOfWeek += 7;
+        }
+        return dayOfWeek + Calendar.SUNDAY;
+    }
+
     /**
      * Takes a number of weeks since the epoch and calculates the Julian day of
      * the Monday for that week.
@@ -0,0 +1,357 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.android.datetimepicker.date;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import com.android.datetimepicker.Utils;
+
+import java.util.Arrays;
+import java.util.Calendar;
+
+/**
+ * Which dates may be selected in a date picker, compiled from rules such as "weekdays only",
+ * excluded holidays, blackout ranges and "at most N months ahead". Build one with
+ * {@link Builder} and pass it to {@link DatePickerDialog#setDateConstraints} or
+ * {@link DatePickerView#setDateConstraints}.
+ * <p>
+ * The rules are compiled into a bound on the epoch day, a mask of the enabled days of the week
+ * and a sorted array of disjoint excluded intervals of epoch days. Looking up a date is a range
+ * check, a bit test and a binary search, and the enabled days of a whole month are computed
+ * with a few bit operations instead of evaluating every rule for every day.
+ *
+ * @deprecated Use {@link android.widget.DatePicker}.
+ */
+@Deprecated
+public final class DateConstraints implements Parcelable {
+
+    private static final int ALL_DAYS_OF_WEEK = 0x7F;
+
+    /**
+     * Returned by {@link #getNearestEnabledDay} if no date is enabled.
+     */
+    static final int NO_DAY = Integer.MIN_VALUE;
+
+    /**
+     * Allows every date.
+     */
+    static final DateConstraints NONE = new Builder().build();
+
+    private final int mMinEpochDay;
+    private final int mMaxEpochDay;
+    // Bit (dayOfWeek - Calendar.SUNDAY) is set for each enabled day of the week.
+    private final int mDaysOfWeek;
+    // Excluded intervals of epoch days, inclusive, sorted and disjoint. mExcludedEnds is
+    // therefore sorted as well.
+    private final int[] mExcludedStarts;
+    private final int[] mExcludedEnds;
+    // Indexed by the day of the week of the first of a month minus Calendar.SUNDAY. Bit
+    // (day - 1) is set if that day of the month falls on an enabled day of the week.
+    private final int[] mDaysOfWeekMonthMasks = new int[7];
+
+    private DateConstraints(int minEpochDay, int maxEpochDay, int daysOfWeek,
+            int[] excludedStarts, int[] excludedEnds) {
+        mMinEpochDay = minEpochDay;
+        mMaxEpochDay = maxEpochDay;
+        mDaysOfWeek = daysOfWeek;
+        mExcludedStarts = excludedStarts;
+        mExcludedEnds = excludedEnds;
+        for (int first = 0; first < 7; first++) {
+            int mask = 0;
+            for (int day = 0; day < 31; day++) {
+                if ((daysOfWeek & (1 << ((first + day) % 7))) != 0) {
+                    mask |= 1 << day;
+                }
+            }
+            mDaysOfWeekMonthMasks[first] = mask;
+        }
+    }
+
+    /**
+     * @return These constraints, further limited to the given inclusive range of epoch days.
+     */
+    DateConstraints withBounds(int minEpochDay, int maxEpochDay) {
+        if (minEpochDay <= mMinEpochDay && maxEpochDay >= mMaxEpochDay) {
+            return this;
+        }
+        return new DateConstraints(Math.max(mMinEpochDay, minEpochDay),
+                Math.min(mMaxEpochDay, maxEpochDay), mDaysOfWeek, mExcludedStarts, mExcludedEnds);
+    }
+
+    /**
+     * @param year The year
+     * @param monthOfYear The month (0-11) for compatibility with {@link java.util.Calendar}
+     * @param dayOfMonth The day of the month
+     * @return Whether the date may be selected.
+     */
+    public boolean isEnabled(int year, int monthOfYear, int dayOfMonth) {
+        return isEnabled(Utils.getEpochDay(year, monthOfYear, dayOfMonth));
+    }
+
+    boolean isEnabled(int epochDay) {
+        if (epochDay < mMinEpochDay || epochDay > mMaxEpochDay) {
+            return false;
+        }
+        if ((mDaysOfWeek & (1 << (Utils.getDayOfWeekFromEpochDay(epochDay) - Calendar.SUNDAY)))
+                == 0) {
+            return false;
+        }
+        int index = findFirstExcludedEndingOnOrAfter(epochDay);
+        return index == mExcludedEnds.length || mExcludedStarts[index] > epochDay;
+    }
+
+    /**
+     * @return The enabled epoch day nearest to the given one, the later one if two are as near,
+     * or {@link #NO_DAY} if no date is enabled.
+     */
+    int getNearestEnabledDay(int epochDay) {
+        if (isEnabled(epochDay)) {
+            return epochDay;
+        }
+        int after = getEnabledDayFrom(epochDay, 1);
+        int before = getEnabledDayFrom(epochDay, -1);
+        if (before == NO_DAY) {
+            return after;
+        } else if (after == NO_DAY) {
+            return before;
+        }
+        return (long) after - epochDay <= (long) epochDay - before ? after : before;
+    }
+
+    /**
+     * @return The first enabled epoch day from the given one on, going forward if direction is 1
+     * and backward if it is -1, or {@link #NO_DAY} if there is none. Excluded intervals are
+     * skipped at once.
+     */
+    private int getEnabledDayFrom(int epochDay, int direction) {
+        if (mDaysOfWeek == 0) {
+            return NO_DAY;
+        }
+        int day = Math.max(mMinEpochDay, Math.min(mMaxEpochDay, epochDay));
+        if ((direction > 0 && day < epochDay) || (direction < 0 && day > epochDay)) {
+            return NO_DAY;
+        }
+        while (true) {
+            int index = findFirstExcludedEndingOnOrAfter(day);
+            boolean excluded = index < mExcludedEnds.length && mExcludedStarts[index] <= day;
+            if (!excluded && (mDaysOfWeek
+                    & (1 << (Utils.getDayOfWeekFromEpochDay(day) - Calendar.SUNDAY))) != 0) {
+                return day;
+            }
+            long next = !excluded ? (long) day + direction
+                    : direction > 0 ? (long) mExcludedEnds[index] + 1
+                    : (long) mExcludedStarts[index] - 1;
+            if (next < mMinEpochDay || next > mMaxEpochDay) {
+                return NO_DAY;
+            }
+            day = (int) next;
+        }
+    }
+
+    /**
+     * @return A mask of the enabled days of the month, with bit (day - 1) set for each day that
+     * may be selected.
+     */
+    int getEnabledDays(int year, int month) {
+        final int numDays = Utils.getDaysInMonth(month, year);
+        final int first = Utils.getEpochDay(year, month, 1);
+        final int last = first + numDays - 1;
+        if (last < mMinEpochDay || first > mMaxEpochDay) {
+            return 0;
+        }
+
+        int mask = mDaysOfWeekMonthMasks[Utils.getDayOfWeekFromEpochDay(first) - Calendar.SUNDAY]
+                & getDaysMask(0, numDays - 1);
+        if (mMinEpochDay > first) {
+            mask &= ~getDaysMask(0, mMinEpochDay - first - 1);
+        }
+        if (mMaxEpochDay < last) {
+            mask &= ~getDaysMask(mMaxEpochDay - first + 1, numDays - 1);
+        }
+        for (int i = findFirstExcludedEndingOnOrAfter(first);
+                i < mExcludedStarts.length && mExcludedStarts[i] <= last; i++) {
+            mask &= ~getDaysMask(Math.max(mExcludedStarts[i], first) - first,
+                    Math.min(mExcludedEnds[i], last) - first);
+        }
+        return mask;
+    }
+
+    /**
+     * @return A mask with bits {@code from} through {@code to} set, both inclusive.
+     */
+    private static int getDaysMask(int from, int to) {
+        return (int) (((1L << (to + 1)) - 1) & ~((1L << from) - 1));
+    }
+
+    /**
+     * @return The index of the first excluded interval ending on or after the epoch day, or the
+     * number of intervals if there is none.
+     */
+    private int findFirstExcludedEndingOnOrAfter(int epochDay) {
+        int index = Arrays.binarySearch(mExcludedEnds, epochDay);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(Parcel dest, int flags) {
+        dest.writeInt(mMinEpochDay);
+        dest.writeInt(mMaxEpochDay);
+        dest.writeInt(mDaysOfWeek);
+        dest.writeIntArray(mExcludedStarts);
+        dest.writeIntArray(mExcludedEnds);
+    }
+
+    public static final Parcelable.Creator<DateConstraints> CREATOR =
+            new Parcelable.Creator<DateConstraints>() {
+        @Override
+        public DateConstraints createFromParcel(Parcel in) {
+            return new DateConstraints(in.readInt(), in.readInt(), in.readInt(),
+                    in.createIntArray(), in.createIntArray());
+        }
+
+        @Override
+        public DateConstraints[] newArray(int size) {
+            return new DateConstraints[size];
+        }
+    };
+
+    static int getEpochDay(Calendar calendar) {
+        return Utils.getEpochDay(calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH),
+                calendar.get(Calendar.DAY_OF_MONTH));
+    }
+
+    /**
+     * Collects the rules for a {@link DateConstraints}. Rules only ever disable dates; a date is
+     * enabled if no rule disables it.
+     */
+    public static class Builder {
+        private int mMaxEpochDay = Integer.MAX_VALUE;
+        private int mDaysOfWeek = ALL_DAYS_OF_WEEK;
+        // Excluded intervals, each packed as (start << 32) | end so that sorting the longs
+        // sorts the intervals by their start.
+        private long[] mExcluded = new long[8];
+        private int mExcludedCount;
+
+        /**
+         * Only allows dates falling on the given days of the week.
+         *
+         * @param daysOfWeek {@link Calendar#SUNDAY} through {@link Calendar#SATURDAY}.
+         */
+        public Builder setEnabledDaysOfWeek(int... daysOfWeek) {
+            int mask = 0;
+            for (int dayOfWeek : daysOfWeek) {
+                if (dayOfWeek < Calendar.SUNDAY || dayOfWeek > Calendar.SATURDAY) {
+                    throw new IllegalArgumentException("Value must be between Calendar.SUNDAY "
+                            + "and Calendar.SATURDAY");
+                }
+                mask |= 1 << (dayOfWeek - Calendar.SUNDAY);
+            }
+            mDaysOfWeek = mask;
+            return this;
+        }
+
+        /**
+         * Only allows Monday through Friday.
+         */
+        public Builder setWeekdaysOnly() {
+            return setEnabledDaysOfWeek(Calendar.MONDAY, Calendar.TUESDAY, Calendar.WEDNESDAY,
+                    Calendar.THURSDAY, Calendar.FRIDAY);
+        }
+
+        /**
+         * Disallows a single date, such as a public holiday.
+         */
+        public Builder excludeDate(int year, int monthOfYear, int dayOfMonth) {
+            int epochDay = Utils.getEpochDay(year, monthOfYear, dayOfMonth);
+            addExcluded(epochDay, epochDay);
+            return this;
+        }
+
+        /**
+         * Disallows a single date, such as a public holiday.
+         */
+        public Builder excludeDate(Calendar date) {
+            int epochDay = getEpochDay(date);
+            addExcluded(epochDay, epochDay);
+            return this;
+        }
+
+        /**
+         * Disallows every date from {@code start} through {@code end}, both inclusive.
+         */
+        public Builder excludeRange(Calendar start, Calendar end) {
+            int startEpochDay = getEpochDay(start);
+            int endEpochDay = getEpochDay(end);
+            if (endEpochDay < startEpochDay) {
+                throw new IllegalArgumentException("Range end must not be before range start");
+            }
+            addExcluded(startEpochDay, endEpochDay);
+            return this;
+        }
+
+        /**
+         * Disallows dates more than the given number of months after today.
+         */
+        public Builder setMaxMonthsAhead(int months) {
+            if (months < 0) {
+                throw new IllegalArgumentException("Months ahead must not be negative");
+            }
+            Calendar max = Calendar.getInstance();
+            max.add(Calendar.MONTH, months);
+            mMaxEpochDay = getEpochDay(max);
+            return this;
+        }
+
+        private void addExcluded(int start, int end) {
+            if (mExcludedCount == mExcluded.length) {
+                mExcluded = Arrays.copyOf(mExcluded, mExcludedCount * 2);
+            }
+            mExcluded[mExcludedCount++] = ((long) start << 32) | (end & 0xFFFFFFFFL);
+        }
+
+        /**
+         * Compiles the rules, merging overlapping and adjacent excluded intervals.
+         */
+        public DateConstraints build() {
+            long[] excluded = Arrays.copyOf(mExcluded, mExcludedCount);
+            Arrays.sort(excluded);
+            int[] starts = new int[mExcludedCount];
+            int[] ends = new int[mExcludedCount];
+            int count = 0;
+            for (long interval : excluded) {
+                int start = (int) (interval >> 32);
+                int end = (int) interval;
+                if (count > 0 && start <= ends[count - 1] + 1) {
+                    ends[count - 1] = Math.max(ends[count - 1], end);
+                } else {
+                    starts[count] = start;
+                    ends[count] = end;
+                    count++;
+                }
+            }
+            return new DateConstraints(Integer.MIN_VALUE, mMaxEpochDay, mDaysOfWeek,
+                    Arrays.copyOf(starts, count), Arrays.copyOf(ends, count));
+        }
+    }
+}
@@ -46,5 +46,10 @@ interface DatePickerController {
 
     Calendar getMaxDate();
 
+    /**
+     * @return The rules deciding which dates may be selected, including the min and max date.
+     */
+    DateConstraints getEffectiveDateConstraints();
+
     void tryVibrate();
 }
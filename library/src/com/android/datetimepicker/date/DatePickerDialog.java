@@ -16,35 +16,23 @@
 
 package com.android.datetimepicker.date;
 
-import android.animation.ObjectAnimator;
-import android.app.Activity;
 import android.app.DialogFragment;
+import android.content.Context;
 import android.content.res.Resources;
+import android.os.AsyncTask;
 import android.os.Bundle;
-import android.text.format.DateUtils;
-import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.View.OnClickListener;
 import android.view.ViewGroup;
 import android.view.Window;
 import android.view.WindowManager;
-import android.view.animation.AlphaAnimation;
-import android.view.animation.Animation;
 import android.widget.Button;
-import android.widget.LinearLayout;
-import android.widget.TextView;
 
-import com.android.datetimepicker.HapticFeedbackController;
 import com.android.datetimepicker.R;
-import com.android.datetimepicker.Utils;
 import com.android.datetimepicker.date.MonthAdapter.CalendarDay;
 
-import java.text.SimpleDateFormat;
 import java.util.Calendar;
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.Locale;
 
 /**
  * Dialog allowing users to select a date.
@@ -52,68 +40,25 @@ import java.util.Locale;
  * @deprecated Use {@link android.app.DatePickerDialog}.
  */
 @Deprecated
-public class DatePickerDialog extends DialogFragment implements
-        OnClickListener, DatePickerController {
+public class DatePickerDialog extends DialogFragment implements OnClickListener {
 
     private static final String TAG = "DatePickerDialog";
 
-    private static final int UNINITIALIZED = -1;
-    private static final int MONTH_AND_DAY_VIEW = 0;
-    private static final int YEAR_VIEW = 1;
-
-    private static final String KEY_SELECTED_YEAR = "year";
-    private static final String KEY_SELECTED_MONTH = "month";
-    private static final String KEY_SELECTED_DAY = "day";
-    private static final String KEY_LIST_POSITION = "list_position";
-    private static final String KEY_WEEK_START = "week_start";
-    private static final String KEY_YEAR_START = "year_start";
-    private static final String KEY_YEAR_END = "year_end";
-    private static final String KEY_CURRENT_VIEW = "current_view";
-    private static final String KEY_LIST_POSITION_OFFSET = "list_position_offset";
-    private static final String KEY_MIN_DATE = "min_date";
-    private static final String KEY_MAX_DATE = "max_date";
-
     private static final int DEFAULT_START_YEAR = 1900;
     private static final int DEFAULT_END_YEAR = 2100;
 
-    private static final int ANIMATION_DURATION = 300;
-    private static final int ANIMATION_DELAY = 500;
-
-    private static SimpleDateFormat YEAR_FORMAT = new SimpleDateFormat("yyyy", Locale.getDefault());
-    private static SimpleDateFormat DAY_FORMAT = new SimpleDateFormat("dd", Locale.getDefault());
-
     private final Calendar mCalendar = Calendar.getInstance();
     private OnDateSetListener mCallBack;
-    private HashSet<OnDateChangedListener> mListeners = new HashSet<OnDateChangedListener>();
 
-    private AccessibleDateAnimator mAnimator;
-
-    private TextView mDayOfWeekView;
-    private LinearLayout mMonthAndDayView;
-    private TextView mSelectedMonthTextView;
-    private TextView mSelectedDayTextView;
-    private TextView mYearView;
-    private DayPickerView mDayPickerView;
-    private YearPickerView mYearPickerView;
+    private DatePickerView mDatePickerView;
     private Button mDoneButton;
 
-    private int mCurrentView = UNINITIALIZED;
-
     private int mWeekStart = mCalendar.getFirstDayOfWeek();
     private int mMinYear = DEFAULT_START_YEAR;
     private int mMaxYear = DEFAULT_END_YEAR;
     private Calendar mMinDate;
     private Calendar mMaxDate;
-
-    private HapticFeedbackController mHapticFeedbackController;
-
-    private boolean mDelayAnimation = true;
-
-    // Accessibility strings.
-    private String mDayPickerDescription;
-    private String mSelectDay;
-    private String mYearPickerDescription;
-    private String mSelectYear;
+    private DateConstraints mDateConstraints;
 
     /**
      * The callback used to indicate the user is done filling in the date.
@@ -157,212 +102,75 @@ public class DatePickerDialog extends DialogFragment implements
         return ret;
     }
 
+    /**
+     * Builds the typefaces and locale-dependent labels used by the date picker on a background
+     * thread, so that a dialog shown afterwards can draw its first frame without doing so. Safe
+     * to call more than once.
+     */
+    public static void prewarm(Context context) {
+        final Resources res = context.getApplicationContext().getResources();
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                MonthView.prewarm(res);
+            }
+        });
+    }
+
     public void initialize(OnDateSetListener callBack, int year, int monthOfYear, int dayOfMonth) {
         mCallBack = callBack;
         mCalendar.set(Calendar.YEAR, year);
         mCalendar.set(Calendar.MONTH, monthOfYear);
         mCalendar.set(Calendar.DAY_OF_MONTH, dayOfMonth);
+        if (mDatePickerView != null) {
+            mDatePickerView.setDate(year, monthOfYear, dayOfMonth);
+        }
     }
 
     @Override
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
-        final Activity activity = getActivity();
-        activity.getWindow().setSoftInputMode(
+        getActivity().getWindow().setSoftInputMode(
                 WindowManager.LayoutParams.SOFT_INPUT_STATE_ALWAYS_HIDDEN);
-        if (savedInstanceState != null) {
-            mCalendar.set(Calendar.YEAR, savedInstanceState.getInt(KEY_SELECTED_YEAR));
-            mCalendar.set(Calendar.MONTH, savedInstanceState.getInt(KEY_SELECTED_MONTH));
-            mCalendar.set(Calendar.DAY_OF_MONTH, savedInstanceState.getInt(KEY_SELECTED_DAY));
-            setMinDate((Calendar) savedInstanceState.getSerializable(KEY_MIN_DATE));
-            setMaxDate((Calendar) savedInstanceState.getSerializable(KEY_MAX_DATE));
-        }
-    }
-
-    @Override
-    public void onSaveInstanceState(Bundle outState) {
-        super.onSaveInstanceState(outState);
-        outState.putInt(KEY_SELECTED_YEAR, mCalendar.get(Calendar.YEAR));
-        outState.putInt(KEY_SELECTED_MONTH, mCalendar.get(Calendar.MONTH));
-        outState.putInt(KEY_SELECTED_DAY, mCalendar.get(Calendar.DAY_OF_MONTH));
-        outState.putInt(KEY_WEEK_START, mWeekStart);
-        outState.putInt(KEY_YEAR_START, mMinYear);
-        outState.putInt(KEY_YEAR_END, mMaxYear);
-        outState.putInt(KEY_CURRENT_VIEW, mCurrentView);
-        int listPosition = -1;
-        if (mCurrentView == MONTH_AND_DAY_VIEW) {
-            listPosition = mDayPickerView.getMostVisiblePosition();
-        } else if (mCurrentView == YEAR_VIEW) {
-            listPosition = mYearPickerView.getFirstVisiblePosition();
-            outState.putInt(KEY_LIST_POSITION_OFFSET, mYearPickerView.getFirstPositionOffset());
-        }
-        outState.putInt(KEY_LIST_POSITION, listPosition);
-        outState.putSerializable(KEY_MIN_DATE, mMinDate);
-        outState.putSerializable(KEY_MAX_DATE, mMaxDate);
     }
 
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup container,
             Bundle savedInstanceState) {
-        Log.d(TAG, "onCreateView: ");
         getDialog().getWindow().requestFeature(Window.FEATURE_NO_TITLE);
 
-        View view = inflater.inflate(R.layout.date_picker_dialog, null);
-
-        mDayOfWeekView = (TextView) view.findViewById(R.id.date_picker_header);
-        mMonthAndDayView = (LinearLayout) view.findViewById(R.id.date_picker_month_and_day);
-        mMonthAndDayView.setOnClickListener(this);
-        mSelectedMonthTextView = (TextView) view.findViewById(R.id.date_picker_month);
-        mSelectedDayTextView = (TextView) view.findViewById(R.id.date_picker_day);
-        mYearView = (TextView) view.findViewById(R.id.date_picker_year);
-        mYearView.setOnClickListener(this);
-
-        int listPosition = -1;
-        int listPositionOffset = 0;
-        int currentView = MONTH_AND_DAY_VIEW;
-        if (savedInstanceState != null) {
-            mWeekStart = savedInstanceState.getInt(KEY_WEEK_START);
-            mMinYear = savedInstanceState.getInt(KEY_YEAR_START);
-            mMaxYear = savedInstanceState.getInt(KEY_YEAR_END);
-            currentView = savedInstanceState.getInt(KEY_CURRENT_VIEW);
-            listPosition = savedInstanceState.getInt(KEY_LIST_POSITION);
-            listPositionOffset = savedInstanceState.getInt(KEY_LIST_POSITION_OFFSET);
-        }
-
-        final Activity activity = getActivity();
-        mDayPickerView = new SimpleDayPickerView(activity, this);
-        mYearPickerView = new YearPickerView(activity, this);
-
-        Resources res = getResources();
-        mDayPickerDescription = res.getString(R.string.day_picker_description);
-        mSelectDay = res.getString(R.string.select_day);
-        mYearPickerDescription = res.getString(R.string.year_picker_description);
-        mSelectYear = res.getString(R.string.select_year);
-
-        mAnimator = (AccessibleDateAnimator) view.findViewById(R.id.animator);
-        mAnimator.addView(mDayPickerView);
-        mAnimator.addView(mYearPickerView);
-        mAnimator.setDateMillis(mCalendar.getTimeInMillis());
-        // TODO: Replace with animation decided upon by the design team.
-        Animation animation = new AlphaAnimation(0.0f, 1.0f);
-        animation.setDuration(ANIMATION_DURATION);
-        mAnimator.setInAnimation(animation);
-        // TODO: Replace with animation decided upon by the design team.
-        Animation animation2 = new AlphaAnimation(1.0f, 0.0f);
-        animation2.setDuration(ANIMATION_DURATION);
-        mAnimator.setOutAnimation(animation2);
-
-        mDoneButton = (Button) view.findViewById(R.id.done);
+        // The selected date, the picker settings and the list positions are saved and restored
+        // by the DatePickerView as part of the dialog's view hierarchy state.
+        mDatePickerView = (DatePickerView) inflater.inflate(R.layout.date_picker_dialog, null);
+        mDatePickerView.setFirstDayOfWeek(mWeekStart);
+        mDatePickerView.setYearRange(mMinYear, mMaxYear);
+        mDatePickerView.setMinDate(mMinDate);
+        mDatePickerView.setMaxDate(mMaxDate);
+        mDatePickerView.setDateConstraints(mDateConstraints);
+        mDatePickerView.setDate(mCalendar.get(Calendar.YEAR), mCalendar.get(Calendar.MONTH),
+                mCalendar.get(Calendar.DAY_OF_MONTH));
+
+        mDoneButton = (Button) mDatePickerView.findViewById(R.id.done);
         mDoneButton.setOnClickListener(new OnClickListener() {
 
             @Override
             public void onClick(View v) {
-                tryVibrate();
+                mDatePickerView.tryVibrate();
                 if (mCallBack != null) {
-                    mCallBack.onDateSet(DatePickerDialog.this, mCalendar.get(Calendar.YEAR),
-                            mCalendar.get(Calendar.MONTH), mCalendar.get(Calendar.DAY_OF_MONTH));
+                    mCallBack.onDateSet(DatePickerDialog.this, mDatePickerView.getYear(),
+                            mDatePickerView.getMonth(), mDatePickerView.getDayOfMonth());
                 }
                 dismiss();
             }
         });
 
-        updateDisplay(false);
-        setCurrentView(currentView);
-
-        if (listPosition != -1) {
-            if (currentView == MONTH_AND_DAY_VIEW) {
-                mDayPickerView.postSetSelection(listPosition);
-            } else if (currentView == YEAR_VIEW) {
-                mYearPickerView.postSetSelectionFromTop(listPosition, listPositionOffset);
-            }
-        }
-
-        mHapticFeedbackController = new HapticFeedbackController(activity);
-        return view;
-    }
-
-    @Override
-    public void onResume() {
-        super.onResume();
-        mHapticFeedbackController.start();
+        return mDatePickerView;
     }
 
     @Override
-    public void onPause() {
-        super.onPause();
-        mHapticFeedbackController.stop();
-    }
-
-    private void setCurrentView(final int viewIndex) {
-        long millis = mCalendar.getTimeInMillis();
-
-        switch (viewIndex) {
-            case MONTH_AND_DAY_VIEW:
-                ObjectAnimator pulseAnimator = Utils.getPulseAnimator(mMonthAndDayView, 0.9f,
-                        1.05f);
-                if (mDelayAnimation) {
-                    pulseAnimator.setStartDelay(ANIMATION_DELAY);
-                    mDelayAnimation = false;
-                }
-                mDayPickerView.onDateChanged();
-                if (mCurrentView != viewIndex) {
-                    mMonthAndDayView.setSelected(true);
-                    mYearView.setSelected(false);
-                    mAnimator.setDisplayedChild(MONTH_AND_DAY_VIEW);
-                    mCurrentView = viewIndex;
-                }
-                pulseAnimator.start();
-
-                int flags = DateUtils.FORMAT_SHOW_DATE;
-                String dayString = DateUtils.formatDateTime(getActivity(), millis, flags);
-                mAnimator.setContentDescription(mDayPickerDescription+": "+dayString);
-                Utils.tryAccessibilityAnnounce(mAnimator, mSelectDay);
-                break;
-            case YEAR_VIEW:
-                pulseAnimator = Utils.getPulseAnimator(mYearView, 0.85f, 1.1f);
-                if (mDelayAnimation) {
-                    pulseAnimator.setStartDelay(ANIMATION_DELAY);
-                    mDelayAnimation = false;
-                }
-                mYearPickerView.onDateChanged();
-                if (mCurrentView != viewIndex) {
-                    mMonthAndDayView.setSelected(false);
-                    mYearView.setSelected(true);
-                    mAnimator.setDisplayedChild(YEAR_VIEW);
-                    mCurrentView = viewIndex;
-                }
-                pulseAnimator.start();
-
-                CharSequence yearString = YEAR_FORMAT.format(millis);
-                mAnimator.setContentDescription(mYearPickerDescription+": "+yearString);
-                Utils.tryAccessibilityAnnounce(mAnimator, mSelectYear);
-                break;
-        }
-    }
-
-    private void updateDisplay(boolean announce) {
-        if (mDayOfWeekView != null) {
-            mDayOfWeekView.setText(mCalendar.getDisplayName(Calendar.DAY_OF_WEEK, Calendar.LONG,
-                    Locale.getDefault()).toUpperCase(Locale.getDefault()));
-        }
-
-        mSelectedMonthTextView.setText(mCalendar.getDisplayName(Calendar.MONTH, Calendar.SHORT,
-                Locale.getDefault()).toUpperCase(Locale.getDefault()));
-        mSelectedDayTextView.setText(DAY_FORMAT.format(mCalendar.getTime()));
-        mYearView.setText(YEAR_FORMAT.format(mCalendar.getTime()));
-
-        // Accessibility.
-        long millis = mCalendar.getTimeInMillis();
-        mAnimator.setDateMillis(millis);
-        int flags = DateUtils.FORMAT_SHOW_DATE | DateUtils.FORMAT_NO_YEAR;
-        String monthAndDayText = DateUtils.formatDateTime(getActivity(), millis, flags);
-        mMonthAndDayView.setContentDescription(monthAndDayText);
-
-        if (announce) {
-            flags = DateUtils.FORMAT_SHOW_DATE | DateUtils.FORMAT_SHOW_YEAR;
-            String fullDateText = DateUtils.formatDateTime(getActivity(), millis, flags);
-            Utils.tryAccessibilityAnnounce(mAnimator, fullDateText);
-        }
+    public void onDestroyView() {
+        super.onDestroyView();
+        mDatePickerView = null;
     }
 
     public void setFirstDayOfWeek(int startOfWeek) {
@@ -371,8 +179,8 @@ public class DatePickerDialog extends DialogFragment implements
                     "Calendar.SATURDAY");
         }
         mWeekStart = startOfWeek;
-        if (mDayPickerView != null) {
-            mDayPickerView.onChange();
+        if (mDatePickerView != null) {
+            mDatePickerView.setFirstDayOfWeek(startOfWeek);
         }
     }
 
@@ -382,8 +190,8 @@ public class DatePickerDialog extends DialogFragment implements
         }
         mMinYear = startYear;
         mMaxYear = endYear;
-        if (mDayPickerView != null) {
-            mDayPickerView.onChange();
+        if (mDatePickerView != null) {
+            mDatePickerView.setYearRange(startYear, endYear);
         }
     }
 
@@ -395,17 +203,16 @@ public class DatePickerDialog extends DialogFragment implements
     public void setMinDate(Calendar calendar) {
         mMinDate = calendar;
 
-        if (mDayPickerView != null) {
-            mDayPickerView.onChange();
+        if (mDatePickerView != null) {
+            mDatePickerView.setMinDate(calendar);
         }
     }
 
     /**
      * @return The minimal date supported by this DatePicker. Null if it has not been set.
      */
-    @Override
     public Calendar getMinDate() {
-        return mMinDate;
+        return mDatePickerView != null ? mDatePickerView.getMinDate() : mMinDate;
     }
 
     /**
@@ -416,103 +223,143 @@ public class DatePickerDialog extends DialogFragment implements
     public void setMaxDate(Calendar calendar) {
         mMaxDate = calendar;
 
-        if (mDayPickerView != null) {
-            mDayPickerView.onChange();
+        if (mDatePickerView != null) {
+            mDatePickerView.setMaxDate(calendar);
         }
     }
 
     /**
      * @return The maximal date supported by this DatePicker. Null if it has not been set.
      */
-    @Override
     public Calendar getMaxDate() {
-        return mMaxDate;
+        return mDatePickerView != null ? mDatePickerView.getMaxDate() : mMaxDate;
+    }
+
+    /**
+     * Sets rules that disable dates in addition to the min and max date, such as weekends or
+     * holidays.
+     * @param constraints The rules, or null to allow every date between the min and max date.
+     */
+    public void setDateConstraints(DateConstraints constraints) {
+        mDateConstraints = constraints;
+
+        if (mDatePickerView != null) {
+            mDatePickerView.setDateConstraints(constraints);
+        }
+    }
+
+    /**
+     * @return The rules set with {@link #setDateConstraints}. Null if they have not been set.
+     */
+    public DateConstraints getDateConstraints() {
+        return mDatePickerView != null ? mDatePickerView.getDateConstraints() : mDateConstraints;
     }
 
     public void setOnDateSetListener(OnDateSetListener listener) {
         mCallBack = listener;
     }
 
-    // If the newly selected month / year does not contain the currently selected day number,
-    // change the selected day number to the last day of the selected month or year.
-    //      e.g. Switching from Mar to Apr when Mar 31 is selected -> Apr 30
-    //      e.g. Switching from 2012 to 2013 when Feb 29, 2012 is selected -> Feb 28, 2013
-    private void adjustDayInMonthIfNeeded(int month, int year) {
-        int day = mCalendar.get(Calendar.DAY_OF_MONTH);
-        int daysInMonth = Utils.getDaysInMonth(month, year);
-        if (day > daysInMonth) {
-            mCalendar.set(Calendar.DAY_OF_MONTH, daysInMonth);
-        }
-    }
+    // The methods below were the dialog's own before the picker moved into DatePickerView, and
+    // are kept for its callers. They forward to the view while it exists.
 
+    /**
+     * @deprecated Use {@link DatePickerView#onClick(View)}.
+     */
+    @Deprecated
     @Override
     public void onClick(View v) {
-        tryVibrate();
-        if (v.getId() == R.id.date_picker_year) {
-            setCurrentView(YEAR_VIEW);
-        } else if (v.getId() == R.id.date_picker_month_and_day) {
-            setCurrentView(MONTH_AND_DAY_VIEW);
+        if (mDatePickerView != null) {
+            mDatePickerView.onClick(v);
         }
     }
 
-    @Override
+    /**
+     * @deprecated Use {@link DatePickerView#onYearSelected(int)}.
+     */
+    @Deprecated
     public void onYearSelected(int year) {
-        adjustDayInMonthIfNeeded(mCalendar.get(Calendar.MONTH), year);
-        mCalendar.set(Calendar.YEAR, year);
-        updatePickers();
-        setCurrentView(MONTH_AND_DAY_VIEW);
-        updateDisplay(true);
+        if (mDatePickerView != null) {
+            mDatePickerView.onYearSelected(year);
+        } else {
+            mCalendar.set(Calendar.YEAR, year);
+        }
     }
 
-    @Override
+    /**
+     * @deprecated Use {@link DatePickerView#onDayOfMonthSelected(int, int, int)}.
+     */
+    @Deprecated
     public void onDayOfMonthSelected(int year, int month, int day) {
-        mCalendar.set(Calendar.YEAR, year);
-        mCalendar.set(Calendar.MONTH, month);
-        mCalendar.set(Calendar.DAY_OF_MONTH, day);
-        updatePickers();
-        updateDisplay(true);
-    }
-
-    private void updatePickers() {
-        Iterator<OnDateChangedListener> iterator = mListeners.iterator();
-        while (iterator.hasNext()) {
-            iterator.next().onDateChanged();
+        if (mDatePickerView != null) {
+            mDatePickerView.onDayOfMonthSelected(year, month, day);
+        } else {
+            mCalendar.set(Calendar.YEAR, year);
+            mCalendar.set(Calendar.MONTH, month);
+            mCalendar.set(Calendar.DAY_OF_MONTH, day);
         }
     }
 
-
-    @Override
+    /**
+     * @deprecated Use {@link DatePickerView#getSelectedDay()}.
+     */
+    @Deprecated
     public CalendarDay getSelectedDay() {
-        return new CalendarDay(mCalendar);
+        return mDatePickerView != null ? mDatePickerView.getSelectedDay()
+                : new CalendarDay(mCalendar);
     }
 
-    @Override
+    /**
+     * @deprecated Use {@link DatePickerView#getMinYear()}.
+     */
+    @Deprecated
     public int getMinYear() {
-        return mMinYear;
+        return mDatePickerView != null ? mDatePickerView.getMinYear() : mMinYear;
     }
 
-    @Override
+    /**
+     * @deprecated Use {@link DatePickerView#getMaxYear()}.
+     */
+    @Deprecated
     public int getMaxYear() {
-        return mMaxYear;
+        return mDatePickerView != null ? mDatePickerView.getMaxYear() : mMaxYear;
     }
 
-    @Override
+    /**
+     * @deprecated Use {@link DatePickerView#getFirstDayOfWeek()}.
+     */
+    @Deprecated
     public int getFirstDayOfWeek() {
-        return mWeekStart;
+        return mDatePickerView != null ? mDatePickerView.getFirstDayOfWeek() : mWeekStart;
     }
 
-    @Override
+    /**
+     * Only takes effect while the dialog's view exists, i.e. from onCreateView on.
+     * @deprecated Use {@link DatePickerView#registerOnDateChangedListener}.
+     */
+    @Deprecated
     public void registerOnDateChangedListener(OnDateChangedListener listener) {
-        mListeners.add(listener);
+        if (mDatePickerView != null) {
+            mDatePickerView.registerOnDateChangedListener(listener);
+        }
     }
 
-    @Override
+    /**
+     * @deprecated Use {@link DatePickerView#unregisterOnDateChangedListener}.
+     */
+    @Deprecated
     public void unregisterOnDateChangedListener(OnDateChangedListener listener) {
-        mListeners.remove(listener);
+        if (mDatePickerView != null) {
+            mDatePickerView.unregisterOnDateChangedListener(listener);
+        }
     }
 
-    @Override
+    /**
+     * @deprecated Use {@link DatePickerView#tryVibrate()}.
+     */
+    @Deprecated
     public void tryVibrate() {
-        mHapticFeedbackController.tryVibrate();
+        if (mDatePickerView != null) {
+            mDatePickerView.tryVibrate();
+        }
     }
 }
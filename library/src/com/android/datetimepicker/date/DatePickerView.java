@@ -0,0 +1,801 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.android.datetimepicker.date;
+
+import android.animation.ObjectAnimator;
+import android.content.Context;
+import android.content.res.Resources;
+import android.os.Looper;
+import android.os.MessageQueue.IdleHandler;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.support.v4.view.ViewCompat;
+import android.text.format.DateUtils;
+import android.util.AttributeSet;
+import android.view.Gravity;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.View.OnClickListener;
+import android.view.ViewTreeObserver.OnPreDrawListener;
+import android.view.animation.AlphaAnimation;
+import android.view.animation.Animation;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+
+import com.android.datetimepicker.HapticFeedbackController;
+import com.android.datetimepicker.R;
+import com.android.datetimepicker.Utils;
+import com.android.datetimepicker.date.DatePickerDialog.OnDateChangedListener;
+import com.android.datetimepicker.date.MonthAdapter.CalendarDay;
+
+import java.util.Arrays;
+import java.util.Calendar;
+
+/**
+ * A view allowing users to select a date, made of a header showing the selected date and a
+ * month list that can be switched to a year list. It can be used inline in any layout; it is
+ * also the content of {@link DatePickerDialog}.
+ * <p>
+ * When inflated from XML with children, the children must include the views the dialog layouts
+ * provide (the header, the selected date and the animator). Otherwise the default content is
+ * inflated. Attaching and detaching the view keeps its state and pickers, so it can be recycled
+ * by scrolling parents.
+ *
+ * @deprecated Use {@link android.widget.DatePicker}.
+ */
+@Deprecated
+public class DatePickerView extends LinearLayout implements OnClickListener,
+        DatePickerController {
+
+    private static final String TAG = "DatePickerView";
+
+    private static final int UNINITIALIZED = -1;
+    private static final int MONTH_AND_DAY_VIEW = 0;
+    private static final int YEAR_VIEW = 1;
+
+    private static final int DEFAULT_START_YEAR = 1900;
+    private static final int DEFAULT_END_YEAR = 2100;
+
+    private static final int ANIMATION_DURATION = 300;
+    private static final int ANIMATION_DELAY = 500;
+
+    private final Calendar mCalendar = Calendar.getInstance();
+    private OnDateSelectedListener mOnDateSelectedListener;
+    // The pickers unregister when they are detached from the window, so they do not leak. The
+    // array is replaced rather than modified on (un)registration, which is rare, so dispatching
+    // iterates it without allocating and listeners may unregister while being notified.
+    private OnDateChangedListener[] mListeners = new OnDateChangedListener[0];
+    private boolean mDateChangePending;
+    private final Runnable mDispatchDateChanged = new Runnable() {
+        @Override
+        public void run() {
+            dispatchDateChanged();
+        }
+    };
+
+    private AccessibleDateAnimator mAnimator;
+
+    private TextView mDayOfWeekView;
+    private LinearLayout mMonthAndDayView;
+    private TextView mSelectedMonthTextView;
+    private TextView mSelectedDayTextView;
+    private TextView mYearView;
+    private DayPickerView mDayPickerView;
+    private YearPickerView mYearPickerView;
+
+    private int mCurrentView = UNINITIALIZED;
+
+    private int mWeekStart = mCalendar.getFirstDayOfWeek();
+    private int mMinYear = DEFAULT_START_YEAR;
+    private int mMaxYear = DEFAULT_END_YEAR;
+    private Calendar mMinDate;
+    private Calendar mMaxDate;
+    // The constraints set by the client, and the same constraints limited to the min and max
+    // date, which is what the month views query.
+    private DateConstraints mDateConstraints;
+    private DateConstraints mEffectiveDateConstraints = DateConstraints.NONE;
+
+    private final HapticFeedbackController mHapticFeedbackController;
+
+    // Builds whichever picker was not shown initially once the first frame has been drawn.
+    private final DeferredViewInflater mDeferredViewInflater = new DeferredViewInflater();
+
+    private boolean mDelayAnimation = true;
+
+    // Accessibility strings.
+    private final String mDayPickerDescription;
+    private final String mSelectDay;
+    private final String mYearPickerDescription;
+    private final String mSelectYear;
+
+    /**
+     * The callback used to indicate the user has selected a date in the view.
+     */
+    public interface OnDateSelectedListener {
+
+        /**
+         * @param view The view associated with this listener.
+         * @param year The year that was selected.
+         * @param monthOfYear The month that was selected (0-11) for compatibility
+         *            with {@link java.util.Calendar}.
+         * @param dayOfMonth The day of the month that was selected.
+         */
+        void onDateSelected(DatePickerView view, int year, int monthOfYear, int dayOfMonth);
+    }
+
+    public DatePickerView(Context context) {
+        this(context, null, null);
+        setUpViews();
+    }
+
+    /**
+     * @param hapticFeedbackController The controller to vibrate with, shared with other pickers
+     * in the same window. It is started and stopped along with this view.
+     */
+    public DatePickerView(Context context, HapticFeedbackController hapticFeedbackController) {
+        this(context, null, hapticFeedbackController);
+        setUpViews();
+    }
+
+    public DatePickerView(Context context, AttributeSet attrs) {
+        this(context, attrs, null);
+    }
+
+    private DatePickerView(Context context, AttributeSet attrs,
+            HapticFeedbackController hapticFeedbackController) {
+        super(context, attrs);
+        Resources res = context.getResources();
+        mDayPickerDescription = res.getString(R.string.day_picker_description);
+        mSelectDay = res.getString(R.string.select_day);
+        mYearPickerDescription = res.getString(R.string.year_picker_description);
+        mSelectYear = res.getString(R.string.select_year);
+        mHapticFeedbackController = hapticFeedbackController != null
+                ? hapticFeedbackController : new HapticFeedbackController(context);
+    }
+
+    @Override
+    protected void onFinishInflate() {
+        super.onFinishInflate();
+        setUpViews();
+    }
+
+    /**
+     * Binds the header and the animator, inflating the default content first if this view was
+     * created without any children.
+     */
+    private void setUpViews() {
+        if (getChildCount() == 0) {
+            setOrientation(VERTICAL);
+            setGravity(Gravity.CENTER);
+            setBackgroundResource(R.color.date_picker_view_animator);
+            LayoutInflater.from(getContext()).inflate(R.layout.date_picker_view, this, true);
+        }
+
+        mDayOfWeekView = (TextView) findViewById(R.id.date_picker_header);
+        mMonthAndDayView = (LinearLayout) findViewById(R.id.date_picker_month_and_day);
+        mMonthAndDayView.setOnClickListener(this);
+        mSelectedMonthTextView = (TextView) findViewById(R.id.date_picker_month);
+        mSelectedDayTextView = (TextView) findViewById(R.id.date_picker_day);
+        mYearView = (TextView) findViewById(R.id.date_picker_year);
+        mYearView.setOnClickListener(this);
+
+        mAnimator = (AccessibleDateAnimator) findViewById(R.id.animator);
+        mAnimator.setDateMillis(mCalendar.getTimeInMillis());
+        // TODO: Replace with animation decided upon by the design team.
+        Animation animation = new AlphaAnimation(0.0f, 1.0f);
+        animation.setDuration(ANIMATION_DURATION);
+        mAnimator.setInAnimation(animation);
+        // TODO: Replace with animation decided upon by the design team.
+        Animation animation2 = new AlphaAnimation(1.0f, 0.0f);
+        animation2.setDuration(ANIMATION_DURATION);
+        mAnimator.setOutAnimation(animation2);
+
+        updateDisplay(false);
+        setCurrentView(MONTH_AND_DAY_VIEW);
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        mHapticFeedbackController.start();
+        if (mDayPickerView == null || mYearPickerView == null) {
+            getViewTreeObserver().addOnPreDrawListener(mDeferredViewInflater);
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        mHapticFeedbackController.stop();
+        getViewTreeObserver().removeOnPreDrawListener(mDeferredViewInflater);
+        Looper.myQueue().removeIdleHandler(mDeferredViewInflater);
+        // Deliver any pending change now rather than leaving the pickers stale until reattached.
+        flushPendingDateChange();
+    }
+
+    @Override
+    protected Parcelable onSaveInstanceState() {
+        SavedState state = new SavedState(super.onSaveInstanceState());
+        state.selectedDate = SavedState.packDate(mCalendar);
+        state.minDate = SavedState.packDate(mMinDate);
+        state.maxDate = SavedState.packDate(mMaxDate);
+        state.dateConstraints = mDateConstraints;
+        state.minYear = mMinYear;
+        state.maxYear = mMaxYear;
+        state.weekStart = mWeekStart;
+        state.currentView = mCurrentView;
+        state.listPosition = -1;
+        if (mCurrentView == MONTH_AND_DAY_VIEW) {
+            state.listPosition = mDayPickerView.getMostVisiblePosition();
+        } else if (mCurrentView == YEAR_VIEW) {
+            state.listPosition = mYearPickerView.getFirstVisiblePosition();
+            state.listPositionOffset = mYearPickerView.getFirstPositionOffset();
+        }
+        return state;
+    }
+
+    @Override
+    protected void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof SavedState)) {
+            super.onRestoreInstanceState(state);
+            return;
+        }
+        SavedState ss = (SavedState) state;
+        super.onRestoreInstanceState(ss.getSuperState());
+
+        mCalendar.set(Calendar.YEAR, SavedState.unpackYear(ss.selectedDate));
+        mCalendar.set(Calendar.MONTH, SavedState.unpackMonth(ss.selectedDate));
+        mCalendar.set(Calendar.DAY_OF_MONTH, SavedState.unpackDay(ss.selectedDate));
+        mMinDate = SavedState.unpackCalendar(ss.minDate);
+        mMaxDate = SavedState.unpackCalendar(ss.maxDate);
+        mDateConstraints = ss.dateConstraints;
+        updateEffectiveDateConstraints();
+        mMinYear = ss.minYear;
+        mMaxYear = ss.maxYear;
+        mWeekStart = ss.weekStart;
+
+        if (mDayPickerView != null) {
+            mDayPickerView.onChange();
+        }
+        updatePickers();
+        updateDisplay(false);
+        setCurrentView(ss.currentView);
+        // The restored list positions must be applied after the pickers have scrolled to the
+        // selected date.
+        flushPendingDateChange();
+
+        if (ss.listPosition != -1) {
+            if (ss.currentView == MONTH_AND_DAY_VIEW) {
+                mDayPickerView.postSetSelection(ss.listPosition);
+            } else if (ss.currentView == YEAR_VIEW) {
+                mYearPickerView.postSetSelectionFromTop(ss.listPosition, ss.listPositionOffset);
+            }
+        }
+    }
+
+    /**
+     * Creates the month and day list on first use. The animator keeps it as its first child no
+     * matter which picker was built first.
+     */
+    private void ensureDayPickerView() {
+        if (mDayPickerView == null) {
+            mDayPickerView = new SimpleDayPickerView(getContext(), this);
+            mAnimator.addView(mDayPickerView, 0);
+        }
+    }
+
+    /**
+     * Creates the year list on first use. Most users never open it, so it is not built until it
+     * is shown or the view has gone idle after its first frame.
+     */
+    private void ensureYearPickerView() {
+        if (mYearPickerView == null) {
+            mYearPickerView = new YearPickerView(getContext(), this);
+            mAnimator.addView(mYearPickerView);
+        }
+    }
+
+    private void setCurrentView(final int viewIndex) {
+        long millis = mCalendar.getTimeInMillis();
+
+        switch (viewIndex) {
+            case MONTH_AND_DAY_VIEW:
+                ObjectAnimator pulseAnimator = Utils.getPulseAnimator(mMonthAndDayView, 0.9f,
+                        1.05f);
+                if (mDelayAnimation) {
+                    pulseAnimator.setStartDelay(ANIMATION_DELAY);
+                    mDelayAnimation = false;
+                }
+                ensureDayPickerView();
+                updatePickers();
+                if (mCurrentView != viewIndex) {
+                    mMonthAndDayView.setSelected(true);
+                    mYearView.setSelected(false);
+                    mAnimator.setDisplayedChild(mAnimator.indexOfChild(mDayPickerView));
+                    mCurrentView = viewIndex;
+                }
+                pulseAnimator.start();
+
+                int flags = DateUtils.FORMAT_SHOW_DATE;
+                String dayString = DateUtils.formatDateTime(getContext(), millis, flags);
+                mAnimator.setContentDescription(mDayPickerDescription+": "+dayString);
+                Utils.tryAccessibilityAnnounce(mAnimator, mSelectDay);
+                break;
+            case YEAR_VIEW:
+                pulseAnimator = Utils.getPulseAnimator(mYearView, 0.85f, 1.1f);
+                if (mDelayAnimation) {
+                    pulseAnimator.setStartDelay(ANIMATION_DELAY);
+                    mDelayAnimation = false;
+                }
+                ensureYearPickerView();
+                updatePickers();
+                if (mCurrentView != viewIndex) {
+                    mMonthAndDayView.setSelected(false);
+                    mYearView.setSelected(true);
+                    mAnimator.setDisplayedChild(mAnimator.indexOfChild(mYearPickerView));
+                    mCurrentView = viewIndex;
+                }
+                pulseAnimator.start();
+
+                CharSequence yearString =
+                        DateStrings.getInstance().getYear(mCalendar.get(Calendar.YEAR));
+                mAnimator.setContentDescription(mYearPickerDescription+": "+yearString);
+                Utils.tryAccessibilityAnnounce(mAnimator, mSelectYear);
+                break;
+        }
+    }
+
+    private void updateDisplay(boolean announce) {
+        DateStrings strings = DateStrings.getInstance();
+        if (mDayOfWeekView != null) {
+            mDayOfWeekView.setText(strings.getWeekday(mCalendar.get(Calendar.DAY_OF_WEEK)));
+        }
+
+        mSelectedMonthTextView.setText(strings.getShortMonth(mCalendar.get(Calendar.MONTH)));
+        mSelectedDayTextView.setText(
+                strings.getPaddedDayNumber(mCalendar.get(Calendar.DAY_OF_MONTH)));
+        mYearView.setText(strings.getYear(mCalendar.get(Calendar.YEAR)));
+
+        // Accessibility.
+        long millis = mCalendar.getTimeInMillis();
+        mAnimator.setDateMillis(millis);
+        int flags = DateUtils.FORMAT_SHOW_DATE | DateUtils.FORMAT_NO_YEAR;
+        String monthAndDayText = DateUtils.formatDateTime(getContext(), millis, flags);
+        mMonthAndDayView.setContentDescription(monthAndDayText);
+
+        if (announce) {
+            flags = DateUtils.FORMAT_SHOW_DATE | DateUtils.FORMAT_SHOW_YEAR;
+            String fullDateText = DateUtils.formatDateTime(getContext(), millis, flags);
+            Utils.tryAccessibilityAnnounce(mAnimator, fullDateText);
+        }
+    }
+
+    /**
+     * Sets the selected date without notifying the {@link OnDateSelectedListener}.
+     */
+    public void setDate(int year, int monthOfYear, int dayOfMonth) {
+        mCalendar.set(Calendar.YEAR, year);
+        mCalendar.set(Calendar.MONTH, monthOfYear);
+        mCalendar.set(Calendar.DAY_OF_MONTH, dayOfMonth);
+        adjustDayIfDisabled();
+        updatePickers();
+        updateDisplay(false);
+    }
+
+    /**
+     * @return The selected year.
+     */
+    public int getYear() {
+        return mCalendar.get(Calendar.YEAR);
+    }
+
+    /**
+     * @return The selected month (0-11) for compatibility with {@link java.util.Calendar}.
+     */
+    public int getMonth() {
+        return mCalendar.get(Calendar.MONTH);
+    }
+
+    /**
+     * @return The selected day of the month.
+     */
+    public int getDayOfMonth() {
+        return mCalendar.get(Calendar.DAY_OF_MONTH);
+    }
+
+    public void setOnDateSelectedListener(OnDateSelectedListener listener) {
+        mOnDateSelectedListener = listener;
+    }
+
+    public void setFirstDayOfWeek(int startOfWeek) {
+        if (startOfWeek < Calendar.SUNDAY || startOfWeek > Calendar.SATURDAY) {
+            throw new IllegalArgumentException("Value must be between Calendar.SUNDAY and " +
+                    "Calendar.SATURDAY");
+        }
+        mWeekStart = startOfWeek;
+        if (mDayPickerView != null) {
+            mDayPickerView.onChange();
+        }
+    }
+
+    public void setYearRange(int startYear, int endYear) {
+        if (endYear <= startYear) {
+            throw new IllegalArgumentException("Year end must be larger than year start");
+        }
+        mMinYear = startYear;
+        mMaxYear = endYear;
+        if (mDayPickerView != null) {
+            mDayPickerView.onChange();
+        }
+    }
+
+    /**
+     * Sets the minimal date supported by this DatePicker. Dates before (but not including) the
+     * specified date will be disallowed from being selected.
+     * @param calendar a Calendar object set to the year, month, day desired as the mindate.
+     */
+    public void setMinDate(Calendar calendar) {
+        mMinDate = calendar;
+        updateEffectiveDateConstraints();
+
+        if (mDayPickerView != null) {
+            mDayPickerView.onChange();
+        }
+    }
+
+    /**
+     * @return The minimal date supported by this DatePicker. Null if it has not been set.
+     */
+    @Override
+    public Calendar getMinDate() {
+        return mMinDate;
+    }
+
+    /**
+     * Sets the minimal date supported by this DatePicker. Dates after (but not including) the
+     * specified date will be disallowed from being selected.
+     * @param calendar a Calendar object set to the year, month, day desired as the maxdate.
+     */
+    public void setMaxDate(Calendar calendar) {
+        mMaxDate = calendar;
+        updateEffectiveDateConstraints();
+
+        if (mDayPickerView != null) {
+            mDayPickerView.onChange();
+        }
+    }
+
+    /**
+     * @return The maximal date supported by this DatePicker. Null if it has not been set.
+     */
+    @Override
+    public Calendar getMaxDate() {
+        return mMaxDate;
+    }
+
+    /**
+     * Sets rules that disable dates in addition to the min and max date, such as weekends or
+     * holidays. Disabled dates are drawn like dates outside the min and max date and cannot be
+     * selected.
+     * @param constraints The rules, or null to allow every date between the min and max date.
+     */
+    public void setDateConstraints(DateConstraints constraints) {
+        mDateConstraints = constraints;
+        updateEffectiveDateConstraints();
+
+        if (mDayPickerView != null) {
+            mDayPickerView.onChange();
+        }
+    }
+
+    /**
+     * @return The rules set with {@link #setDateConstraints}. Null if they have not been set.
+     */
+    public DateConstraints getDateConstraints() {
+        return mDateConstraints;
+    }
+
+    @Override
+    public DateConstraints getEffectiveDateConstraints() {
+        return mEffectiveDateConstraints;
+    }
+
+    private void updateEffectiveDateConstraints() {
+        DateConstraints constraints = mDateConstraints != null
+                ? mDateConstraints : DateConstraints.NONE;
+        mEffectiveDateConstraints = constraints.withBounds(
+                mMinDate != null ? DateConstraints.getEpochDay(mMinDate) : Integer.MIN_VALUE,
+                mMaxDate != null ? DateConstraints.getEpochDay(mMaxDate) : Integer.MAX_VALUE);
+    }
+
+    // If the newly selected month / year does not contain the currently selected day number,
+    // change the selected day number to the last day of the selected month or year.
+    //      e.g. Switching from Mar to Apr when Mar 31 is selected -> Apr 30
+    //      e.g. Switching from 2012 to 2013 when Feb 29, 2012 is selected -> Feb 28, 2013
+    private void adjustDayInMonthIfNeeded(int month, int year) {
+        int day = mCalendar.get(Calendar.DAY_OF_MONTH);
+        int daysInMonth = Utils.getDaysInMonth(month, year);
+        if (day > daysInMonth) {
+            mCalendar.set(Calendar.DAY_OF_MONTH, daysInMonth);
+        }
+    }
+
+    // If the selected date may not be selected, e.g. after switching to a year in which the same
+    // day of the month is on a weekend, change it to the nearest date which may.
+    private void adjustDayIfDisabled() {
+        int epochDay = DateConstraints.getEpochDay(mCalendar);
+        int enabledDay = mEffectiveDateConstraints.getNearestEnabledDay(epochDay);
+        if (enabledDay != epochDay && enabledDay != DateConstraints.NO_DAY) {
+            mCalendar.add(Calendar.DAY_OF_MONTH, enabledDay - epochDay);
+        }
+    }
+
+    @Override
+    public void onClick(View v) {
+        tryVibrate();
+        if (v.getId() == R.id.date_picker_year) {
+            setCurrentView(YEAR_VIEW);
+        } else if (v.getId() == R.id.date_picker_month_and_day) {
+            setCurrentView(MONTH_AND_DAY_VIEW);
+        }
+    }
+
+    @Override
+    public void onYearSelected(int year) {
+        adjustDayInMonthIfNeeded(mCalendar.get(Calendar.MONTH), year);
+        mCalendar.set(Calendar.YEAR, year);
+        adjustDayIfDisabled();
+        updatePickers();
+        setCurrentView(MONTH_AND_DAY_VIEW);
+        updateDisplay(true);
+        notifyDateSelected();
+    }
+
+    @Override
+    public void onDayOfMonthSelected(int year, int month, int day) {
+        mCalendar.set(Calendar.YEAR, year);
+        mCalendar.set(Calendar.MONTH, month);
+        mCalendar.set(Calendar.DAY_OF_MONTH, day);
+        updatePickers();
+        updateDisplay(true);
+        notifyDateSelected();
+    }
+
+    private void notifyDateSelected() {
+        if (mOnDateSelectedListener != null) {
+            mOnDateSelectedListener.onDateSelected(this, mCalendar.get(Calendar.YEAR),
+                    mCalendar.get(Calendar.MONTH), mCalendar.get(Calendar.DAY_OF_MONTH));
+        }
+    }
+
+    /**
+     * Notifies the pickers of a change to the selected date or the shown picker. Changes made
+     * within one frame, such as selecting a year and switching back to the month list, are
+     * delivered as a single notification before the next frame is drawn.
+     */
+    private void updatePickers() {
+        if (mDateChangePending || mListeners.length == 0) {
+            return;
+        }
+        mDateChangePending = true;
+        ViewCompat.postOnAnimation(this, mDispatchDateChanged);
+    }
+
+    private void flushPendingDateChange() {
+        if (mDateChangePending) {
+            removeCallbacks(mDispatchDateChanged);
+            dispatchDateChanged();
+        }
+    }
+
+    private void dispatchDateChanged() {
+        mDateChangePending = false;
+        final OnDateChangedListener[] listeners = mListeners;
+        for (int i = 0; i < listeners.length; i++) {
+            listeners[i].onDateChanged();
+        }
+    }
+
+
+    @Override
+    public CalendarDay getSelectedDay() {
+        return new CalendarDay(mCalendar);
+    }
+
+    @Override
+    public int getMinYear() {
+        return mMinYear;
+    }
+
+    @Override
+    public int getMaxYear() {
+        return mMaxYear;
+    }
+
+    @Override
+    public int getFirstDayOfWeek() {
+        return mWeekStart;
+    }
+
+    /**
+     * Registers a listener for changes to the selected date. It is held until it is
+     * unregistered; registering it again has no effect.
+     */
+    @Override
+    public void registerOnDateChangedListener(OnDateChangedListener listener) {
+        final OnDateChangedListener[] listeners = mListeners;
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                return;
+            }
+        }
+        OnDateChangedListener[] newListeners = Arrays.copyOf(listeners, listeners.length + 1);
+        newListeners[listeners.length] = listener;
+        mListeners = newListeners;
+    }
+
+    @Override
+    public void unregisterOnDateChangedListener(OnDateChangedListener listener) {
+        final OnDateChangedListener[] listeners = mListeners;
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                OnDateChangedListener[] newListeners =
+                        new OnDateChangedListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, newListeners, 0, i);
+                System.arraycopy(listeners, i + 1, newListeners, i, listeners.length - i - 1);
+                mListeners = newListeners;
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void tryVibrate() {
+        mHapticFeedbackController.tryVibrate();
+    }
+
+    /**
+     * The state of the picker, written as a handful of ints. Dates are packed into a single int
+     * each, which keeps restoring after process death cheap and the saved state far below the
+     * size of a serialized {@link Calendar}. Any further selections should be packed the same
+     * way.
+     */
+    static class SavedState extends BaseSavedState {
+        // Stands in for a date that was not set, such as a missing min or max date.
+        private static final int NO_DATE = -1;
+
+        int selectedDate;
+        int minDate;
+        int maxDate;
+        int minYear;
+        int maxYear;
+        int weekStart;
+        int currentView;
+        int listPosition;
+        int listPositionOffset;
+        DateConstraints dateConstraints;
+
+        SavedState(Parcelable superState) {
+            super(superState);
+        }
+
+        private SavedState(Parcel in) {
+            super(in);
+            selectedDate = in.readInt();
+            minDate = in.readInt();
+            maxDate = in.readInt();
+            minYear = in.readInt();
+            maxYear = in.readInt();
+            weekStart = in.readInt();
+            currentView = in.readInt();
+            listPosition = in.readInt();
+            listPositionOffset = in.readInt();
+            if (in.readInt() != 0) {
+                dateConstraints = DateConstraints.CREATOR.createFromParcel(in);
+            }
+        }
+
+        @Override
+        public void writeToParcel(Parcel out, int flags) {
+            super.writeToParcel(out, flags);
+            out.writeInt(selectedDate);
+            out.writeInt(minDate);
+            out.writeInt(maxDate);
+            out.writeInt(minYear);
+            out.writeInt(maxYear);
+            out.writeInt(weekStart);
+            out.writeInt(currentView);
+            out.writeInt(listPosition);
+            out.writeInt(listPositionOffset);
+            if (dateConstraints != null) {
+                out.writeInt(1);
+                dateConstraints.writeToParcel(out, flags);
+            } else {
+                out.writeInt(0);
+            }
+        }
+
+        /**
+         * Packs the year, month and day of the calendar as {@code year << 9 | month << 5 | day},
+         * which orders packed dates the same way as the dates themselves.
+         */
+        static int packDate(Calendar calendar) {
+            if (calendar == null) {
+                return NO_DATE;
+            }
+            return (calendar.get(Calendar.YEAR) << 9) | (calendar.get(Calendar.MONTH) << 5)
+                    | calendar.get(Calendar.DAY_OF_MONTH);
+        }
+
+        static int unpackYear(int packedDate) {
+            return packedDate >> 9;
+        }
+
+        static int unpackMonth(int packedDate) {
+            return (packedDate >> 5) & 0xF;
+        }
+
+        static int unpackDay(int packedDate) {
+            return packedDate & 0x1F;
+        }
+
+        static Calendar unpackCalendar(int packedDate) {
+            if (packedDate == NO_DATE) {
+                return null;
+            }
+            Calendar calendar = Calendar.getInstance();
+            calendar.clear();
+            calendar.set(unpackYear(packedDate), unpackMonth(packedDate), unpackDay(packedDate));
+            return calendar;
+        }
+
+        public static final Parcelable.Creator<SavedState> CREATOR =
+                new Parcelable.Creator<SavedState>() {
+            @Override
+            public SavedState createFromParcel(Parcel in) {
+                return new SavedState(in);
+            }
+
+            @Override
+            public SavedState[] newArray(int size) {
+                return new SavedState[size];
+            }
+        };
+    }
+
+    /**
+     * Waits for the first frame to be drawn, then builds the picker that is not showing the next
+     * time the main looper runs out of work, so switching views later does not stall.
+     */
+    private class DeferredViewInflater implements OnPreDrawListener, IdleHandler {
+
+        @Override
+        public boolean onPreDraw() {
+            getViewTreeObserver().removeOnPreDrawListener(this);
+            Looper.myQueue().addIdleHandler(this);
+            return true;
+        }
+
+        @Override
+        public boolean queueIdle() {
+            ensureDayPickerView();
+            ensureYearPickerView();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.android.datetimepicker.date;
+
+import android.util.SparseArray;
+
+import java.text.DateFormatSymbols;
+import java.text.NumberFormat;
+import java.util.Calendar;
+import java.util.Locale;
+
+/**
+ * Locale-dependent labels and formatters used by the date picker, built once per locale rather
+ * than on every draw or date change. Replaces the static {@code SimpleDateFormat} instances,
+ * which were neither thread-safe nor aware of locale changes. Instances may be used from any
+ * thread, see {@link DatePickerDialog#prewarm(android.content.Context)}.
+ */
+final class DateStrings {
+
+    private static final int MAX_DAYS_IN_MONTH = 31;
+
+    private static volatile DateStrings sInstance;
+
+    private final Locale mLocale;
+    // Indexed by Calendar.SUNDAY through Calendar.SATURDAY. The month grid computes the day of
+    // the week modulo 7, so index 0 of the short names wraps around to Saturday.
+    private final String[] mShortWeekdays = new String[Calendar.SATURDAY + 1];
+    private final String[] mWeekdays = new String[Calendar.SATURDAY + 1];
+    // Indexed by Calendar.JANUARY through Calendar.DECEMBER.
+    private final String[] mShortMonths = new String[Calendar.DECEMBER + 1];
+    private final String[] mMonths = new String[Calendar.DECEMBER + 1];
+    // Indexed by the day of the month, 1 through 31.
+    private final String[] mDayNumbers = new String[MAX_DAYS_IN_MONTH + 1];
+    private final String[] mPaddedDayNumbers = new String[MAX_DAYS_IN_MONTH + 1];
+
+    // Formats years the way the "yyyy" date pattern does. NumberFormat is not thread-safe, so
+    // it is only used while holding the lock on mYears, which caches its results.
+    private final NumberFormat mYearFormat;
+    private final SparseArray<String> mYears = new SparseArray<String>();
+
+    /**
+     * @return The labels for the current default locale, rebuilding them if it has changed.
+     */
+    static DateStrings getInstance() {
+        final Locale locale = Locale.getDefault();
+        DateStrings instance = sInstance;
+        if (instance == null || !instance.mLocale.equals(locale)) {
+            instance = new DateStrings(locale);
+            sInstance = instance;
+        }
+        return instance;
+    }
+
+    private DateStrings(Locale locale) {
+        mLocale = locale;
+        DateFormatSymbols symbols = DateFormatSymbols.getInstance(locale);
+        String[] shortWeekdays = symbols.getShortWeekdays();
+        String[] weekdays = symbols.getWeekdays();
+        for (int i = Calendar.SUNDAY; i <= Calendar.SATURDAY; i++) {
+            mShortWeekdays[i] = shortWeekdays[i].toUpperCase(locale);
+            mWeekdays[i] = weekdays[i].toUpperCase(locale);
+        }
+        mShortWeekdays[0] = mShortWeekdays[Calendar.SATURDAY];
+
+        String[] shortMonths = symbols.getShortMonths();
+        String[] months = symbols.getMonths();
+        for (int i = Calendar.JANUARY; i <= Calendar.DECEMBER; i++) {
+            mShortMonths[i] = shortMonths[i].toUpperCase(locale);
+            mMonths[i] = months[i];
+        }
+
+        for (int day = 1; day <= MAX_DAYS_IN_MONTH; day++) {
+            mDayNumbers[day] = String.format(locale, "%d", day);
+            mPaddedDayNumbers[day] = String.format(locale, "%02d", day);
+        }
+
+        mYearFormat = NumberFormat.getIntegerInstance(locale);
+        mYearFormat.setGroupingUsed(false);
+        mYearFormat.setMinimumIntegerDigits(4);
+    }
+
+    /**
+     * @param dayOfWeek {@link Calendar#SUNDAY} through {@link Calendar#SATURDAY}.
+     * @return The upper-cased abbreviated name of the day.
+     */
+    String getShortWeekday(int dayOfWeek) {
+        return mShortWeekdays[dayOfWeek];
+    }
+
+    /**
+     * @param dayOfWeek {@link Calendar#SUNDAY} through {@link Calendar#SATURDAY}.
+     * @return The upper-cased full name of the day.
+     */
+    String getWeekday(int dayOfWeek) {
+        return mWeekdays[dayOfWeek];
+    }
+
+    /**
+     * @param month {@link Calendar#JANUARY} through {@link Calendar#DECEMBER}.
+     * @return The upper-cased abbreviated name of the month.
+     */
+    String getShortMonth(int month) {
+        return mShortMonths[month];
+    }
+
+    /**
+     * @param month {@link Calendar#JANUARY} through {@link Calendar#DECEMBER}.
+     * @return The full name of the month.
+     */
+    String getMonth(int month) {
+        return mMonths[month];
+    }
+
+    /**
+     * @param day The day of the month, 1 through 31.
+     * @return The day number as drawn in the month grid.
+     */
+    String getDayNumber(int day) {
+        return mDayNumbers[day];
+    }
+
+    /**
+     * @param day The day of the month, 1 through 31.
+     * @return The day number padded to two digits, as the "dd" date pattern formats it.
+     */
+    String getPaddedDayNumber(int day) {
+        return mPaddedDayNumbers[day];
+    }
+
+    /**
+     * @return The year as the "yyyy" date pattern formats it.
+     */
+    String getYear(int year) {
+        synchronized (mYears) {
+            String text = mYears.get(year);
+            if (text == null) {
+                text = mYearFormat.format(year);
+                mYears.put(year, text);
+            }
+            return text;
+        }
+    }
+
+    /**
+     * @return The full month name followed by the year, e.g. for announcing a month.
+     */
+    String getMonthAndYear(int month, int year) {
+        return mMonths[month] + " " + getYear(year);
+    }
+}
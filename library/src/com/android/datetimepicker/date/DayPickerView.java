@@ -35,9 +35,6 @@ import com.android.datetimepicker.Utils;
 import com.android.datetimepicker.date.DatePickerDialog.OnDateChangedListener;
 import com.android.datetimepicker.date.MonthAdapter.CalendarDay;
 
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
-import java.util.Locale;
 
 /**
  * This displays a list of months in a calendar format with selectable days.
@@ -62,7 +59,6 @@ abstract class DayPickerView extends ListView implements OnScrollListener,
     protected int mNumWeeks = 6;
     protected boolean mShowWeekNumber = false;
     protected int mDaysPerWeek = 7;
-    private static SimpleDateFormat YEAR_FORMAT = new SimpleDateFormat("yyyy", Locale.getDefault());
 
     // These affect the scroll speed and feel
     protected float mFriction = 1.0f;
@@ -103,6 +99,22 @@ abstract class DayPickerView extends ListView implements OnScrollListener,
         setController(controller);
     }
 
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        if (mController != null) {
+            mController.registerOnDateChangedListener(this);
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        if (mController != null) {
+            mController.unregisterOnDateChangedListener(this);
+        }
+    }
+
     public void setController(DatePickerController controller) {
         mController = controller;
         mController.registerOnDateChangedListener(this);
@@ -438,14 +450,7 @@ abstract class DayPickerView extends ListView implements OnScrollListener,
    }
 
     private static String getMonthAndYearString(CalendarDay day) {
-        Calendar cal = Calendar.getInstance();
-        cal.set(day.year, day.month, day.day);
-
-        StringBuffer sbuf = new StringBuffer();
-        sbuf.append(cal.getDisplayName(Calendar.MONTH, Calendar.LONG, Locale.getDefault()));
-        sbuf.append(" ");
-        sbuf.append(YEAR_FORMAT.format(cal.getTime()));
-        return sbuf.toString();
+        return DateStrings.getInstance().getMonthAndYear(day.month, day.year);
     }
 
     /**
@@ -28,7 +28,6 @@ import android.os.Bundle;
 import android.support.v4.view.ViewCompat;
 import android.support.v4.view.accessibility.AccessibilityNodeInfoCompat;
 import android.support.v4.widget.ExploreByTouchHelper;
-import android.text.format.DateFormat;
 import android.text.format.DateUtils;
 import android.text.format.Time;
 import android.util.AttributeSet;
@@ -38,6 +37,7 @@ import android.view.accessibility.AccessibilityEvent;
 import android.view.accessibility.AccessibilityNodeInfo;
 
 import com.android.datetimepicker.R;
+import com.android.datetimepicker.TypefaceCache;
 import com.android.datetimepicker.Utils;
 import com.android.datetimepicker.date.MonthAdapter.CalendarDay;
 
@@ -110,6 +110,7 @@ abstract class MonthView extends View {
     protected static final int MAX_NUM_ROWS = 6;
 
     private static final int SELECTED_CIRCLE_ALPHA = 60;
+    private static final int ALL_DAYS_ENABLED = 0x7FFFFFFF;
 
     protected static int DAY_SEPARATOR_WIDTH = 1;
     protected static int MINI_DAY_NUMBER_TEXT_SIZE;
@@ -137,6 +138,8 @@ abstract class MonthView extends View {
 
     private final Formatter mFormatter;
     private final StringBuilder mStringBuilder;
+    // The title drawn above the month, formatted once per month rather than per frame.
+    private String mMonthTitle;
 
     // The Julian day of the first day displayed by this item
     protected int mFirstJulianDay = -1;
@@ -170,7 +173,7 @@ abstract class MonthView extends View {
     protected int mSelectedRight = -1;
 
     private final Calendar mCalendar;
-    protected final Calendar mDayLabelCalendar;
+    protected DateStrings mDateStrings;
     private final MonthViewTouchHelper mTouchHelper;
 
     protected int mNumRows = DEFAULT_NUM_ROWS;
@@ -195,8 +198,8 @@ abstract class MonthView extends View {
         super(context, attr);
         Resources res = context.getResources();
 
-        mDayLabelCalendar = Calendar.getInstance();
         mCalendar = Calendar.getInstance();
+        mDateStrings = DateStrings.getInstance();
 
         mDayOfWeekTypeface = res.getString(R.string.day_of_week_label_typeface);
         mMonthTitleTypeface = res.getString(R.string.sans_serif);
@@ -230,6 +233,16 @@ abstract class MonthView extends View {
         initView();
     }
 
+    /**
+     * Loads the typefaces and labels shared by all month views, so that the first ones created
+     * on the UI thread find them cached. May be called from any thread.
+     */
+    static void prewarm(Resources res) {
+        TypefaceCache.get(res.getString(R.string.sans_serif), Typeface.BOLD);
+        TypefaceCache.get(res.getString(R.string.day_of_week_label_typeface), Typeface.NORMAL);
+        DateStrings.getInstance();
+    }
+
     public void setDatePickerController(DatePickerController controller) {
         mController = controller;
     }
@@ -282,7 +295,7 @@ abstract class MonthView extends View {
         mMonthTitlePaint.setFakeBoldText(true);
         mMonthTitlePaint.setAntiAlias(true);
         mMonthTitlePaint.setTextSize(MONTH_LABEL_TEXT_SIZE);
-        mMonthTitlePaint.setTypeface(Typeface.create(mMonthTitleTypeface, Typeface.BOLD));
+        mMonthTitlePaint.setTypeface(TypefaceCache.get(mMonthTitleTypeface, Typeface.BOLD));
         mMonthTitlePaint.setColor(mDayTextColor);
         mMonthTitlePaint.setTextAlign(Align.CENTER);
         mMonthTitlePaint.setStyle(Style.FILL);
@@ -306,7 +319,7 @@ abstract class MonthView extends View {
         mMonthDayLabelPaint.setAntiAlias(true);
         mMonthDayLabelPaint.setTextSize(MONTH_DAY_LABEL_TEXT_SIZE);
         mMonthDayLabelPaint.setColor(mDayTextColor);
-        mMonthDayLabelPaint.setTypeface(Typeface.create(mDayOfWeekTypeface, Typeface.NORMAL));
+        mMonthDayLabelPaint.setTypeface(TypefaceCache.get(mDayOfWeekTypeface, Typeface.NORMAL));
         mMonthDayLabelPaint.setStyle(Style.FILL);
         mMonthDayLabelPaint.setTextAlign(Align.CENTER);
         mMonthDayLabelPaint.setFakeBoldText(true);
@@ -328,6 +341,9 @@ abstract class MonthView extends View {
 
     private int mDayOfWeekStart = 0;
 
+    // Bit (day - 1) is set for each day of the displayed month that may be selected
+    private int mEnabledDays = ALL_DAYS_ENABLED;
+
     /**
      * Sets all the parameters for displaying this week. The only required
      * parameter is the week number. Other parameters have a default value and
@@ -357,6 +373,7 @@ abstract class MonthView extends View {
         // Allocate space for caching the day numbers and focus values
         mMonth = params.get(VIEW_PARAMS_MONTH);
         mYear = params.get(VIEW_PARAMS_YEAR);
+        mDateStrings = DateStrings.getInstance();
 
         // Figure out what day today is
         final Time today = new Time(Time.getCurrentTimezone());
@@ -384,6 +401,10 @@ abstract class MonthView extends View {
             }
         }
         mNumRows = calculateNumRows();
+        mMonthTitle = getMonthAndYearString();
+        mEnabledDays = mController != null
+                ? mController.getEffectiveDateConstraints().getEnabledDays(mYear, mMonth)
+                : ALL_DAYS_ENABLED;
 
         // Invalidate cached accessibility information.
         mTouchHelper.invalidateRoot();
@@ -450,9 +471,12 @@ abstract class MonthView extends View {
     }
 
     protected void drawMonthTitle(Canvas canvas) {
+        if (mMonthTitle == null) {
+            return;
+        }
         int x = (mWidth + 2 * mEdgePadding) / 2;
         int y = (getMonthHeaderSize() - MONTH_DAY_LABEL_TEXT_SIZE) / 2 + (MONTH_LABEL_TEXT_SIZE / 3);
-        canvas.drawText(getMonthAndYearString(), x, y, mMonthTitlePaint);
+        canvas.drawText(mMonthTitle, x, y, mMonthTitlePaint);
     }
 
     protected void drawMonthDayLabels(Canvas canvas) {
@@ -462,9 +486,7 @@ abstract class MonthView extends View {
         for (int i = 0; i < mNumDays; i++) {
             int calendarDay = (i + mWeekStart) % mNumDays;
             int x = (2 * i + 1) * dayWidthHalf + mEdgePadding;
-            mDayLabelCalendar.set(Calendar.DAY_OF_WEEK, calendarDay);
-            canvas.drawText(mDayLabelCalendar.getDisplayName(Calendar.DAY_OF_WEEK, Calendar.SHORT,
-                    Locale.getDefault()).toUpperCase(Locale.getDefault()), x, y,
+            canvas.drawText(mDateStrings.getShortWeekday(calendarDay), x, y,
                     mMonthDayLabelPaint);
         }
     }
@@ -583,74 +605,18 @@ abstract class MonthView extends View {
     }
 
     /**
-     * @return true if the specified year/month/day are within the range set by minDate and maxDate.
-     * If one or either have not been set, they are considered as Integer.MIN_VALUE and
-     * Integer.MAX_VALUE.
+     * @return true if the specified year/month/day may not be selected, either because it is
+     * outside the range set by minDate and maxDate or because the controller's
+     * {@link DateConstraints} disable it.
      */
     protected boolean isOutOfRange(int year, int month, int day) {
-        if (isBeforeMin(year, month, day)) {
-            return true;
-        } else if (isAfterMax(year, month, day)) {
-            return true;
-        }
-
-        return false;
-    }
-
-    private boolean isBeforeMin(int year, int month, int day) {
-        if (mController == null) {
-            return false;
-        }
-        Calendar minDate = mController.getMinDate();
-        if (minDate == null) {
-            return false;
-        }
-
-        if (year < minDate.get(Calendar.YEAR)) {
-            return true;
-        } else if (year > minDate.get(Calendar.YEAR)) {
-            return false;
-        }
-
-        if (month < minDate.get(Calendar.MONTH)) {
-            return true;
-        } else if (month > minDate.get(Calendar.MONTH)) {
-            return false;
-        }
-
-        if (day < minDate.get(Calendar.DAY_OF_MONTH)) {
-            return true;
-        } else {
-            return false;
+        if (year == mYear && month == mMonth) {
+            return (mEnabledDays & (1 << (day - 1))) == 0;
         }
-    }
-
-    private boolean isAfterMax(int year, int month, int day) {
         if (mController == null) {
             return false;
         }
-        Calendar maxDate = mController.getMaxDate();
-        if (maxDate == null) {
-            return false;
-        }
-
-        if (year > maxDate.get(Calendar.YEAR)) {
-            return true;
-        } else if (year < maxDate.get(Calendar.YEAR)) {
-            return false;
-        }
-
-        if (month > maxDate.get(Calendar.MONTH)) {
-            return true;
-        } else if (month < maxDate.get(Calendar.MONTH)) {
-            return false;
-        }
-
-        if (day > maxDate.get(Calendar.DAY_OF_MONTH)) {
-            return true;
-        } else {
-            return false;
-        }
+        return !mController.getEffectiveDateConstraints().isEnabled(year, month, day);
     }
 
     /**
@@ -693,10 +659,7 @@ abstract class MonthView extends View {
      * service.
      */
     protected class MonthViewTouchHelper extends ExploreByTouchHelper {
-        private static final String DATE_FORMAT = "dd MMMM yyyy";
-
         private final Rect mTempRect = new Rect();
-        private final Calendar mTempCalendar = Calendar.getInstance();
 
         public MonthViewTouchHelper(View host) {
             super(host);
@@ -794,9 +757,8 @@ abstract class MonthView extends View {
          * @return A description of the time object
          */
         protected CharSequence getItemDescription(int day) {
-            mTempCalendar.set(mYear, mMonth, day);
-            final CharSequence date = DateFormat.format(DATE_FORMAT,
-                    mTempCalendar.getTimeInMillis());
+            final CharSequence date = mDateStrings.getPaddedDayNumber(day) + " "
+                    + mDateStrings.getMonthAndYear(mMonth, mYear);
 
             if (day == mSelectedDay) {
                 return getContext().getString(R.string.item_is_selected, date);
@@ -43,6 +43,6 @@ class SimpleMonthView extends MonthView {
         } else {
             mMonthNumPaint.setColor(mDayTextColor);
         }
-        canvas.drawText(String.format("%d", day), x, y, mMonthNumPaint);
+        canvas.drawText(mDateStrings.getDayNumber(day), x, y, mMonthNumPaint);
     }
 }
@@ -19,21 +19,18 @@ package com.android.datetimepicker.date;
 import android.content.Context;
 import android.content.res.Resources;
 import android.graphics.drawable.StateListDrawable;
+import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.accessibility.AccessibilityEvent;
 import android.widget.AdapterView;
 import android.widget.AdapterView.OnItemClickListener;
-import android.widget.ArrayAdapter;
+import android.widget.BaseAdapter;
 import android.widget.ListView;
-import android.widget.TextView;
 
 import com.android.datetimepicker.R;
 import com.android.datetimepicker.date.DatePickerDialog.OnDateChangedListener;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * Displays a selectable list of years.
  */
@@ -61,22 +58,14 @@ class YearPickerView extends ListView implements OnItemClickListener, OnDateChan
         mChildSize = res.getDimensionPixelOffset(R.dimen.year_label_height);
         setVerticalFadingEdgeEnabled(false);
         setFadingEdgeLength(mChildSize / 3);
-        init(context);
+        mAdapter = new YearAdapter(context);
+        setAdapter(mAdapter);
         setOnItemClickListener(this);
         setSelector(new StateListDrawable());
         setDividerHeight(0);
         onDateChanged();
     }
 
-    private void init(Context context) {
-        ArrayList<String> years = new ArrayList<String>();
-        for (int year = mController.getMinYear(); year <= mController.getMaxYear(); year++) {
-            years.add(String.format("%d", year));
-        }
-        mAdapter = new YearAdapter(context, R.layout.year_label_text_view, years);
-        setAdapter(mAdapter);
-    }
-
     @Override
     public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
         mController.tryVibrate();
@@ -91,27 +80,54 @@ class YearPickerView extends ListView implements OnItemClickListener, OnDateChan
                 clickedView.requestLayout();
                 mSelectedView = clickedView;
             }
-            mController.onYearSelected(getYearFromTextView(clickedView));
+            mController.onYearSelected(mAdapter.getYear(position));
             mAdapter.notifyDataSetChanged();
         }
     }
 
-    private static int getYearFromTextView(TextView view) {
-        return Integer.parseInt(view.getText().toString());
-    }
+    /**
+     * Backs the list with the year range itself; labels are only formatted for the rows that are
+     * actually bound.
+     */
+    private class YearAdapter extends BaseAdapter {
+
+        private final LayoutInflater mInflater;
+
+        public YearAdapter(Context context) {
+            mInflater = LayoutInflater.from(context);
+        }
+
+        @Override
+        public int getCount() {
+            return mController.getMaxYear() - mController.getMinYear() + 1;
+        }
 
-    private class YearAdapter extends ArrayAdapter<String> {
+        @Override
+        public Object getItem(int position) {
+            return getYear(position);
+        }
 
-        public YearAdapter(Context context, int resource, List<String> objects) {
-            super(context, resource, objects);
+        @Override
+        public long getItemId(int position) {
+            return position;
+        }
+
+        public int getYear(int position) {
+            return mController.getMinYear() + position;
         }
 
         @Override
         public View getView(int position, View convertView, ViewGroup parent) {
-            TextViewWithCircularIndicator v = (TextViewWithCircularIndicator)
-                    super.getView(position, convertView, parent);
+            TextViewWithCircularIndicator v;
+            if (convertView != null) {
+                v = (TextViewWithCircularIndicator) convertView;
+            } else {
+                v = (TextViewWithCircularIndicator) mInflater.inflate(
+                        R.layout.year_label_text_view, parent, false);
+            }
+            int year = getYear(position);
+            v.setText(String.format("%d", year));
             v.requestLayout();
-            int year = getYearFromTextView(v);
             boolean selected = mController.getSelectedDay().year == year;
             v.drawIndicator(selected);
             if (selected) {
@@ -144,6 +160,18 @@ class YearPickerView extends ListView implements OnItemClickListener, OnDateChan
         return firstChild.getTop();
     }
 
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        mController.registerOnDateChangedListener(this);
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        mController.unregisterOnDateChangedListener(this);
+    }
+
     @Override
     public void onDateChanged() {
         mAdapter.notifyDataSetChanged();
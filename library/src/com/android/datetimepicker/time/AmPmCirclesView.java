@@ -20,20 +20,17 @@ import android.content.Context;
 import android.content.res.Resources;
 import android.graphics.Canvas;
 import android.graphics.Paint;
-import android.graphics.Typeface;
 import android.graphics.Paint.Align;
 import android.util.Log;
-import android.view.View;
 
 import com.android.datetimepicker.R;
 import com.android.datetimepicker.Utils;
 
-import java.text.DateFormatSymbols;
 
 /**
  * Draw the two smaller AM and PM circles next to where the larger circle will be.
  */
-class AmPmCirclesView extends View {
+class AmPmCirclesView extends RadialLayer {
     private static final String TAG = "AmPmCirclesView";
 
     // Alpha level for selected circle.
@@ -45,8 +42,6 @@ class AmPmCirclesView extends View {
     private int mUnselectedColor;
     private int mAmPmTextColor;
     private int mSelectedColor;
-    private float mCircleRadiusMultiplier;
-    private float mAmPmCircleRadiusMultiplier;
     private String mAmText;
     private String mPmText;
     private boolean mIsInitialized;
@@ -54,16 +49,12 @@ class AmPmCirclesView extends View {
     private static final int AM = TimePickerDialog.AM;
     private static final int PM = TimePickerDialog.PM;
 
-    private boolean mDrawValuesReady;
-    private int mAmPmCircleRadius;
-    private int mAmXCenter;
-    private int mPmXCenter;
-    private int mAmPmYCenter;
+    private boolean mTextSizeDirty;
     private int mAmOrPm;
     private int mAmOrPmPressed;
 
-    public AmPmCirclesView(Context context) {
-        super(context);
+    public AmPmCirclesView(RadialDialView host) {
+        super(host);
         mIsInitialized = false;
     }
 
@@ -78,23 +69,18 @@ class AmPmCirclesView extends View {
         mSelectedColor = res.getColor(R.color.blue);
         mAmPmTextColor = res.getColor(R.color.ampm_text_color);
         mSelectedAlpha = SELECTED_ALPHA;
-        String typefaceFamily = res.getString(R.string.sans_serif);
-        Typeface tf = Typeface.create(typefaceFamily, Typeface.NORMAL);
-        mPaint.setTypeface(tf);
+        RadialResources radialRes = RadialResources.getInstance(res);
+        mPaint.setTypeface(radialRes.regularTypeface);
         mPaint.setAntiAlias(true);
         mPaint.setTextAlign(Align.CENTER);
 
-        mCircleRadiusMultiplier =
-                Float.parseFloat(res.getString(R.string.circle_radius_multiplier));
-        mAmPmCircleRadiusMultiplier =
-                Float.parseFloat(res.getString(R.string.ampm_circle_radius_multiplier));
-        String[] amPmTexts = new DateFormatSymbols().getAmPmStrings();
-        mAmText = amPmTexts[0];
-        mPmText = amPmTexts[1];
+        mAmText = radialRes.amText;
+        mPmText = radialRes.pmText;
 
         setAmOrPm(amOrPm);
         mAmOrPmPressed = -1;
 
+        mTextSizeDirty = true;
         mIsInitialized = true;
     }
 
@@ -111,6 +97,7 @@ class AmPmCirclesView extends View {
             mAmPmTextColor = res.getColor(R.color.ampm_text_color);
             mSelectedAlpha = SELECTED_ALPHA;
         }
+        invalidate();
     }
 
     public void setAmOrPm(int amOrPm) {
@@ -125,21 +112,25 @@ class AmPmCirclesView extends View {
      * Calculate whether the coordinates are touching the AM or PM circle.
      */
     public int getIsTouchingAmOrPm(float xCoord, float yCoord) {
-        if (!mDrawValuesReady) {
+        RadialGeometry geometry = getGeometry();
+        if (geometry == null || !mIsInitialized) {
             return -1;
         }
+        int amXCenter = geometry.amXCenter;
+        int pmXCenter = geometry.pmXCenter;
+        int amPmYCenter = geometry.amPmYCenter;
 
-        int squaredYDistance = (int) ((yCoord - mAmPmYCenter)*(yCoord - mAmPmYCenter));
+        int squaredYDistance = (int) ((yCoord - amPmYCenter)*(yCoord - amPmYCenter));
 
         int distanceToAmCenter =
-                (int) Math.sqrt((xCoord - mAmXCenter)*(xCoord - mAmXCenter) + squaredYDistance);
-        if (distanceToAmCenter <= mAmPmCircleRadius) {
+                (int) Math.sqrt((xCoord - amXCenter)*(xCoord - amXCenter) + squaredYDistance);
+        if (distanceToAmCenter <= geometry.amPmCircleRadius) {
             return AM;
         }
 
         int distanceToPmCenter =
-                (int) Math.sqrt((xCoord - mPmXCenter)*(xCoord - mPmXCenter) + squaredYDistance);
-        if (distanceToPmCenter <= mAmPmCircleRadius) {
+                (int) Math.sqrt((xCoord - pmXCenter)*(xCoord - pmXCenter) + squaredYDistance);
+        if (distanceToPmCenter <= geometry.amPmCircleRadius) {
             return PM;
         }
 
@@ -148,29 +139,24 @@ class AmPmCirclesView extends View {
     }
 
     @Override
-    public void onDraw(Canvas canvas) {
-        int viewWidth = getWidth();
-        if (viewWidth == 0 || !mIsInitialized) {
+    void onGeometryChanged() {
+        mTextSizeDirty = true;
+    }
+
+    @Override
+    void draw(Canvas canvas) {
+        RadialGeometry geometry = getGeometry();
+        if (geometry == null || !mIsInitialized) {
             return;
         }
-
-        if (!mDrawValuesReady) {
-            int layoutXCenter = getWidth() / 2;
-            int layoutYCenter = getHeight() / 2;
-            int circleRadius =
-                    (int) (Math.min(layoutXCenter, layoutYCenter) * mCircleRadiusMultiplier);
-            mAmPmCircleRadius = (int) (circleRadius * mAmPmCircleRadiusMultiplier);
-            int textSize = mAmPmCircleRadius * 3 / 4;
-            mPaint.setTextSize(textSize);
-
-            // Line up the vertical center of the AM/PM circles with the bottom of the main circle.
-            mAmPmYCenter = layoutYCenter - mAmPmCircleRadius / 2 + circleRadius;
-            // Line up the horizontal edges of the AM/PM circles with the horizontal edges
-            // of the main circle.
-            mAmXCenter = layoutXCenter - circleRadius + mAmPmCircleRadius;
-            mPmXCenter = layoutXCenter + circleRadius - mAmPmCircleRadius;
-
-            mDrawValuesReady = true;
+        int amPmCircleRadius = geometry.amPmCircleRadius;
+        int amXCenter = geometry.amXCenter;
+        int pmXCenter = geometry.pmXCenter;
+        int amPmYCenter = geometry.amPmYCenter;
+
+        if (mTextSizeDirty) {
+            mPaint.setTextSize(amPmCircleRadius * 3 / 4);
+            mTextSizeDirty = false;
         }
 
         // We'll need to draw either a lighter blue (for selection), a darker blue (for touching)
@@ -196,16 +182,17 @@ class AmPmCirclesView extends View {
 
         // Draw the two circles.
         mPaint.setColor(amColor);
-        mPaint.setAlpha(amAlpha);
-        canvas.drawCircle(mAmXCenter, mAmPmYCenter, mAmPmCircleRadius, mPaint);
+        mPaint.setAlpha(fade(amAlpha));
+        canvas.drawCircle(amXCenter, amPmYCenter, amPmCircleRadius, mPaint);
         mPaint.setColor(pmColor);
-        mPaint.setAlpha(pmAlpha);
-        canvas.drawCircle(mPmXCenter, mAmPmYCenter, mAmPmCircleRadius, mPaint);
+        mPaint.setAlpha(fade(pmAlpha));
+        canvas.drawCircle(pmXCenter, amPmYCenter, amPmCircleRadius, mPaint);
 
         // Draw the AM/PM texts on top.
         mPaint.setColor(mAmPmTextColor);
-        int textYCenter = mAmPmYCenter - (int) (mPaint.descent() + mPaint.ascent()) / 2;
-        canvas.drawText(mAmText, mAmXCenter, textYCenter, mPaint);
-        canvas.drawText(mPmText, mPmXCenter, textYCenter, mPaint);
+        mPaint.setAlpha(fade(mPaint.getAlpha()));
+        int textYCenter = amPmYCenter - (int) (mPaint.descent() + mPaint.ascent()) / 2;
+        canvas.drawText(mAmText, amXCenter, textYCenter, mPaint);
+        canvas.drawText(mPmText, pmXCenter, textYCenter, mPaint);
     }
 }
@@ -21,33 +21,24 @@ import android.content.res.Resources;
 import android.graphics.Canvas;
 import android.graphics.Paint;
 import android.util.Log;
-import android.view.View;
 
 import com.android.datetimepicker.R;
 
 /**
  * Draws a simple white circle on which the numbers will be drawn.
  */
-class CircleView extends View {
+class CircleView extends RadialLayer {
     private static final String TAG = "CircleView";
 
     private final Paint mPaint = new Paint();
-    private boolean mIs24HourMode;
     private int mCircleColor;
     private int mDotColor;
-    private float mCircleRadiusMultiplier;
-    private float mAmPmCircleRadiusMultiplier;
     private boolean mIsInitialized;
 
-    private boolean mDrawValuesReady;
-    private int mXCenter;
-    private int mYCenter;
-    private int mCircleRadius;
+    public CircleView(RadialDialView host) {
+        super(host);
 
-    public CircleView(Context context) {
-        super(context);
-
-        Resources res = context.getResources();
+        Resources res = host.getResources();
         mCircleColor = res.getColor(android.R.color.white);
         mDotColor = res.getColor(R.color.numbers_text_color);
         mPaint.setAntiAlias(true);
@@ -55,24 +46,12 @@ class CircleView extends View {
         mIsInitialized = false;
     }
 
-    public void initialize(Context context, boolean is24HourMode) {
+    public void initialize() {
         if (mIsInitialized) {
             Log.e(TAG, "CircleView may only be initialized once.");
             return;
         }
 
-        Resources res = context.getResources();
-        mIs24HourMode = is24HourMode;
-        if (is24HourMode) {
-            mCircleRadiusMultiplier = Float.parseFloat(
-                    res.getString(R.string.circle_radius_multiplier_24HourMode));
-        } else {
-            mCircleRadiusMultiplier = Float.parseFloat(
-                    res.getString(R.string.circle_radius_multiplier));
-            mAmPmCircleRadiusMultiplier =
-                    Float.parseFloat(res.getString(R.string.ampm_circle_radius_multiplier));
-        }
-
         mIsInitialized = true;
     }
 
@@ -85,38 +64,25 @@ class CircleView extends View {
             mCircleColor = res.getColor(android.R.color.white);
             mDotColor = res.getColor(R.color.numbers_text_color);
         }
+        invalidate();
     }
 
 
     @Override
-    public void onDraw(Canvas canvas) {
-        int viewWidth = getWidth();
-        if (viewWidth == 0 || !mIsInitialized) {
+    void draw(Canvas canvas) {
+        RadialGeometry geometry = getGeometry();
+        if (geometry == null || !mIsInitialized) {
             return;
         }
 
-        if (!mDrawValuesReady) {
-            mXCenter = getWidth() / 2;
-            mYCenter = getHeight() / 2;
-            mCircleRadius = (int) (Math.min(mXCenter, mYCenter) * mCircleRadiusMultiplier);
-
-            if (!mIs24HourMode) {
-                // We'll need to draw the AM/PM circles, so the main circle will need to have
-                // a slightly higher center. To keep the entire view centered vertically, we'll
-                // have to push it up by half the radius of the AM/PM circles.
-                int amPmCircleRadius = (int) (mCircleRadius * mAmPmCircleRadiusMultiplier);
-                mYCenter -= amPmCircleRadius / 2;
-            }
-
-            mDrawValuesReady = true;
-        }
-
         // Draw the white circle.
         mPaint.setColor(mCircleColor);
-        canvas.drawCircle(mXCenter, mYCenter, mCircleRadius, mPaint);
+        mPaint.setAlpha(fade(mPaint.getAlpha()));
+        canvas.drawCircle(geometry.xCenter, geometry.yCenter, geometry.circleRadius, mPaint);
 
         // Draw a small black circle in the center.
         mPaint.setColor(mDotColor);
-        canvas.drawCircle(mXCenter, mYCenter, 2, mPaint);
+        mPaint.setAlpha(fade(mPaint.getAlpha()));
+        canvas.drawCircle(geometry.xCenter, geometry.yCenter, 2, mPaint);
     }
 }
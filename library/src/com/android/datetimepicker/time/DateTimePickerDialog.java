@@ -0,0 +1,327 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.datetimepicker.time;
+
+import android.content.Context;
+import android.content.DialogInterface;
+import android.os.Bundle;
+import android.view.KeyEvent;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.View.OnClickListener;
+import android.view.ViewGroup;
+import android.view.animation.AlphaAnimation;
+import android.view.animation.Animation;
+import android.widget.Button;
+import android.widget.LinearLayout;
+import android.widget.ViewAnimator;
+
+import com.android.datetimepicker.R;
+import com.android.datetimepicker.date.DateConstraints;
+import com.android.datetimepicker.date.DatePickerDialog;
+import com.android.datetimepicker.date.DatePickerView;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * Dialog to set a date and a time, one after the other, in a single window. The date page and
+ * the time page are built once, when the dialog is created, and share the dialog's haptic
+ * feedback controller as well as the typefaces and labels cached for all pickers.
+ *
+ * @deprecated Use {@link android.app.DatePickerDialog} and {@link android.app.TimePickerDialog}.
+ */
+@Deprecated
+public class DateTimePickerDialog extends TimePickerDialog {
+
+    private static final String KEY_CURRENT_PAGE = "current_page";
+    private static final String KEY_YEAR = "year";
+    private static final String KEY_MONTH = "month";
+    private static final String KEY_DAY = "day";
+
+    private static final int DATE_PAGE = 0;
+    private static final int TIME_PAGE = 1;
+
+    private static final int ANIMATION_DURATION = 300;
+
+    private final Calendar mCalendar = Calendar.getInstance();
+    private OnDateTimeSetListener mDateTimeCallback;
+
+    private ViewAnimator mAnimator;
+    private DatePickerView mDatePickerView;
+    private int mCurrentPage = DATE_PAGE;
+
+    private int mWeekStart = mCalendar.getFirstDayOfWeek();
+    private int mMinYear = -1;
+    private int mMaxYear = -1;
+    private Calendar mMinDate;
+    private Calendar mMaxDate;
+    private DateConstraints mDateConstraints;
+    private TimeZone mTimeZone;
+
+    /**
+     * The callback used to indicate the user is done filling in the date and the time.
+     */
+    public interface OnDateTimeSetListener {
+
+        /**
+         * @param dialog The dialog associated with this listener.
+         * @param timeInMillis The instant that was set, in milliseconds since the epoch. A local
+         * time which happens twice on the date is taken the first time.
+         */
+        void onDateTimeSet(DateTimePickerDialog dialog, long timeInMillis);
+    }
+
+    public DateTimePickerDialog() {
+        // Empty constructor required for dialog fragment.
+    }
+
+    /**
+     * @param callback How the parent is notified that the date and time are set.
+     * @param monthOfYear The initial month of the dialog (0-11).
+     */
+    public static DateTimePickerDialog newInstance(OnDateTimeSetListener callback, int year,
+            int monthOfYear, int dayOfMonth, int hourOfDay, int minute, boolean is24HourMode) {
+        DateTimePickerDialog ret = new DateTimePickerDialog();
+        ret.initialize(callback, year, monthOfYear, dayOfMonth, hourOfDay, minute, is24HourMode);
+        return ret;
+    }
+
+    /**
+     * Builds the typefaces and locale-dependent labels used by both pages on a background
+     * thread. Safe to call more than once.
+     */
+    public static void prewarm(Context context) {
+        DatePickerDialog.prewarm(context);
+        TimePickerDialog.prewarm(context);
+    }
+
+    public void initialize(OnDateTimeSetListener callback, int year, int monthOfYear,
+            int dayOfMonth, int hourOfDay, int minute, boolean is24HourMode) {
+        initialize(null, hourOfDay, minute, is24HourMode);
+        mDateTimeCallback = callback;
+        mCalendar.set(Calendar.YEAR, year);
+        mCalendar.set(Calendar.MONTH, monthOfYear);
+        mCalendar.set(Calendar.DAY_OF_MONTH, dayOfMonth);
+        if (mDatePickerView != null) {
+            mDatePickerView.setDate(year, monthOfYear, dayOfMonth);
+        }
+    }
+
+    @Override
+    public void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        if (savedInstanceState != null) {
+            mCurrentPage = savedInstanceState.getInt(KEY_CURRENT_PAGE, DATE_PAGE);
+            // The time page's time zone context is set up from the selected date in onCreateView,
+            // before the DatePickerView restores its own state.
+            if (savedInstanceState.containsKey(KEY_YEAR)) {
+                mCalendar.set(Calendar.YEAR, savedInstanceState.getInt(KEY_YEAR));
+                mCalendar.set(Calendar.MONTH, savedInstanceState.getInt(KEY_MONTH));
+                mCalendar.set(Calendar.DAY_OF_MONTH, savedInstanceState.getInt(KEY_DAY));
+            }
+        }
+    }
+
+    @Override
+    public View onCreateView(LayoutInflater inflater, ViewGroup container,
+            Bundle savedInstanceState) {
+        View timePage = super.onCreateView(inflater, container, savedInstanceState);
+        Context context = getActivity();
+
+        // The selected date and the date picker settings are saved and restored by the
+        // DatePickerView as part of the dialog's view hierarchy state.
+        mDatePickerView = new DatePickerView(context, getHapticFeedbackController());
+        mDatePickerView.setId(R.id.date_picker_view);
+        mDatePickerView.setFirstDayOfWeek(mWeekStart);
+        if (mMinYear != -1) {
+            mDatePickerView.setYearRange(mMinYear, mMaxYear);
+        }
+        mDatePickerView.setMinDate(mMinDate);
+        mDatePickerView.setMaxDate(mMaxDate);
+        mDatePickerView.setDateConstraints(mDateConstraints);
+        mDatePickerView.setDate(mCalendar.get(Calendar.YEAR), mCalendar.get(Calendar.MONTH),
+                mCalendar.get(Calendar.DAY_OF_MONTH));
+
+        View line = new View(context);
+        line.setBackgroundResource(R.color.line_background);
+        mDatePickerView.addView(line, new LinearLayout.LayoutParams(
+                getResources().getDimensionPixelSize(R.dimen.date_picker_component_width),
+                Math.max(1, Math.round(getResources().getDisplayMetrics().density))));
+        inflater.inflate(R.layout.date_picker_done_button, mDatePickerView, true);
+        Button nextButton = (Button) mDatePickerView.findViewById(R.id.done);
+        nextButton.setText(R.string.next_label);
+        nextButton.setOnClickListener(new OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                tryVibrate();
+                setCurrentPage(TIME_PAGE, true);
+            }
+        });
+
+        mAnimator = new ViewAnimator(context);
+        mAnimator.addView(mDatePickerView);
+        mAnimator.addView(timePage);
+        Animation animation = new AlphaAnimation(0.0f, 1.0f);
+        animation.setDuration(ANIMATION_DURATION);
+        mAnimator.setInAnimation(animation);
+        Animation animation2 = new AlphaAnimation(1.0f, 0.0f);
+        animation2.setDuration(ANIMATION_DURATION);
+        mAnimator.setOutAnimation(animation2);
+        setCurrentPage(mCurrentPage, false);
+
+        // Back goes from the time page to the date page rather than closing the dialog.
+        getDialog().setOnKeyListener(new DialogInterface.OnKeyListener() {
+            @Override
+            public boolean onKey(DialogInterface dialog, int keyCode, KeyEvent event) {
+                if (keyCode == KeyEvent.KEYCODE_BACK && mCurrentPage == TIME_PAGE) {
+                    if (event.getAction() == KeyEvent.ACTION_UP) {
+                        setCurrentPage(DATE_PAGE, true);
+                    }
+                    return true;
+                }
+                return false;
+            }
+        });
+
+        return mAnimator;
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        mAnimator = null;
+        mDatePickerView = null;
+    }
+
+    @Override
+    public void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putInt(KEY_CURRENT_PAGE, mCurrentPage);
+        if (mDatePickerView != null) {
+            outState.putInt(KEY_YEAR, mDatePickerView.getYear());
+            outState.putInt(KEY_MONTH, mDatePickerView.getMonth());
+            outState.putInt(KEY_DAY, mDatePickerView.getDayOfMonth());
+        }
+    }
+
+    private void setCurrentPage(int page, boolean animate) {
+        mCurrentPage = page;
+        if (page == TIME_PAGE) {
+            updateTimePageTimeZoneContext();
+        }
+        if (!animate) {
+            Animation in = mAnimator.getInAnimation();
+            Animation out = mAnimator.getOutAnimation();
+            mAnimator.setInAnimation(null);
+            mAnimator.setOutAnimation(null);
+            mAnimator.setDisplayedChild(page);
+            mAnimator.setInAnimation(in);
+            mAnimator.setOutAnimation(out);
+        } else {
+            mAnimator.setDisplayedChild(page);
+        }
+        mAnimator.getChildAt(page).requestFocus();
+    }
+
+    @Override
+    /* package */ void notifyTimeSet(int hourOfDay, int minute, int second) {
+        if (mDateTimeCallback == null) {
+            return;
+        }
+        TimeZone timeZone = mTimeZone != null ? mTimeZone : TimeZone.getDefault();
+        ZoneDay day = new ZoneDay(mDatePickerView.getYear(), mDatePickerView.getMonth(),
+                mDatePickerView.getDayOfMonth(), timeZone);
+        mDateTimeCallback.onDateTimeSet(this,
+                day.getTimeInMillis(hourOfDay, minute, second, false));
+    }
+
+    public void setOnDateTimeSetListener(OnDateTimeSetListener callback) {
+        mDateTimeCallback = callback;
+    }
+
+    /**
+     * Sets the time zone the date and time are read in. Defaults to the device's time zone.
+     */
+    public void setTimeZone(TimeZone timeZone) {
+        mTimeZone = timeZone;
+        if (mAnimator != null && mCurrentPage == TIME_PAGE) {
+            updateTimePageTimeZoneContext();
+        }
+    }
+
+    /**
+     * The local times skipped on the selected date as the clocks go forward may not be picked.
+     */
+    private void updateTimePageTimeZoneContext() {
+        updateTimeZoneContext(mDatePickerView.getYear(), mDatePickerView.getMonth(),
+                mDatePickerView.getDayOfMonth(),
+                mTimeZone != null ? mTimeZone : TimeZone.getDefault());
+    }
+
+    public void setFirstDayOfWeek(int startOfWeek) {
+        if (startOfWeek < Calendar.SUNDAY || startOfWeek > Calendar.SATURDAY) {
+            throw new IllegalArgumentException("Value must be between Calendar.SUNDAY and " +
+                    "Calendar.SATURDAY");
+        }
+        mWeekStart = startOfWeek;
+        if (mDatePickerView != null) {
+            mDatePickerView.setFirstDayOfWeek(startOfWeek);
+        }
+    }
+
+    public void setYearRange(int startYear, int endYear) {
+        if (endYear <= startYear) {
+            throw new IllegalArgumentException("Year end must be larger than year start");
+        }
+        mMinYear = startYear;
+        mMaxYear = endYear;
+        if (mDatePickerView != null) {
+            mDatePickerView.setYearRange(startYear, endYear);
+        }
+    }
+
+    /**
+     * @see DatePickerDialog#setMinDate(Calendar)
+     */
+    public void setMinDate(Calendar calendar) {
+        mMinDate = calendar;
+        if (mDatePickerView != null) {
+            mDatePickerView.setMinDate(calendar);
+        }
+    }
+
+    /**
+     * @see DatePickerDialog#setMaxDate(Calendar)
+     */
+    public void setMaxDate(Calendar calendar) {
+        mMaxDate = calendar;
+        if (mDatePickerView != null) {
+            mDatePickerView.setMaxDate(calendar);
+        }
+    }
+
+    /**
+     * @see DatePickerDialog#setDateConstraints(DateConstraints)
+     */
+    public void setDateConstraints(DateConstraints constraints) {
+        mDateConstraints = constraints;
+        if (mDatePickerView != null) {
+            mDatePickerView.setDateConstraints(constraints);
+        }
+    }
+}
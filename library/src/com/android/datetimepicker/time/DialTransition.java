@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.android.datetimepicker.time;
+
+/**
+ * The transition between the hours and the minutes dial. The layers of the dial being left
+ * disappear, moving their numbers in or out and fading away, while the layers of the other dial
+ * reappear, staggered so that they start a quarter of the way into the disappearance.
+ * <p>
+ * The values are plain functions of the fraction of the whole transition that has elapsed, so a
+ * single animator can drive every layer through direct setters and be reversed mid-way.
+ */
+final class DialTransition {
+
+    // Duration of the disappearance; the reappearance is delayed by a quarter of it.
+    private static final int DISAPPEAR_DURATION = 500;
+    private static final float DELAY_MULTIPLIER = 0.25f;
+    /** The duration of the whole transition. */
+    static final int TOTAL_DURATION = (int) (DISAPPEAR_DURATION * (1f + DELAY_MULTIPLIER));
+
+    private static final float MIDWAY_POINT = 0.2f;
+    // The reappearance's keyframes, as fractions of the whole transition.
+    private static final float REAPPEAR_DELAY_POINT =
+            (DELAY_MULTIPLIER * DISAPPEAR_DURATION) / TOTAL_DURATION;
+    private static final float REAPPEAR_MIDWAY_POINT =
+            1 - (MIDWAY_POINT * (1 - REAPPEAR_DELAY_POINT));
+
+    private DialTransition() {
+    }
+
+    /**
+     * @param disappearing Whether the layer is disappearing rather than reappearing.
+     * @param fraction The fraction of the whole transition that has elapsed.
+     * @param midRadiusMultiplier The layer's radius multiplier at the midway point.
+     * @param endRadiusMultiplier The layer's radius multiplier when it is gone.
+     * @return The layer's animation radius multiplier.
+     */
+    static float getRadiusMultiplier(boolean disappearing, float fraction,
+            float midRadiusMultiplier, float endRadiusMultiplier) {
+        if (disappearing) {
+            float f = getDisappearFraction(fraction);
+            if (f <= MIDWAY_POINT) {
+                return lerp(1, midRadiusMultiplier, f / MIDWAY_POINT);
+            }
+            return lerp(midRadiusMultiplier, endRadiusMultiplier,
+                    (f - MIDWAY_POINT) / (1 - MIDWAY_POINT));
+        }
+        float f = interpolate(fraction);
+        if (f <= REAPPEAR_DELAY_POINT) {
+            return endRadiusMultiplier;
+        } else if (f <= REAPPEAR_MIDWAY_POINT) {
+            return lerp(endRadiusMultiplier, midRadiusMultiplier,
+                    (f - REAPPEAR_DELAY_POINT) / (REAPPEAR_MIDWAY_POINT - REAPPEAR_DELAY_POINT));
+        }
+        return lerp(midRadiusMultiplier, 1,
+                (f - REAPPEAR_MIDWAY_POINT) / (1 - REAPPEAR_MIDWAY_POINT));
+    }
+
+    /**
+     * @param disappearing Whether the layer is disappearing rather than reappearing.
+     * @param fraction The fraction of the whole transition that has elapsed.
+     * @return The layer's alpha, from 0 to 1.
+     */
+    static float getAlpha(boolean disappearing, float fraction) {
+        if (disappearing) {
+            return 1 - getDisappearFraction(fraction);
+        }
+        float f = interpolate(fraction);
+        if (f <= REAPPEAR_DELAY_POINT) {
+            return 0;
+        }
+        return (f - REAPPEAR_DELAY_POINT) / (1 - REAPPEAR_DELAY_POINT);
+    }
+
+    private static float getDisappearFraction(float fraction) {
+        return interpolate(Math.min(1f, fraction * TOTAL_DURATION / DISAPPEAR_DURATION));
+    }
+
+    /**
+     * Accelerates and decelerates, like the default interpolator of the animators this replaces.
+     */
+    private static float interpolate(float input) {
+        return (float) (Math.cos((input + 1) * Math.PI) / 2.0f) + 0.5f;
+    }
+
+    private static float lerp(float start, float end, float fraction) {
+        return start + (end - start) * fraction;
+    }
+}
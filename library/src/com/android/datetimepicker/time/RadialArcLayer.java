@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.datetimepicker.time;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.util.Log;
+
+import com.android.datetimepicker.R;
+import com.android.datetimepicker.Utils;
+
+/**
+ * Draws the arc between the start and the end handle of a range of times, clockwise from the
+ * start, on each dial. The arc fades in and out with its dial's handles.
+ */
+class RadialArcLayer extends RadialLayer {
+    private static final String TAG = "RadialArcLayer";
+
+    // Alpha level for the arc.
+    private static final int SELECTED_ALPHA = Utils.SELECTED_ALPHA;
+    private static final int SELECTED_ALPHA_THEME_DARK = Utils.SELECTED_ALPHA_THEME_DARK;
+
+    private final Paint mPaint = new Paint();
+    private final RectF mOval = new RectF();
+    private boolean mIsInitialized;
+    private int mSelectedAlpha;
+
+    // The start and end handles on each dial.
+    private RadialSelectorView[] mStartHandles = new RadialSelectorView[0];
+    private RadialSelectorView[] mEndHandles = new RadialSelectorView[0];
+
+    public RadialArcLayer(RadialDialView host) {
+        super(host);
+        mIsInitialized = false;
+    }
+
+    public void initialize(Context context) {
+        if (mIsInitialized) {
+            Log.e(TAG, "RadialArcLayer may only be initialized once.");
+            return;
+        }
+
+        Resources res = context.getResources();
+        mPaint.setColor(res.getColor(R.color.blue));
+        mPaint.setAntiAlias(true);
+        mPaint.setStyle(Paint.Style.STROKE);
+        mSelectedAlpha = SELECTED_ALPHA;
+
+        mIsInitialized = true;
+    }
+
+    /* package */ void setTheme(Context context, boolean themeDark) {
+        Resources res = context.getResources();
+        if (themeDark) {
+            mPaint.setColor(res.getColor(R.color.red));
+            mSelectedAlpha = SELECTED_ALPHA_THEME_DARK;
+        } else {
+            mPaint.setColor(res.getColor(R.color.blue));
+            mSelectedAlpha = SELECTED_ALPHA;
+        }
+        invalidate();
+    }
+
+    /**
+     * Draws an arc between the two handles of one dial.
+     */
+    /* package */ void addHandles(RadialSelectorView start, RadialSelectorView end) {
+        int length = mStartHandles.length;
+        RadialSelectorView[] startHandles = new RadialSelectorView[length + 1];
+        RadialSelectorView[] endHandles = new RadialSelectorView[length + 1];
+        System.arraycopy(mStartHandles, 0, startHandles, 0, length);
+        System.arraycopy(mEndHandles, 0, endHandles, 0, length);
+        startHandles[length] = start;
+        endHandles[length] = end;
+        mStartHandles = startHandles;
+        mEndHandles = endHandles;
+        invalidate();
+    }
+
+    @Override
+    boolean isStatic() {
+        return false;
+    }
+
+    @Override
+    void draw(Canvas canvas) {
+        RadialGeometry geometry = getGeometry();
+        if (geometry == null || !mIsInitialized) {
+            return;
+        }
+
+        for (int i = 0; i < mStartHandles.length; i++) {
+            RadialSelectorView start = mStartHandles[i];
+            RadialSelectorView end = mEndHandles[i];
+            float handleAlpha = start.getAlpha();
+            if (handleAlpha == 0) {
+                continue;
+            }
+            int startDegrees = start.getSelectionDegrees();
+            int sweep = ((end.getSelectionDegrees() - startDegrees) % 360 + 360) % 360;
+            if (sweep == 0) {
+                continue;
+            }
+
+            // Run the arc through the middle of the selection circles, and half as wide, so that
+            // the handles are drawn over its ends.
+            float radius = (start.getLineLength(geometry) + end.getLineLength(geometry)) / 2f;
+            mOval.set(geometry.xCenter - radius, geometry.yCenter - radius,
+                    geometry.xCenter + radius, geometry.yCenter + radius);
+            mPaint.setStrokeWidth(start.getSelectionRadius(geometry));
+            mPaint.setAlpha(fade((int) (mSelectedAlpha * handleAlpha)));
+            // The canvas measures angles from 3 o'clock, the dial from 12 o'clock.
+            canvas.drawArc(mOval, startDegrees - 90, sweep, false, mPaint);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.datetimepicker.time;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.view.View;
+
+import com.android.datetimepicker.R;
+
+import java.util.Arrays;
+
+/**
+ * Draws the whole dial of the time picker in one pass: the circle, the AM/PM circles, the
+ * numbers and the selectors, as {@link RadialLayer}s sharing one {@link RadialGeometry}, and the
+ * gray overlay shown while the picker is in keyboard mode. Layers which are fully transparent,
+ * such as the dials not showing, are skipped.
+ * <p>
+ * The static layers at the bottom are drawn once into a bitmap, which is only redrawn when one
+ * of them is invalidated: on a new size, theme, or set of enabled values, or when switching
+ * dials. While a selection is dragged, only the selectors are drawn over the bitmap.
+ */
+final class RadialDialView extends View {
+
+    private final RadialGeometry mGeometry = new RadialGeometry();
+    private RadialLayer[] mLayers = new RadialLayer[0];
+    // The number of static layers at the bottom, which are drawn into mCache.
+    private int mStaticLayerCount;
+    private Bitmap mCache;
+    private Canvas mCacheCanvas;
+    private boolean mCacheValid;
+
+    private float mCircleRadiusMultiplier;
+    private float mAmPmCircleRadiusMultiplier;
+    private boolean mHasAmPm;
+
+    private final int mDimColor;
+    private boolean mDimmed;
+
+    public RadialDialView(Context context) {
+        super(context);
+        mDimColor = getResources().getColor(R.color.transparent_black);
+    }
+
+    /**
+     * Adds a layer, drawn over the layers before it.
+     * @param index Where to insert the layer, or -1 to draw it over all the others.
+     */
+    void addLayer(RadialLayer layer, int index) {
+        if (index < 0) {
+            index = mLayers.length;
+        }
+        RadialLayer[] layers = new RadialLayer[mLayers.length + 1];
+        System.arraycopy(mLayers, 0, layers, 0, index);
+        layers[index] = layer;
+        System.arraycopy(mLayers, index, layers, index + 1, mLayers.length - index);
+        mLayers = layers;
+        mStaticLayerCount = 0;
+        while (mStaticLayerCount < layers.length && layers[mStaticLayerCount].isStatic()) {
+            mStaticLayerCount++;
+        }
+        layer.setGeometry(mGeometry);
+        invalidateLayer(layer);
+    }
+
+    int indexOfLayer(RadialLayer layer) {
+        return Arrays.asList(mLayers).indexOf(layer);
+    }
+
+    /**
+     * @param is24HourMode Whether the dial is drawn without the AM/PM circles, which makes room
+     * for a larger main circle.
+     */
+    void setIs24HourMode(boolean is24HourMode) {
+        RadialResources radialRes = RadialResources.getInstance(getResources());
+        mHasAmPm = !is24HourMode;
+        mCircleRadiusMultiplier = is24HourMode ? radialRes.circleRadiusMultiplier24HourMode
+                : radialRes.circleRadiusMultiplier;
+        mAmPmCircleRadiusMultiplier = radialRes.ampmCircleRadiusMultiplier;
+        updateGeometry(getWidth(), getHeight());
+    }
+
+    /**
+     * Redraws the dial after the given layer changed.
+     */
+    void invalidateLayer(RadialLayer layer) {
+        if (layer.isStatic()) {
+            mCacheValid = false;
+        }
+        invalidate();
+    }
+
+    /**
+     * Grays the dial out, e.g. while the time is being typed.
+     */
+    void setDimmed(boolean dimmed) {
+        if (mDimmed != dimmed) {
+            mDimmed = dimmed;
+            invalidate();
+        }
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        releaseCache();
+        updateGeometry(w, h);
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        releaseCache();
+    }
+
+    private void releaseCache() {
+        if (mCache != null) {
+            mCache.recycle();
+            mCache = null;
+            mCacheCanvas = null;
+        }
+        mCacheValid = false;
+    }
+
+    private void updateGeometry(int width, int height) {
+        mGeometry.update(width, height, mCircleRadiusMultiplier, mAmPmCircleRadiusMultiplier,
+                mHasAmPm);
+        for (RadialLayer layer : mLayers) {
+            layer.onGeometryChanged();
+        }
+        mCacheValid = false;
+        invalidate();
+    }
+
+    /**
+     * @return Whether the static layers may be drawn from the cache. They are drawn directly
+     * while any of them is fading, i.e. during a transition between dials, since they change on
+     * every frame then.
+     */
+    private boolean isCacheUsable() {
+        if (mStaticLayerCount == 0) {
+            return false;
+        }
+        for (int i = 0; i < mStaticLayerCount; i++) {
+            float alpha = mLayers[i].getAlpha();
+            if (alpha > 0 && alpha < 1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void drawLayers(Canvas canvas, int from, int to) {
+        for (int i = from; i < to; i++) {
+            RadialLayer layer = mLayers[i];
+            if (layer.getAlpha() > 0) {
+                layer.draw(canvas);
+            }
+        }
+    }
+
+    @Override
+    public boolean hasOverlappingRendering() {
+        return false;
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        if (!mGeometry.isReady()) {
+            return;
+        }
+        int firstLayer = 0;
+        if (isCacheUsable()) {
+            if (!mCacheValid) {
+                if (mCache == null) {
+                    mCache = Bitmap.createBitmap(getWidth(), getHeight(), Bitmap.Config.ARGB_8888);
+                    mCacheCanvas = new Canvas(mCache);
+                } else {
+                    mCache.eraseColor(0);
+                }
+                drawLayers(mCacheCanvas, 0, mStaticLayerCount);
+                mCacheValid = true;
+            }
+            canvas.drawBitmap(mCache, 0, 0, null);
+            firstLayer = mStaticLayerCount;
+        }
+        drawLayers(canvas, firstLayer, mLayers.length);
+        if (mDimmed) {
+            canvas.drawColor(mDimColor);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.datetimepicker.time;
+
+/**
+ * Where the time picker's dial is drawn: the center and radius of the main circle, and the
+ * centers and radius of the AM/PM circles. It is computed once per size of the dial and read by
+ * all of its layers, both to draw and to find what a touch is on.
+ */
+final class RadialGeometry {
+
+    private boolean mIsReady;
+
+    int xCenter;
+    int yCenter;
+    int circleRadius;
+
+    int amPmCircleRadius;
+    int amXCenter;
+    int pmXCenter;
+    int amPmYCenter;
+
+    /**
+     * @return Whether the dial has been sized, and the values may be used.
+     */
+    boolean isReady() {
+        return mIsReady;
+    }
+
+    /**
+     * @param hasAmPm Whether the AM/PM circles are drawn below the main circle, in which case it
+     * is moved up to keep the whole dial centered vertically.
+     */
+    void update(int width, int height, float circleRadiusMultiplier,
+            float amPmCircleRadiusMultiplier, boolean hasAmPm) {
+        xCenter = width / 2;
+        yCenter = height / 2;
+        circleRadius = (int) (Math.min(xCenter, yCenter) * circleRadiusMultiplier);
+        amPmCircleRadius = (int) (circleRadius * amPmCircleRadiusMultiplier);
+        if (hasAmPm) {
+            // We'll need to draw the AM/PM circles, so the main circle will need to have a
+            // slightly higher center. To keep the entire view centered vertically, we'll have to
+            // push it up by half the radius of the AM/PM circles.
+            yCenter -= amPmCircleRadius / 2;
+        }
+
+        // Line up the vertical center of the AM/PM circles with the bottom of the main circle,
+        // and their horizontal edges with the horizontal edges of the main circle.
+        amPmYCenter = yCenter + circleRadius;
+        amXCenter = xCenter - circleRadius + amPmCircleRadius;
+        pmXCenter = xCenter + circleRadius - amPmCircleRadius;
+        mIsReady = width > 0 && height > 0;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.datetimepicker.time;
+
+import android.graphics.Canvas;
+
+/**
+ * One part of the time picker's dial, such as the numbers or the selector. The layers are drawn
+ * in order by a single {@link RadialDialView}, rather than each being a view of its own.
+ */
+abstract class RadialLayer {
+
+    private final RadialDialView mHost;
+    private RadialGeometry mGeometry;
+    private float mAlpha = 1;
+
+    RadialLayer(RadialDialView host) {
+        mHost = host;
+    }
+
+    /**
+     * Redraws the dial this layer is part of. To be called whenever what the layer draws changes,
+     * since a static layer is otherwise drawn from the dial's cache.
+     */
+    void invalidate() {
+        mHost.invalidateLayer(this);
+    }
+
+    /**
+     * @return Whether the layer only changes when it is invalidated, rather than while a
+     * selection is being dragged, such that it is worth drawing into the dial's cache.
+     */
+    boolean isStatic() {
+        return true;
+    }
+
+    /**
+     * Fades the layer. A layer which is fully transparent is not drawn at all.
+     */
+    void setAlpha(float alpha) {
+        alpha = Math.max(0, Math.min(alpha, 1));
+        if (mAlpha != alpha) {
+            mAlpha = alpha;
+            mHost.invalidateLayer(this);
+        }
+    }
+
+    float getAlpha() {
+        return mAlpha;
+    }
+
+    /**
+     * @return The given paint alpha, faded by the layer's alpha.
+     */
+    int fade(int alpha) {
+        return mAlpha == 1 ? alpha : (int) (alpha * mAlpha);
+    }
+
+    /* package */ void setGeometry(RadialGeometry geometry) {
+        mGeometry = geometry;
+        onGeometryChanged();
+    }
+
+    /**
+     * @return The dial's geometry, or null until the dial has been sized.
+     */
+    RadialGeometry getGeometry() {
+        return mGeometry != null && mGeometry.isReady() ? mGeometry : null;
+    }
+
+    /**
+     * Called when the dial has been resized, for values derived from the geometry to be
+     * recomputed.
+     */
+    void onGeometryChanged() {
+    }
+
+    abstract void draw(Canvas canvas);
+}
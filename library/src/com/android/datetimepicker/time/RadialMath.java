@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.android.datetimepicker.time;
+
+/**
+ * Trigonometry shared by the radial views, looked up in tables computed once so that drawing
+ * and touch handling do not evaluate sines, cosines or arcsines. Every lookup returns exactly
+ * what the corresponding {@link Math} expression returns.
+ */
+final class RadialMath {
+
+    /** The square root of 3, used to place the numbers at 30 degree steps. */
+    static final float SQRT_3 = (float) Math.sqrt(3);
+
+    // Indexed by degrees from 0 to 360 inclusive.
+    private static final double[] SIN = new double[361];
+    private static final double[] COS = new double[361];
+
+    // ASIN_THRESHOLDS[d] is the smallest ratio r for which (int) (Math.asin(r) * 180 / Math.PI)
+    // is at least d, for d from 0 to 90. The arcsine is monotonic, so these are increasing.
+    private static final double[] ASIN_THRESHOLDS = new double[91];
+
+    static {
+        for (int degrees = 0; degrees <= 360; degrees++) {
+            double radians = degrees * Math.PI / 180;
+            SIN[degrees] = Math.sin(radians);
+            COS[degrees] = Math.cos(radians);
+        }
+        for (int degrees = 0; degrees <= 90; degrees++) {
+            ASIN_THRESHOLDS[degrees] = findAsinThreshold(degrees);
+        }
+    }
+
+    private RadialMath() {
+    }
+
+    /**
+     * @return {@code Math.sin(degrees * Math.PI / 180)}.
+     */
+    static double sin(int degrees) {
+        if (degrees < 0 || degrees > 360) {
+            return Math.sin(degrees * Math.PI / 180);
+        }
+        return SIN[degrees];
+    }
+
+    /**
+     * @return {@code Math.cos(degrees * Math.PI / 180)}.
+     */
+    static double cos(int degrees) {
+        if (degrees < 0 || degrees > 360) {
+            return Math.cos(degrees * Math.PI / 180);
+        }
+        return COS[degrees];
+    }
+
+    /**
+     * @return {@code (int) (Math.asin(ratio) * 180 / Math.PI)} for a ratio of the side opposite
+     * an angle to the hypotenuse, i.e. the angle in whole degrees from 0 to 90. Like that
+     * expression, it returns 0 for ratios that are not a number or larger than 1.
+     */
+    static int getDegreesFromSineRatio(double ratio) {
+        if (!(ratio >= 0) || ratio > 1) {
+            return 0;
+        }
+        // Find the largest degrees whose threshold is at most the ratio.
+        int low = 0;
+        int high = 90;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (ASIN_THRESHOLDS[mid] <= ratio) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Binary searches the non-negative doubles, whose bit patterns sort like their values, for
+     * the smallest ratio at which the truncated arcsine reaches the degrees.
+     */
+    private static double findAsinThreshold(int degrees) {
+        long low = 0;
+        long high = Double.doubleToLongBits(1.0);
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            double ratio = Double.longBitsToDouble(mid);
+            if ((int) (Math.asin(ratio) * 180 / Math.PI) >= degrees) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        double threshold = Double.longBitsToDouble(low);
+        if ((int) (Math.asin(threshold) * 180 / Math.PI) < degrees) {
+            // Not even a ratio of 1 reaches the degrees.
+            return Double.POSITIVE_INFINITY;
+        }
+        return threshold;
+    }
+}
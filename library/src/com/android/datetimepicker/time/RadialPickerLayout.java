@@ -16,8 +16,8 @@
 
 package com.android.datetimepicker.time;
 
-import android.animation.AnimatorSet;
-import android.animation.ObjectAnimator;
+import android.animation.ValueAnimator;
+import android.animation.ValueAnimator.AnimatorUpdateListener;
 import android.annotation.SuppressLint;
 import android.content.Context;
 import android.content.res.Resources;
@@ -27,18 +27,19 @@ import android.text.format.DateUtils;
 import android.text.format.Time;
 import android.util.AttributeSet;
 import android.util.Log;
+import android.view.Choreographer;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.View.OnTouchListener;
 import android.view.ViewConfiguration;
-import android.view.ViewGroup;
 import android.view.accessibility.AccessibilityEvent;
 import android.view.accessibility.AccessibilityManager;
 import android.view.accessibility.AccessibilityNodeInfo;
+import android.view.animation.LinearInterpolator;
 import android.widget.FrameLayout;
 
 import com.android.datetimepicker.HapticFeedbackController;
-import com.android.datetimepicker.R;
+import com.android.datetimepicker.Utils;
 
 /**
  * The primary layout to hold the circular picker, and the am/pm buttons. This view well measure
@@ -56,48 +57,146 @@ public class RadialPickerLayout extends FrameLayout implements OnTouchListener {
     private static final int VISIBLE_DEGREES_STEP_SIZE = 30;
     private static final int HOUR_VALUE_TO_DEGREES_STEP_SIZE = VISIBLE_DEGREES_STEP_SIZE;
     private static final int MINUTE_VALUE_TO_DEGREES_STEP_SIZE = 6;
+    private static final int SECOND_VALUE_TO_DEGREES_STEP_SIZE = MINUTE_VALUE_TO_DEGREES_STEP_SIZE;
     private static final int HOUR_INDEX = TimePickerDialog.HOUR_INDEX;
     private static final int MINUTE_INDEX = TimePickerDialog.MINUTE_INDEX;
+    private static final int SECOND_INDEX = TimePickerDialog.SECOND_INDEX;
     private static final int AMPM_INDEX = TimePickerDialog.AMPM_INDEX;
     private static final int ENABLE_PICKER_INDEX = TimePickerDialog.ENABLE_PICKER_INDEX;
+    private static final int RANGE_HANDLE_INDEX = TimePickerDialog.RANGE_HANDLE_INDEX;
     private static final int AM = TimePickerDialog.AM;
     private static final int PM = TimePickerDialog.PM;
+    private static final int RANGE_START = TimePickerDialog.RANGE_START;
+    private static final int RANGE_END = TimePickerDialog.RANGE_END;
+
+    // How many of the last touch positions the angular velocity is measured over, and how recent
+    // they must be, in ms.
+    private static final int VELOCITY_SAMPLES = 4;
+    private static final int VELOCITY_WINDOW = 100;
+    // Releasing the minutes or seconds dial faster than this, in degrees per second, flings it.
+    private static final float MIN_FLING_VELOCITY = 540f;
+    // How fast a fling slows down, in degrees per second per second.
+    private static final float FLING_DECELERATION = 2880f;
+    private static final long MAX_FLING_DURATION = 1000000000L;
 
     private int mLastValueSelected;
-    private int mMinHour;
-    private int mMaxHour;
-    private int mMinMinute;
-    private int mMaxMinute;
+    private TimeAvailability mAvailability;
 
     private HapticFeedbackController mHapticFeedbackController;
     private OnValueSelectedListener mListener;
     private boolean mTimeInitialized;
     private int mCurrentHoursOfDay;
     private int mCurrentMinutes;
+    private int mCurrentSeconds;
+    private boolean mEnableSeconds;
     private boolean mIs24HourMode;
     private boolean mHideAmPm;
     private int mCurrentItemShowing;
-
+    // In duration mode, the hours dial counts the hours of a duration rather than giving the hour
+    // of the day: mCurrentHoursOfDay is the hour within the current turn of 12 hours, and each
+    // time the hand goes round, mDurationTurns counts one turn more or less.
+    private boolean mDurationMode;
+    private int mDurationTurns;
+
+    // The dial is drawn by a single view, with one layer for each of the parts below.
+    private final RadialDialView mDialView;
     private CircleView mCircleView;
     private AmPmCirclesView mAmPmCirclesView;
     private RadialTextsView mHourRadialTextsView;
     private RadialTextsView mMinuteRadialTextsView;
     private RadialSelectorView mHourRadialSelectorView;
     private RadialSelectorView mMinuteRadialSelectorView;
-    private View mGrayBox;
+    // The seconds ring is only created when it is enabled.
+    private RadialTextsView mSecondRadialTextsView;
+    private RadialSelectorView mSecondRadialSelectorView;
+
+    // In range mode, the dials have a handle for the start and one for the end of the range. The
+    // active handle's time and selectors are the ones in the fields above, so that touch,
+    // keyboard and accessibility input all move it; the other handle's are kept below, and the
+    // two are swapped when the other handle becomes the active one.
+    private boolean mRangeMode;
+    private int mActiveHandle = RANGE_START;
+    private int mOtherHoursOfDay;
+    private int mOtherMinutes;
+    private int mOtherSeconds;
+    private RadialSelectorView mOtherHourRadialSelectorView;
+    private RadialSelectorView mOtherMinuteRadialSelectorView;
+    private RadialSelectorView mOtherSecondRadialSelectorView;
+    private RadialArcLayer mArcLayer;
 
     private int[] mSnapPrefer30sMap;
+    // The minutes that may be selected are the multiples of mMinuteInterval; mMinuteSnapMap maps
+    // any input degrees (0 to 360) to the degrees of one of them.
+    private int mMinuteInterval;
+    private int[] mMinuteSnapMap;
     private boolean mInputEnabled;
     private int mIsTouchingAmOrPm = -1;
     private boolean mDoingMove;
     private boolean mDoingTouch;
     private int mDownDegrees;
+    private boolean mDownIsInnerCircle;
     private float mDownX;
     private float mDownY;
+    // Out parameter of getDegreesFromCoords, reused so that touch handling does not allocate.
+    private final boolean[] mIsInnerCircle = new boolean[1];
+    // The last touch positions along the dial, without wrapping around at 360, and their times,
+    // in a ring of VELOCITY_SAMPLES.
+    private final int[] mSampleDegrees = new int[VELOCITY_SAMPLES];
+    private final long[] mSampleTimes = new long[VELOCITY_SAMPLES];
+    private int mSampleCount;
+    private int mLastSampleRawDegrees;
+    // The running fling, if mFlingIndex is not -1: the dial it turns, from and to which angle
+    // (without wrapping around), for how long, and the value it settles on.
+    private int mFlingIndex = -1;
+    private float mFlingFromDegrees;
+    private float mFlingToDegrees;
+    private float mFlingDegrees;
+    private long mFlingStartTime;
+    private long mFlingDuration;
+    private int mFlingValue;
+    private Object mFlingFrameCallback;
     private AccessibilityManager mAccessibilityManager;
 
-    private AnimatorSet mTransition;
+    // Drives the four dial layers through the transition between hours and minutes. It is
+    // reused for every switch; switching back mid-way reverses it.
+    private final ValueAnimator mTransition;
+    // The item the running or last transition takes away, and the item it shows.
+    private int mTransitionFromIndex;
+    private int mTransitionToIndex;
     private Handler mHandler = new Handler();
+    // Whether one of the runnables below has been posted and not yet run or been removed.
+    private boolean mTapCallbackPending;
+
+    /**
+     * Marks the AM or PM circle being touched as pressed, once the touch has lasted longer than
+     * the tap timeout.
+     */
+    private final Runnable mPressAmOrPmRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mTapCallbackPending = false;
+            mAmPmCirclesView.setAmOrPmPressed(mIsTouchingAmOrPm);
+            mAmPmCirclesView.invalidate();
+        }
+    };
+
+    /**
+     * Selects the value being touched, once the touch has lasted longer than the tap timeout.
+     */
+    private final Runnable mSelectDownValueRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mTapCallbackPending = false;
+            mDoingMove = true;
+            int value = reselectSelector(mDownDegrees, mDownIsInnerCircle, false, true);
+            mLastValueSelected = value;
+            if (mDurationMode) {
+                // The hours of a duration depend on the way the hand went, so follow it at once.
+                setValueForItem(getCurrentItemShowing(), value);
+            }
+            mListener.onValueSelected(getCurrentItemShowing(), value, false);
+        }
+    };
 
     public interface OnValueSelectedListener {
         void onValueSelected(int pickerIndex, int newValue, boolean autoAdvance);
@@ -112,34 +211,54 @@ public class RadialPickerLayout extends FrameLayout implements OnTouchListener {
         TAP_TIMEOUT = ViewConfiguration.getTapTimeout();
         mDoingMove = false;
 
-        mCircleView = new CircleView(context);
-        addView(mCircleView);
+        mTransition = ValueAnimator.ofFloat(0f, 1f);
+        mTransition.setDuration(DialTransition.TOTAL_DURATION);
+        // DialTransition applies the easing itself, separately for each layer.
+        mTransition.setInterpolator(new LinearInterpolator());
+        mTransition.addUpdateListener(new AnimatorUpdateListener() {
+            @Override
+            public void onAnimationUpdate(ValueAnimator animation) {
+                float fraction = animation.getAnimatedFraction();
+                getRadialTextsView(mTransitionFromIndex).setTransitionFraction(true, fraction);
+                getRadialSelectorView(mTransitionFromIndex).setTransitionFraction(true, fraction);
+                getRadialTextsView(mTransitionToIndex).setTransitionFraction(false, fraction);
+                getRadialSelectorView(mTransitionToIndex).setTransitionFraction(false, fraction);
+                if (mRangeMode) {
+                    getOtherRadialSelectorView(mTransitionFromIndex)
+                            .setTransitionFraction(true, fraction);
+                    getOtherRadialSelectorView(mTransitionToIndex)
+                            .setTransitionFraction(false, fraction);
+                }
+            }
+        });
+
+        mDialView = new RadialDialView(context);
+        addView(mDialView);
+
+        mCircleView = new CircleView(mDialView);
+        mDialView.addLayer(mCircleView, -1);
 
-        mAmPmCirclesView = new AmPmCirclesView(context);
-        addView(mAmPmCirclesView);
+        mAmPmCirclesView = new AmPmCirclesView(mDialView);
+        mDialView.addLayer(mAmPmCirclesView, -1);
 
-        mHourRadialTextsView = new RadialTextsView(context);
-        addView(mHourRadialTextsView);
-        mMinuteRadialTextsView = new RadialTextsView(context);
-        addView(mMinuteRadialTextsView);
+        mHourRadialTextsView = new RadialTextsView(mDialView);
+        mDialView.addLayer(mHourRadialTextsView, -1);
+        mMinuteRadialTextsView = new RadialTextsView(mDialView);
+        mDialView.addLayer(mMinuteRadialTextsView, -1);
 
-        mHourRadialSelectorView = new RadialSelectorView(context);
-        addView(mHourRadialSelectorView);
-        mMinuteRadialSelectorView = new RadialSelectorView(context);
-        addView(mMinuteRadialSelectorView);
+        mHourRadialSelectorView = new RadialSelectorView(mDialView);
+        mDialView.addLayer(mHourRadialSelectorView, -1);
+        mMinuteRadialSelectorView = new RadialSelectorView(mDialView);
+        mDialView.addLayer(mMinuteRadialSelectorView, -1);
 
         // Prepare mapping to snap touchable degrees to selectable degrees.
         preparePrefer30sMap();
+        mMinuteInterval = 1;
+        mMinuteSnapMap = mSnapPrefer30sMap;
 
         mLastValueSelected = -1;
 
         mInputEnabled = true;
-        mGrayBox = new View(context);
-        mGrayBox.setLayoutParams(new ViewGroup.LayoutParams(
-                ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
-        mGrayBox.setBackgroundColor(getResources().getColor(R.color.transparent_black));
-        mGrayBox.setVisibility(View.INVISIBLE);
-        addView(mGrayBox);
 
         mAccessibilityManager = (AccessibilityManager) context.getSystemService(Context.ACCESSIBILITY_SERVICE);
 
@@ -178,23 +297,71 @@ public class RadialPickerLayout extends FrameLayout implements OnTouchListener {
      */
     public void initialize(Context context, HapticFeedbackController hapticFeedbackController,
             int initialHoursOfDay, int initialMinutes, boolean is24HourMode, int minHour, int maxHour, int minMinute, int maxMinute) {
+        initialize(context, hapticFeedbackController, initialHoursOfDay, initialMinutes, 0,
+                is24HourMode, false, minHour, maxHour, minMinute, maxMinute, 0, 59);
+    }
+
+    /**
+     * Only allow the multiples of minuteInterval to be picked as the minutes. Should be called
+     * before {@link #initialize}.
+     * @param minuteInterval The interval, which must divide an hour evenly.
+     */
+    public void setMinuteInterval(int minuteInterval) {
+        if (minuteInterval < 1 || 60 % minuteInterval != 0) {
+            Log.e(TAG, "Minute interval must divide an hour evenly: " + minuteInterval);
+            return;
+        }
+        mMinuteInterval = minuteInterval;
+        if (minuteInterval == 1) {
+            mMinuteSnapMap = mSnapPrefer30sMap;
+        } else {
+            mMinuteSnapMap = prepareIntervalSnapMap(
+                    minuteInterval * MINUTE_VALUE_TO_DEGREES_STEP_SIZE);
+        }
+    }
+
+    public int getMinuteInterval() {
+        return mMinuteInterval;
+    }
+
+    /**
+     * Initialize the Layout with starting values, optionally with a third ring for the seconds.
+     * The seconds are constrained by minSecond and maxSecond only at the min and max hour and
+     * minute.
+     */
+    public void initialize(Context context, HapticFeedbackController hapticFeedbackController,
+            int initialHoursOfDay, int initialMinutes, int initialSeconds, boolean is24HourMode,
+            boolean enableSeconds, int minHour, int maxHour, int minMinute, int maxMinute,
+            int minSecond, int maxSecond) {
+        initialize(context, hapticFeedbackController, initialHoursOfDay, initialMinutes,
+                initialSeconds, is24HourMode, enableSeconds, new TimeAvailability(
+                        minHour * 3600 + minMinute * 60 + minSecond,
+                        maxHour * 3600 + maxMinute * 60 + maxSecond, null));
+    }
+
+    /**
+     * Initialize the Layout with starting values, only allowing the available times to be picked.
+     */
+    /* package */ void initialize(Context context,
+            HapticFeedbackController hapticFeedbackController, int initialHoursOfDay,
+            int initialMinutes, int initialSeconds, boolean is24HourMode, boolean enableSeconds,
+            TimeAvailability availability) {
         if (mTimeInitialized) {
             Log.e(TAG, "Time has already been initialized.");
             return;
         }
 
-        mMinHour = minHour;
-        mMaxHour = maxHour;
-        mMinMinute = minMinute;
-        mMaxMinute = maxMinute;
+        mAvailability = availability;
+        mEnableSeconds = enableSeconds;
 
         mHapticFeedbackController = hapticFeedbackController;
         mIs24HourMode = is24HourMode;
-        mHideAmPm = mAccessibilityManager.isTouchExplorationEnabled()? true : mIs24HourMode;
+        mHideAmPm = mAccessibilityManager.isTouchExplorationEnabled() || mDurationMode
+                ? true : mIs24HourMode;
 
         // Initialize the circle and AM/PM circles if applicable.
-        mCircleView.initialize(context, mHideAmPm);
-        mCircleView.invalidate();
+        mDialView.setIs24HourMode(mHideAmPm);
+        mCircleView.initialize();
         if (!mHideAmPm) {
             mAmPmCirclesView.initialize(context, initialHoursOfDay < 12? AM : PM);
             mAmPmCirclesView.invalidate();
@@ -202,33 +369,51 @@ public class RadialPickerLayout extends FrameLayout implements OnTouchListener {
 
         // Initialize the hours and minutes numbers.
         Resources res = context.getResources();
-        int[] hours = {12, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11};
-        int[] hours_24 = {0, 13, 14, 15, 16, 17, 18, 19, 20, 21, 22, 23};
-        int[] minutes = {0, 5, 10, 15, 20, 25, 30, 35, 40, 45, 50, 55};
-        String[] hoursTexts = new String[12];
-        String[] innerHoursTexts = new String[12];
-        String[] minutesTexts = new String[12];
-        for (int i = 0; i < 12; i++) {
-            hoursTexts[i] = is24HourMode?
-                    String.format("%02d", hours_24[i]) : String.format("%d", hours[i]);
-            innerHoursTexts[i] = String.format("%d", hours[i]);
-            minutesTexts[i] = String.format("%02d", minutes[i]);
-        }
-        mHourRadialTextsView.initialize(res,
-                hoursTexts, (is24HourMode ? innerHoursTexts : null), mHideAmPm, true, mMinHour, mMaxHour, mMinMinute, mMaxMinute);
+        RadialResources radialRes = RadialResources.getInstance(res);
+        String[] hoursTexts = is24HourMode ? radialRes.hours24Texts : radialRes.hoursTexts;
+        String[] innerHoursTexts = radialRes.hoursTexts;
+        String[] minutesTexts = radialRes.minutesTexts;
+        // The hours that may be picked on a 12-hour dial depend on AM or PM.
+        int hourDialSelection = getHourDialSelection(initialHoursOfDay);
+        mHourRadialTextsView.setSelectedHour(hourDialSelection);
+        mHourRadialSelectorView.setSelectedHour(hourDialSelection);
+        mHourRadialTextsView.initialize(res, hoursTexts, (is24HourMode ? innerHoursTexts : null),
+                true, availability, HOUR_INDEX);
         mHourRadialTextsView.invalidate();
-        mMinuteRadialTextsView.initialize(res, minutesTexts, null, mHideAmPm, false, minHour, maxHour, minMinute, maxMinute);
+        mMinuteRadialTextsView.initialize(res, minutesTexts, null, false,
+                availability, MINUTE_INDEX);
         mMinuteRadialTextsView.invalidate();
 
+        if (enableSeconds) {
+            // The seconds ring shares the minute ring's labels and geometry. The seconds that may
+            // be picked depend on the selected minute of the day.
+            mSecondRadialTextsView = new RadialTextsView(mDialView);
+            mDialView.addLayer(mSecondRadialTextsView,
+                    mDialView.indexOfLayer(mMinuteRadialTextsView) + 1);
+            mSecondRadialSelectorView = new RadialSelectorView(mDialView);
+            mDialView.addLayer(mSecondRadialSelectorView,
+                    mDialView.indexOfLayer(mMinuteRadialSelectorView) + 1);
+            mSecondRadialTextsView.initialize(res, minutesTexts, null, false,
+                    availability, SECOND_INDEX);
+            mSecondRadialTextsView.invalidate();
+        }
+
         // Initialize the currently-selected hour and minute.
+        initialMinutes = snapMinute(initialMinutes);
         setValueForItem(HOUR_INDEX, initialHoursOfDay);
         setValueForItem(MINUTE_INDEX, initialMinutes);
         int hourDegrees = (initialHoursOfDay % 12) * HOUR_VALUE_TO_DEGREES_STEP_SIZE;
-        mHourRadialSelectorView.initialize(context, mHideAmPm, is24HourMode, true,
-                hourDegrees, isHourInnerCircle(initialHoursOfDay), mMinHour, mMaxHour, mMinMinute, mMaxMinute);
+        mHourRadialSelectorView.initialize(context, is24HourMode, true,
+                hourDegrees, isHourInnerCircle(initialHoursOfDay), availability, HOUR_INDEX);
         int minuteDegrees = initialMinutes * MINUTE_VALUE_TO_DEGREES_STEP_SIZE;
-        mMinuteRadialSelectorView.initialize(context, mHideAmPm, false, false,
-                minuteDegrees, false, minHour, maxHour, minMinute, maxMinute);
+        mMinuteRadialSelectorView.initialize(context, false, false,
+                minuteDegrees, false, availability, MINUTE_INDEX);
+        if (enableSeconds) {
+            setValueForItem(SECOND_INDEX, initialSeconds);
+            int secondDegrees = initialSeconds * SECOND_VALUE_TO_DEGREES_STEP_SIZE;
+            mSecondRadialSelectorView.initialize(context, false, false,
+                    secondDegrees, false, availability, SECOND_INDEX);
+        }
 
         mTimeInitialized = true;
     }
@@ -240,6 +425,18 @@ public class RadialPickerLayout extends FrameLayout implements OnTouchListener {
         mMinuteRadialTextsView.setTheme(context, themeDark);
         mHourRadialSelectorView.setTheme(context, themeDark);
         mMinuteRadialSelectorView.setTheme(context, themeDark);
+        if (mEnableSeconds) {
+            mSecondRadialTextsView.setTheme(context, themeDark);
+            mSecondRadialSelectorView.setTheme(context, themeDark);
+        }
+        if (mRangeMode) {
+            mOtherHourRadialSelectorView.setTheme(context, themeDark);
+            mOtherMinuteRadialSelectorView.setTheme(context, themeDark);
+            if (mEnableSeconds) {
+                mOtherSecondRadialSelectorView.setTheme(context, themeDark);
+            }
+            mArcLayer.setTheme(context, themeDark);
+        }
    }
 
     public void setTime(int hours, int minutes) {
@@ -247,20 +444,36 @@ public class RadialPickerLayout extends FrameLayout implements OnTouchListener {
         setItem(MINUTE_INDEX, minutes);
     }
 
+    public void setTime(int hours, int minutes, int seconds) {
+        setTime(hours, minutes);
+        if (mEnableSeconds) {
+            setItem(SECOND_INDEX, seconds);
+        }
+    }
+
     /**
-     * Set either the hour or the minute. Will set the internal value, and set the selection.
+     * Set the hour, the minute or the second. Will set the internal value, and set the selection.
      */
     private void setItem(int index, int value) {
+        if (index == mFlingIndex) {
+            cancelFling();
+        }
         if (index == HOUR_INDEX) {
             setValueForItem(HOUR_INDEX, value);
             int hourDegrees = (value % 12) * HOUR_VALUE_TO_DEGREES_STEP_SIZE;
             mHourRadialSelectorView.setSelection(hourDegrees, isHourInnerCircle(value), false);
             mHourRadialSelectorView.invalidate();
         } else if (index == MINUTE_INDEX) {
+            value = snapMinute(value);
             setValueForItem(MINUTE_INDEX, value);
             int minuteDegrees = value * MINUTE_VALUE_TO_DEGREES_STEP_SIZE;
             mMinuteRadialSelectorView.setSelection(minuteDegrees, false, false);
             mMinuteRadialSelectorView.invalidate();
+        } else if (index == SECOND_INDEX) {
+            setValueForItem(SECOND_INDEX, value);
+            int secondDegrees = value * SECOND_VALUE_TO_DEGREES_STEP_SIZE;
+            mSecondRadialSelectorView.setSelection(secondDegrees, false, false);
+            mSecondRadialSelectorView.invalidate();
         }
     }
 
@@ -281,6 +494,394 @@ public class RadialPickerLayout extends FrameLayout implements OnTouchListener {
         return mCurrentMinutes;
     }
 
+    /**
+     * @return The selected second, or 0 if the seconds are not enabled.
+     */
+    public int getSeconds() {
+        return mCurrentSeconds;
+    }
+
+    /**
+     * @return Whether the picker has a ring for the seconds.
+     */
+    public boolean isSecondsEnabled() {
+        return mEnableSeconds;
+    }
+
+    /**
+     * Replaces the times that may be picked, e.g. as more constraints are loaded. A selected
+     * minute or second which may no longer be picked is moved to the nearest one which may, and
+     * the listener is told about the active handle's; if the selected hour has none left, the
+     * selection stays, see {@link #isTimeAvailable()}.
+     */
+    /* package */ void setAvailability(TimeAvailability availability) {
+        if (!mTimeInitialized || availability.equals(mAvailability)) {
+            return;
+        }
+        if (mFlingIndex != -1) {
+            // The fling would settle on a value checked against the old availability.
+            finishFling(mFlingValue, false);
+        }
+        mAvailability = availability;
+        mHourRadialTextsView.setAvailability(availability);
+        mMinuteRadialTextsView.setAvailability(availability);
+        if (mSecondRadialTextsView != null) {
+            mSecondRadialTextsView.setAvailability(availability);
+        }
+        for (int index : new int[] {HOUR_INDEX, MINUTE_INDEX, SECOND_INDEX}) {
+            RadialSelectorView selector = getRadialSelectorView(index);
+            if (selector != null) {
+                selector.setAvailability(availability);
+            }
+            RadialSelectorView otherSelector = getOtherRadialSelectorView(index);
+            if (otherSelector != null) {
+                otherSelector.setAvailability(availability);
+            }
+        }
+
+        skipUnavailableSelection(true);
+        if (mRangeMode) {
+            swapHandles();
+            skipUnavailableSelection(false);
+            swapHandles();
+        }
+    }
+
+    /**
+     * Moves the selected minute and second to the nearest ones which may be picked, if they may
+     * not.
+     * @param notify Whether to tell the listener about the values that were moved.
+     */
+    private void skipUnavailableSelection(boolean notify) {
+        int minute = getNearestAvailableValue(mCurrentMinutes, getAvailableValues(MINUTE_INDEX),
+                mMinuteInterval);
+        if (minute != -1 && minute != mCurrentMinutes) {
+            setItem(MINUTE_INDEX, minute);
+            if (notify) {
+                mListener.onValueSelected(MINUTE_INDEX, minute, false);
+            }
+        }
+        if (!mEnableSeconds) {
+            return;
+        }
+        int second = getNearestAvailableValue(mCurrentSeconds, getAvailableValues(SECOND_INDEX),
+                1);
+        if (second != -1 && second != mCurrentSeconds) {
+            setItem(SECOND_INDEX, second);
+            if (notify) {
+                mListener.onValueSelected(SECOND_INDEX, second, false);
+            }
+        }
+    }
+
+    /**
+     * @return The value of the minutes or seconds dial nearest to the given one which is set in
+     * the available mask, the later one if two are as near, or -1 if none is.
+     */
+    private static int getNearestAvailableValue(int value, long available, int step) {
+        for (int i = 0; i < 60; i += step) {
+            int later = (value + i) % 60;
+            if ((available & (1L << later)) != 0) {
+                return later;
+            }
+            int earlier = (value - i + 60) % 60;
+            if ((available & (1L << earlier)) != 0) {
+                return earlier;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return A mask of the values of the minutes or seconds dial which may be picked, given the
+     * selected hour and, for the seconds, minute.
+     */
+    private long getAvailableValues(int index) {
+        if (index == MINUTE_INDEX) {
+            return mAvailability.getAvailableMinutes(mCurrentHoursOfDay);
+        }
+        return mAvailability.getAvailableSeconds(
+                getMinuteOfDay(mCurrentHoursOfDay, mCurrentMinutes));
+    }
+
+    /**
+     * @return Whether the selected time may be picked, for both handles in range mode. It may
+     * not if, e.g., all the minutes of the selected hour were ruled out after it was selected.
+     */
+    public boolean isTimeAvailable() {
+        return isTimeAvailable(mCurrentHoursOfDay, mCurrentMinutes, mCurrentSeconds)
+                && (!mRangeMode || isTimeAvailable(mOtherHoursOfDay, mOtherMinutes,
+                        mOtherSeconds));
+    }
+
+    private boolean isTimeAvailable(int hourOfDay, int minute, int second) {
+        int minuteOfDay = getMinuteOfDay(hourOfDay, minute);
+        return mAvailability.isMinuteAvailable(minuteOfDay) && (!mEnableSeconds
+                || (mAvailability.getAvailableSeconds(minuteOfDay) & (1L << second)) != 0);
+    }
+
+    /**
+     * Makes the hours dial count the hours of a duration, with no limit, rather than giving the
+     * hour of the day. The dial is then the 12-hour one, without AM/PM. Must be called before
+     * initialize.
+     */
+    /* package */ void setDurationMode(boolean durationMode) {
+        if (mTimeInitialized) {
+            Log.e(TAG, "Duration mode must be set before the time is initialized.");
+            return;
+        }
+        mDurationMode = durationMode;
+    }
+
+    public boolean isDurationMode() {
+        return mDurationMode;
+    }
+
+    /**
+     * Sets the duration, carrying minutes or seconds of 60 or more over to the next unit, as
+     * typed e.g. on a microwave.
+     */
+    /* package */ void setDuration(int hours, int minutes, int seconds) {
+        long totalSeconds = Math.max(0, ((long) hours * 60 + minutes) * 60 + seconds);
+        int totalHours = (int) Math.min(totalSeconds / 3600, Integer.MAX_VALUE);
+        setItem(HOUR_INDEX, totalHours % 12);
+        mDurationTurns = totalHours / 12;
+        setItem(MINUTE_INDEX, (int) (totalSeconds / 60 % 60));
+        if (mEnableSeconds) {
+            setItem(SECOND_INDEX, (int) (totalSeconds % 60));
+        }
+    }
+
+    /**
+     * @return In duration mode, the hours of the duration, which may be 24 or more.
+     */
+    public int getDurationHours() {
+        return mDurationTurns * 12 + mCurrentHoursOfDay;
+    }
+
+    /**
+     * @return In duration mode, the duration in milliseconds.
+     */
+    public long getDurationMillis() {
+        return ((getDurationHours() * 60L + mCurrentMinutes) * 60 + mCurrentSeconds) * 1000;
+    }
+
+    /**
+     * Adds a second handle to each dial, for picking a range of times on the same dials: the time
+     * the picker was initialized with is the start of the range, and the given time its end. Must
+     * be called once, after initialize and before setTheme.
+     */
+    /* package */ void initializeRange(Context context, int endHourOfDay, int endMinute,
+            int endSecond) {
+        if (!mTimeInitialized || mRangeMode) {
+            Log.e(TAG, "The range may only be initialized once, after the time.");
+            return;
+        }
+        mRangeMode = true;
+
+        // The end handle's selectors start on the start time, each with its own selection state.
+        mOtherHoursOfDay = mCurrentHoursOfDay;
+        mOtherMinutes = mCurrentMinutes;
+        mOtherSeconds = mCurrentSeconds;
+        int hourDegrees = (mCurrentHoursOfDay % 12) * HOUR_VALUE_TO_DEGREES_STEP_SIZE;
+        mOtherHourRadialSelectorView = new RadialSelectorView(mDialView);
+        mOtherHourRadialSelectorView.setSelectedHour(getHourDialSelection(mCurrentHoursOfDay));
+        mOtherHourRadialSelectorView.initialize(context, mIs24HourMode, true, hourDegrees,
+                isHourInnerCircle(mCurrentHoursOfDay), mAvailability, HOUR_INDEX);
+        mOtherMinuteRadialSelectorView = new RadialSelectorView(mDialView);
+        mOtherMinuteRadialSelectorView.initialize(context, false, false,
+                mCurrentMinutes * MINUTE_VALUE_TO_DEGREES_STEP_SIZE, false, mAvailability,
+                MINUTE_INDEX);
+        if (mEnableSeconds) {
+            mOtherSecondRadialSelectorView = new RadialSelectorView(mDialView);
+            mOtherSecondRadialSelectorView.initialize(context, false, false,
+                    mCurrentSeconds * SECOND_VALUE_TO_DEGREES_STEP_SIZE, false, mAvailability,
+                    SECOND_INDEX);
+        }
+
+        // The arc is drawn under all the handles, and each handle over its dial's.
+        mArcLayer = new RadialArcLayer(mDialView);
+        mArcLayer.initialize(context);
+        mDialView.addLayer(mArcLayer, mDialView.indexOfLayer(mHourRadialSelectorView));
+        for (int index = HOUR_INDEX; index <= SECOND_INDEX; index++) {
+            RadialSelectorView start = getRadialSelectorView(index);
+            RadialSelectorView end = getOtherRadialSelectorView(index);
+            if (!isItemShowable(index) || end == null) {
+                continue;
+            }
+            mDialView.addLayer(end, mDialView.indexOfLayer(start) + 1);
+            mArcLayer.addHandles(start, end);
+        }
+        syncOtherSelectors();
+
+        // Move the end handle to the end time, checking it against the constraints as for the
+        // start time.
+        swapHandles();
+        setTime(endHourOfDay, endMinute, endSecond);
+        swapHandles();
+    }
+
+    /**
+     * @return Whether the picker picks a range of times, with a start and an end handle.
+     */
+    public boolean isRangeMode() {
+        return mRangeMode;
+    }
+
+    /**
+     * @return Which handle the dials, the keyboard and accessibility move, either
+     * {@link TimePickerDialog#RANGE_START} or {@link TimePickerDialog#RANGE_END}. Outside of
+     * range mode, always the start.
+     */
+    public int getActiveRangeHandle() {
+        return mActiveHandle;
+    }
+
+    /**
+     * Makes the given handle the one the dials move. The listener is told with
+     * {@link TimePickerDialog#RANGE_HANDLE_INDEX}, so that it shows the handle's time.
+     */
+    public void setActiveRangeHandle(int handle) {
+        if (!mRangeMode || handle == mActiveHandle) {
+            return;
+        }
+        if (mFlingIndex != -1) {
+            finishFling(mFlingValue, false);
+        }
+        swapHandles();
+        if (!mHideAmPm) {
+            mAmPmCirclesView.setAmOrPm(getIsCurrentlyAmOrPm());
+            mAmPmCirclesView.invalidate();
+        }
+        mListener.onValueSelected(RANGE_HANDLE_INDEX, handle, false);
+    }
+
+    /**
+     * @param handle {@link TimePickerDialog#RANGE_START} or {@link TimePickerDialog#RANGE_END}.
+     */
+    public int getHours(int handle) {
+        return handle == mActiveHandle || !mRangeMode ? mCurrentHoursOfDay : mOtherHoursOfDay;
+    }
+
+    /**
+     * @param handle {@link TimePickerDialog#RANGE_START} or {@link TimePickerDialog#RANGE_END}.
+     */
+    public int getMinutes(int handle) {
+        return handle == mActiveHandle || !mRangeMode ? mCurrentMinutes : mOtherMinutes;
+    }
+
+    /**
+     * @param handle {@link TimePickerDialog#RANGE_START} or {@link TimePickerDialog#RANGE_END}.
+     */
+    public int getSeconds(int handle) {
+        return handle == mActiveHandle || !mRangeMode ? mCurrentSeconds : mOtherSeconds;
+    }
+
+    /**
+     * Exchanges the active handle's time and selectors with the other handle's.
+     */
+    private void swapHandles() {
+        int hours = mCurrentHoursOfDay;
+        mCurrentHoursOfDay = mOtherHoursOfDay;
+        mOtherHoursOfDay = hours;
+        int minutes = mCurrentMinutes;
+        mCurrentMinutes = mOtherMinutes;
+        mOtherMinutes = minutes;
+        int seconds = mCurrentSeconds;
+        mCurrentSeconds = mOtherSeconds;
+        mOtherSeconds = seconds;
+
+        RadialSelectorView selector = mHourRadialSelectorView;
+        mHourRadialSelectorView = mOtherHourRadialSelectorView;
+        mOtherHourRadialSelectorView = selector;
+        selector = mMinuteRadialSelectorView;
+        mMinuteRadialSelectorView = mOtherMinuteRadialSelectorView;
+        mOtherMinuteRadialSelectorView = selector;
+        selector = mSecondRadialSelectorView;
+        mSecondRadialSelectorView = mOtherSecondRadialSelectorView;
+        mOtherSecondRadialSelectorView = selector;
+
+        mActiveHandle = mActiveHandle == RANGE_START ? RANGE_END : RANGE_START;
+        // The numbers that may be picked follow the active handle's time.
+        updateSelectedHourDependents();
+    }
+
+    /**
+     * Shows and hides the other handle's selectors along with the active handle's, once no
+     * transition between the dials is running.
+     */
+    private void syncOtherSelectors() {
+        for (int index = HOUR_INDEX; index <= SECOND_INDEX; index++) {
+            RadialSelectorView other = getOtherRadialSelectorView(index);
+            if (isItemShowable(index) && other != null) {
+                other.setAnimationRadiusMultiplier(1);
+                other.setAlpha(getRadialSelectorView(index).getAlpha());
+            }
+        }
+    }
+
+    /**
+     * @return Whether the given degrees, on the dial that is showing, are closer to the other
+     * handle than to the active one.
+     */
+    private boolean isCloserToOtherHandle(int degrees) {
+        int index = getCurrentItemShowing();
+        if (!mRangeMode || index == -1) {
+            return false;
+        }
+        return getAngularDistance(degrees, getOtherRadialSelectorView(index).getSelectionDegrees())
+                < getAngularDistance(degrees, getRadialSelectorView(index).getSelectionDegrees());
+    }
+
+    private static int getAngularDistance(int degrees1, int degrees2) {
+        int distance = Math.abs(degrees1 - degrees2) % 360;
+        return Math.min(distance, 360 - distance);
+    }
+
+    private static int getMinuteOfDay(int hourOfDay, int minute) {
+        return hourOfDay * 60 + minute;
+    }
+
+    /**
+     * @return What the hours that may be picked depend on: AM or PM, or -1 for a 24-hour dial.
+     */
+    private int getHourDialSelection(int hourOfDay) {
+        if (mIs24HourMode) {
+            return -1;
+        }
+        return hourOfDay < 12 ? AM : PM;
+    }
+
+    private RadialTextsView getRadialTextsView(int index) {
+        if (index == HOUR_INDEX) {
+            return mHourRadialTextsView;
+        } else if (index == MINUTE_INDEX) {
+            return mMinuteRadialTextsView;
+        }
+        return mSecondRadialTextsView;
+    }
+
+    private RadialSelectorView getRadialSelectorView(int index) {
+        if (index == HOUR_INDEX) {
+            return mHourRadialSelectorView;
+        } else if (index == MINUTE_INDEX) {
+            return mMinuteRadialSelectorView;
+        }
+        return mSecondRadialSelectorView;
+    }
+
+    /**
+     * @return The selector of the handle which is not active, in range mode.
+     */
+    private RadialSelectorView getOtherRadialSelectorView(int index) {
+        if (index == HOUR_INDEX) {
+            return mOtherHourRadialSelectorView;
+        } else if (index == MINUTE_INDEX) {
+            return mOtherMinuteRadialSelectorView;
+        }
+        return mOtherSecondRadialSelectorView;
+    }
+
     /**
      * If the hours are showing, return the current hour. If the minutes are showing, return the
      * current minute.
@@ -291,6 +892,8 @@ public class RadialPickerLayout extends FrameLayout implements OnTouchListener {
             return mCurrentHoursOfDay;
         } else if (currentIndex == MINUTE_INDEX) {
             return mCurrentMinutes;
+        } else if (currentIndex == SECOND_INDEX) {
+            return mCurrentSeconds;
         } else {
             return -1;
         }
@@ -309,25 +912,38 @@ public class RadialPickerLayout extends FrameLayout implements OnTouchListener {
      * Set the internal value for the hour, minute, or AM/PM.
      */
     private void setValueForItem(int index, int value) {
-        if (index == HOUR_INDEX) {
-            if (mMinHour <= value && value <= mMaxHour) {
+        if (index == HOUR_INDEX && mDurationMode) {
+            // Moving the hand past 12 o'clock, the shorter way round, adds or takes a turn.
+            value %= 12;
+            if (mCurrentHoursOfDay - value > 6) {
+                mDurationTurns++;
+            } else if (value - mCurrentHoursOfDay > 6 && mDurationTurns > 0) {
+                mDurationTurns--;
+            } else if (value - mCurrentHoursOfDay > 6 && mDoingMove) {
+                // Dragging the hand back past 12 o'clock stops a duration at 0 hours rather
+                // than going round to 11 hours.
+                value = 0;
+                mHourRadialSelectorView.setSelection(0, false, false);
+                mHourRadialSelectorView.invalidate();
+            }
+            mCurrentHoursOfDay = value;
+            updateSelectedHourDependents();
+        } else if (index == HOUR_INDEX) {
+            if (mAvailability.isHourAvailable(value)) {
                 mCurrentHoursOfDay = value;
-                mMinuteRadialSelectorView.setSelectedHour(mCurrentHoursOfDay);
-                mMinuteRadialSelectorView.invalidate();
-                mMinuteRadialTextsView.setSelectedHour(mCurrentHoursOfDay);
-                mMinuteRadialTextsView.invalidate();
+                updateSelectedHourDependents();
             }
         } else if (index == MINUTE_INDEX) {
-            boolean checkedMinMinute = true;
-            boolean checkedMaxMinute = true;
-            if (mCurrentHoursOfDay == mMinHour) {
-                checkedMinMinute = (value >= mMinMinute);
-            }
-            if (mCurrentHoursOfDay == mMaxHour) {
-                checkedMaxMinute = (value <= mMaxMinute);
-            }
-            if (checkedMinMinute && checkedMaxMinute) {
+            if (value >= 0 && value < 60
+                    && mAvailability.isMinuteAvailable(getMinuteOfDay(mCurrentHoursOfDay, value))) {
                 mCurrentMinutes = value;
+                updateSelectedHourDependents();
+            }
+        } else if (index == SECOND_INDEX) {
+            int minuteOfDay = getMinuteOfDay(mCurrentHoursOfDay, mCurrentMinutes);
+            if (value >= 0 && value < 60
+                    && (mAvailability.getAvailableSeconds(minuteOfDay) & (1L << value)) != 0) {
+                mCurrentSeconds = value;
             }
         } else if (index == AMPM_INDEX) {
             if (value == AM) {
@@ -335,7 +951,29 @@ public class RadialPickerLayout extends FrameLayout implements OnTouchListener {
             } else if (value == PM) {
                 mCurrentHoursOfDay = (mCurrentHoursOfDay % 12) + 12;
             }
+            updateSelectedHourDependents();
+        }
+    }
+
+    /**
+     * What may be picked on each dial depends on the selection on the one before it: the hours on
+     * AM or PM, the minutes on the hour, and the seconds on the hour and minute.
+     */
+    private void updateSelectedHourDependents() {
+        int hourDialSelection = getHourDialSelection(mCurrentHoursOfDay);
+        mHourRadialSelectorView.setSelectedHour(hourDialSelection);
+        mHourRadialSelectorView.invalidate();
+        mHourRadialTextsView.setSelectedHour(hourDialSelection);
+        mMinuteRadialSelectorView.setSelectedHour(mCurrentHoursOfDay);
+        mMinuteRadialSelectorView.invalidate();
+        mMinuteRadialTextsView.setSelectedHour(mCurrentHoursOfDay);
+        if (mSecondRadialTextsView == null) {
+            return;
         }
+        int minuteOfDay = getMinuteOfDay(mCurrentHoursOfDay, mCurrentMinutes);
+        mSecondRadialSelectorView.setSelectedHour(minuteOfDay);
+        mSecondRadialSelectorView.invalidate();
+        mSecondRadialTextsView.setSelectedHour(minuteOfDay);
     }
 
     /**
@@ -404,6 +1042,29 @@ public class RadialPickerLayout extends FrameLayout implements OnTouchListener {
         }
     }
 
+    /**
+     * Maps any input degrees (0 to 360) to the closest multiple of stepDegrees. 360 is kept
+     * apart from 0 so that the caller can decide which it needs, as with the other maps.
+     */
+    private static int[] prepareIntervalSnapMap(int stepDegrees) {
+        int[] snapMap = new int[361];
+        for (int degrees = 0; degrees < 361; degrees++) {
+            snapMap[degrees] = snapToStep(degrees, stepDegrees, 0);
+        }
+        return snapMap;
+    }
+
+    /**
+     * Snaps a minute that did not come from the dial, e.g. a typed one, to the minute interval.
+     */
+    private int snapMinute(int minute) {
+        if (mMinuteInterval == 1 || minute < 0 || minute >= 60) {
+            return minute;
+        }
+        return (mMinuteSnapMap[minute * MINUTE_VALUE_TO_DEGREES_STEP_SIZE]
+                / MINUTE_VALUE_TO_DEGREES_STEP_SIZE) % 60;
+    }
+
     /**
      * Returns mapping of any input degrees (0 to 360) to one of 60 selectable output degrees,
      * where the degrees corresponding to visible numbers (i.e. those divisible by 30) will be
@@ -428,7 +1089,13 @@ public class RadialPickerLayout extends FrameLayout implements OnTouchListener {
      * @return output degrees, will be a multiple of 30
      */
     private static int snapOnly30s(int degrees, int forceHigherOrLower) {
-        int stepSize = HOUR_VALUE_TO_DEGREES_STEP_SIZE;
+        return snapToStep(degrees, HOUR_VALUE_TO_DEGREES_STEP_SIZE, forceHigherOrLower);
+    }
+
+    /**
+     * Same as {@link #snapOnly30s}, for steps of any size.
+     */
+    private static int snapToStep(int degrees, int stepSize, int forceHigherOrLower) {
         int floor = (degrees / stepSize) * stepSize;
         int ceiling = floor + stepSize;
         if (forceHigherOrLower == 1) {
@@ -459,7 +1126,7 @@ public class RadialPickerLayout extends FrameLayout implements OnTouchListener {
      * selection (i.e. minutes), force the selection to one of the visibly-showing values.
      * @param forceDrawDot The dot in the circle will generally only be shown when the selection
      * is on non-visible values, but use this to force the dot to be shown.
-     * @return The value that was selected, i.e. 0-23 for hours, 0-59 for minutes.
+     * @return The value that was selected, i.e. 0-23 for hours, 0-59 for minutes or seconds.
      */
     private int reselectSelector(int degrees, boolean isInnerCircle,
             boolean forceToVisibleValue, boolean forceDrawDot) {
@@ -469,20 +1136,24 @@ public class RadialPickerLayout extends FrameLayout implements OnTouchListener {
         int currentShowing = getCurrentItemShowing();
 
         int stepSize;
-        boolean allowFineGrained = !forceToVisibleValue && (currentShowing == MINUTE_INDEX);
-        if (allowFineGrained) {
+        boolean allowFineGrained = !forceToVisibleValue
+                && (currentShowing == MINUTE_INDEX || currentShowing == SECOND_INDEX);
+        if (currentShowing == MINUTE_INDEX && mMinuteInterval > 1) {
+            // Only the interval's minutes may be selected, so tapping snaps to them as well.
+            degrees = mMinuteSnapMap[degrees];
+        } else if (allowFineGrained) {
             degrees = snapPrefer30s(degrees);
         } else {
             degrees = snapOnly30s(degrees, 0);
         }
 
-        RadialSelectorView radialSelectorView;
+        RadialSelectorView radialSelectorView = getRadialSelectorView(currentShowing);
         if (currentShowing == HOUR_INDEX) {
-            radialSelectorView = mHourRadialSelectorView;
             stepSize = HOUR_VALUE_TO_DEGREES_STEP_SIZE;
-        } else {
-            radialSelectorView = mMinuteRadialSelectorView;
+        } else if (currentShowing == MINUTE_INDEX) {
             stepSize = MINUTE_VALUE_TO_DEGREES_STEP_SIZE;
+        } else {
+            stepSize = SECOND_VALUE_TO_DEGREES_STEP_SIZE;
         }
         radialSelectorView.setSelection(degrees, isInnerCircle, forceDrawDot);
         radialSelectorView.invalidate();
@@ -498,7 +1169,8 @@ public class RadialPickerLayout extends FrameLayout implements OnTouchListener {
             } else if (degrees == 0) {
                 degrees = 360;
             }
-        } else if (degrees == 360 && currentShowing == MINUTE_INDEX) {
+        } else if (degrees == 360
+                && (currentShowing == MINUTE_INDEX || currentShowing == SECOND_INDEX)) {
             degrees = 0;
         }
 
@@ -516,13 +1188,12 @@ public class RadialPickerLayout extends FrameLayout implements OnTouchListener {
      * @param pointY The y coordinate.
      * @param forceLegal Force the selection to be legal, regardless of how far the coordinates are
      * from the actual numbers.
-     * @param isInnerCircle If the selection may be in the inner circle, pass in a size-1 boolean
-     * array here, inside which the value will be true if the selection is in the inner circle,
-     * and false if in the outer circle.
+     * @param isInnerCircle A size-1 array, inside which the value will be set to true if the
+     * selection is in the inner circle, and false if in the outer circle.
      * @return Degrees from 0 to 360, if the selection was within the legal range. -1 if not.
      */
     private int getDegreesFromCoords(float pointX, float pointY, boolean forceLegal,
-            final Boolean[] isInnerCircle) {
+            final boolean[] isInnerCircle) {
         int currentItem = getCurrentItemShowing();
         if (currentItem == HOUR_INDEX) {
             return mHourRadialSelectorView.getDegreesFromCoords(
@@ -530,62 +1201,87 @@ public class RadialPickerLayout extends FrameLayout implements OnTouchListener {
         } else if (currentItem == MINUTE_INDEX) {
             return mMinuteRadialSelectorView.getDegreesFromCoords(
                     pointX, pointY, forceLegal, isInnerCircle);
+        } else if (currentItem == SECOND_INDEX) {
+            return mSecondRadialSelectorView.getDegreesFromCoords(
+                    pointX, pointY, forceLegal, isInnerCircle);
         } else {
             return -1;
         }
     }
 
     /**
-     * Get the item (hours or minutes) that is currently showing.
+     * Get the item (hours, minutes or seconds) that is currently showing.
      */
     public int getCurrentItemShowing() {
-        if (mCurrentItemShowing != HOUR_INDEX && mCurrentItemShowing != MINUTE_INDEX) {
+        if (!isItemShowable(mCurrentItemShowing)) {
             Log.e(TAG, "Current item showing was unfortunately set to "+mCurrentItemShowing);
             return -1;
         }
         return mCurrentItemShowing;
     }
 
+    private boolean isItemShowable(int index) {
+        return index == HOUR_INDEX || index == MINUTE_INDEX
+                || (index == SECOND_INDEX && mEnableSeconds);
+    }
+
     /**
-     * Set either minutes or hours as showing.
+     * Set either hours, minutes or seconds as showing.
      * @param animate True to animate the transition, false to show with no animation.
      */
     public void setCurrentItemShowing(int index, boolean animate) {
-        if (index != HOUR_INDEX && index != MINUTE_INDEX) {
+        if (!isItemShowable(index)) {
             Log.e(TAG, "TimePicker does not support view at index "+index);
             return;
         }
 
+        if (mFlingIndex != -1 && index != mFlingIndex) {
+            finishFling(mFlingValue, false);
+        }
         int lastIndex = getCurrentItemShowing();
         mCurrentItemShowing = index;
 
         if (animate && (index != lastIndex)) {
-            ObjectAnimator[] anims = new ObjectAnimator[4];
-            if (index == MINUTE_INDEX) {
-                anims[0] = mHourRadialTextsView.getDisappearAnimator();
-                anims[1] = mHourRadialSelectorView.getDisappearAnimator();
-                anims[2] = mMinuteRadialTextsView.getReappearAnimator();
-                anims[3] = mMinuteRadialSelectorView.getReappearAnimator();
-            } else if (index == HOUR_INDEX){
-                anims[0] = mHourRadialTextsView.getReappearAnimator();
-                anims[1] = mHourRadialSelectorView.getReappearAnimator();
-                anims[2] = mMinuteRadialTextsView.getDisappearAnimator();
-                anims[3] = mMinuteRadialSelectorView.getDisappearAnimator();
-            }
-
-            if (mTransition != null && mTransition.isRunning()) {
-                mTransition.end();
-            }
-            mTransition = new AnimatorSet();
-            mTransition.playTogether(anims);
-            mTransition.start();
+            if (mTransition.isRunning()
+                    && (index == mTransitionFromIndex || index == mTransitionToIndex)) {
+                // Switching back before the transition finished: play it backwards from where it
+                // is, rather than jumping to its end and starting another.
+                mTransition.reverse();
+            } else {
+                if (mTransition.isRunning()) {
+                    // Switching to the third ring; finish the current transition first.
+                    mTransition.end();
+                }
+                mTransitionFromIndex = lastIndex;
+                mTransitionToIndex = index;
+                mTransition.start();
+            }
         } else {
-            int hourAlpha = (index == HOUR_INDEX) ? 255 : 0;
-            int minuteAlpha = (index == MINUTE_INDEX) ? 255 : 0;
+            if (mTransition.isRunning()) {
+                mTransition.cancel();
+                mHourRadialTextsView.setAnimationRadiusMultiplier(1);
+                mHourRadialSelectorView.setAnimationRadiusMultiplier(1);
+                mMinuteRadialTextsView.setAnimationRadiusMultiplier(1);
+                mMinuteRadialSelectorView.setAnimationRadiusMultiplier(1);
+                if (mEnableSeconds) {
+                    mSecondRadialTextsView.setAnimationRadiusMultiplier(1);
+                    mSecondRadialSelectorView.setAnimationRadiusMultiplier(1);
+                }
+            }
+            float hourAlpha = (index == HOUR_INDEX) ? 1 : 0;
+            float minuteAlpha = (index == MINUTE_INDEX) ? 1 : 0;
             mHourRadialTextsView.setAlpha(hourAlpha);
             mHourRadialSelectorView.setAlpha(hourAlpha);
             mMinuteRadialTextsView.setAlpha(minuteAlpha);
             mMinuteRadialSelectorView.setAlpha(minuteAlpha);
+            if (mEnableSeconds) {
+                float secondAlpha = (index == SECOND_INDEX) ? 1 : 0;
+                mSecondRadialTextsView.setAlpha(secondAlpha);
+                mSecondRadialSelectorView.setAlpha(secondAlpha);
+            }
+            if (mRangeMode) {
+                syncOtherSelectors();
+            }
         }
 
     }
@@ -596,7 +1292,7 @@ public class RadialPickerLayout extends FrameLayout implements OnTouchListener {
         final float eventY = event.getY();
         int degrees;
         int value;
-        final Boolean[] isInnerCircle = new Boolean[1];
+        final boolean[] isInnerCircle = mIsInnerCircle;
         isInnerCircle[0] = false;
 
         switch(event.getAction()) {
@@ -605,8 +1301,17 @@ public class RadialPickerLayout extends FrameLayout implements OnTouchListener {
                     return true;
                 }
 
+                if (mFlingIndex != -1) {
+                    // Catching the dial stops it on the nearest value it has reached.
+                    int flingDegrees = ((Math.round(mFlingDegrees) % 360) + 360) % 360;
+                    int flingValue = getSettleValue(mFlingIndex, flingDegrees,
+                            mFlingToDegrees > mFlingFromDegrees ? 1 : -1);
+                    finishFling(flingValue != -1 ? flingValue : mFlingValue, false);
+                }
+
                 mDownX = eventX;
                 mDownY = eventY;
+                mSampleCount = 0;
 
                 mLastValueSelected = -1;
                 mDoingMove = false;
@@ -622,33 +1327,25 @@ public class RadialPickerLayout extends FrameLayout implements OnTouchListener {
                     // in case the user moves their finger quickly.
                     mHapticFeedbackController.tryVibrate();
                     mDownDegrees = -1;
-                    mHandler.postDelayed(new Runnable() {
-                        @Override
-                        public void run() {
-                            mAmPmCirclesView.setAmOrPmPressed(mIsTouchingAmOrPm);
-                            mAmPmCirclesView.invalidate();
-                        }
-                    }, TAP_TIMEOUT);
+                    postTapCallback(mPressAmOrPmRunnable);
                 } else {
                     // If we're in accessibility mode, force the touch to be legal. Otherwise,
                     // it will only register within the given touch target zone.
                     boolean forceLegal = mAccessibilityManager.isTouchExplorationEnabled();
                     // Calculate the degrees that is currently being touched.
                     mDownDegrees = getDegreesFromCoords(eventX, eventY, forceLegal, isInnerCircle);
+                    if (mDownDegrees != -1 && isCloserToOtherHandle(mDownDegrees)) {
+                        // Grab whichever handle the touch is closer to.
+                        setActiveRangeHandle(mActiveHandle == RANGE_START ? RANGE_END
+                                : RANGE_START);
+                    }
                     if (mDownDegrees != -1) {
                         // If it's a legal touch, set that number as "selected" after the
                         // TAP_TIMEOUT in case the user moves their finger quickly.
                         mHapticFeedbackController.tryVibrate();
-                        mHandler.postDelayed(new Runnable() {
-                            @Override
-                            public void run() {
-                                mDoingMove = true;
-                                int value = reselectSelector(mDownDegrees, isInnerCircle[0],
-                                        false, true);
-                                mLastValueSelected = value;
-                                mListener.onValueSelected(getCurrentItemShowing(), value, false);
-                            }
-                        }, TAP_TIMEOUT);
+                        mDownIsInnerCircle = isInnerCircle[0];
+                        postTapCallback(mSelectDownValueRunnable);
+                        addVelocitySample(mDownDegrees, event.getEventTime());
                     }
                 }
                 return true;
@@ -671,7 +1368,7 @@ public class RadialPickerLayout extends FrameLayout implements OnTouchListener {
                 // If so, no-op. If not, remove its pressed state. Either way, no need to check
                 // for touches on the other circle.
                 if (mIsTouchingAmOrPm == AM || mIsTouchingAmOrPm == PM) {
-                    mHandler.removeCallbacksAndMessages(null);
+                    removeTapCallbacks();
                     int isTouchingAmOrPm = mAmPmCirclesView.getIsTouchingAmOrPm(eventX, eventY);
                     if (isTouchingAmOrPm != mIsTouchingAmOrPm) {
                         mAmPmCirclesView.setAmOrPmPressed(-1);
@@ -688,9 +1385,10 @@ public class RadialPickerLayout extends FrameLayout implements OnTouchListener {
 
                 // We're doing a move along the circle, so move the selection as appropriate.
                 mDoingMove = true;
-                mHandler.removeCallbacksAndMessages(null);
+                removeTapCallbacks();
                 degrees = getDegreesFromCoords(eventX, eventY, true, isInnerCircle);
                 if (degrees != -1) {
+                    addVelocitySample(degrees, event.getEventTime());
                     value = reselectSelector(degrees, isInnerCircle[0], false, true);
                     if (value != mLastValueSelected) {
                         mHapticFeedbackController.tryVibrate();
@@ -708,7 +1406,7 @@ public class RadialPickerLayout extends FrameLayout implements OnTouchListener {
                     return true;
                 }
 
-                mHandler.removeCallbacksAndMessages(null);
+                removeTapCallbacks();
                 mDoingTouch = false;
 
                 // If we're touching AM or PM, set it as selected, and tell the listener.
@@ -728,6 +1426,13 @@ public class RadialPickerLayout extends FrameLayout implements OnTouchListener {
                     break;
                 }
 
+                // A quick release of the minutes or seconds dial keeps it turning.
+                if (mDownDegrees != -1 && mDoingMove && tryStartingFling(eventX, eventY,
+                        event.getEventTime())) {
+                    mDoingMove = false;
+                    return true;
+                }
+
                 // If we have a legal degrees selected, set the value and tell the listener.
                 if (mDownDegrees != -1) {
                     degrees = getDegreesFromCoords(eventX, eventY, mDoingMove, isInnerCircle);
@@ -753,6 +1458,209 @@ public class RadialPickerLayout extends FrameLayout implements OnTouchListener {
         return false;
     }
 
+    private void addVelocitySample(int degrees, long eventTime) {
+        int unwrapped;
+        if (mSampleCount == 0) {
+            unwrapped = degrees;
+        } else {
+            int delta = degrees - mLastSampleRawDegrees;
+            if (delta > 180) {
+                delta -= 360;
+            } else if (delta < -180) {
+                delta += 360;
+            }
+            unwrapped = mSampleDegrees[(mSampleCount - 1) % VELOCITY_SAMPLES] + delta;
+        }
+        mLastSampleRawDegrees = degrees;
+        mSampleDegrees[mSampleCount % VELOCITY_SAMPLES] = unwrapped;
+        mSampleTimes[mSampleCount % VELOCITY_SAMPLES] = eventTime;
+        mSampleCount++;
+    }
+
+    /**
+     * @return The angular velocity of the touch, in degrees per second, clockwise.
+     */
+    private float getAngularVelocity() {
+        if (mSampleCount < 2) {
+            return 0;
+        }
+        int last = (mSampleCount - 1) % VELOCITY_SAMPLES;
+        int first = last;
+        for (int i = 1; i < Math.min(mSampleCount, VELOCITY_SAMPLES); i++) {
+            int sample = (mSampleCount - 1 - i) % VELOCITY_SAMPLES;
+            if (mSampleTimes[last] - mSampleTimes[sample] > VELOCITY_WINDOW) {
+                break;
+            }
+            first = sample;
+        }
+        long elapsed = mSampleTimes[last] - mSampleTimes[first];
+        if (elapsed <= 0) {
+            return 0;
+        }
+        return (mSampleDegrees[last] - mSampleDegrees[first]) * 1000f / elapsed;
+    }
+
+    /**
+     * @return The value of the minutes or seconds dial nearest to the given degrees that may be
+     * selected, looking further in the given direction if that one may not, or -1 if none may.
+     */
+    private int getSettleValue(int index, int degrees, int direction) {
+        int step = 1;
+        int value;
+        long available = getAvailableValues(index);
+        if (index == MINUTE_INDEX) {
+            step = mMinuteInterval;
+            value = (mMinuteSnapMap[degrees] / MINUTE_VALUE_TO_DEGREES_STEP_SIZE) % 60;
+        } else {
+            value = (snapToStep(degrees, SECOND_VALUE_TO_DEGREES_STEP_SIZE, 0)
+                    / SECOND_VALUE_TO_DEGREES_STEP_SIZE) % 60;
+        }
+        for (int i = 0; i < 60; i += step) {
+            int candidate = (value + direction * i + 60) % 60;
+            if ((available & (1L << candidate)) != 0) {
+                return candidate;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Keeps the minutes or seconds dial turning after a quick release, slowing down until it
+     * settles on a value that may be selected. Only the selector is redrawn while it turns.
+     * @return Whether a fling was started.
+     */
+    @SuppressLint("NewApi")
+    private boolean tryStartingFling(float eventX, float eventY, long eventTime) {
+        int index = getCurrentItemShowing();
+        if ((index != MINUTE_INDEX && index != SECOND_INDEX) || !Utils.isJellybeanOrLater()) {
+            return false;
+        }
+        int degrees = getDegreesFromCoords(eventX, eventY, true, mIsInnerCircle);
+        if (degrees == -1) {
+            return false;
+        }
+        addVelocitySample(degrees, eventTime);
+        float velocity = getAngularVelocity();
+        if (Math.abs(velocity) < MIN_FLING_VELOCITY) {
+            return false;
+        }
+
+        // Where the dial would stop by itself, moved on to the next value that may be selected.
+        int direction = velocity > 0 ? 1 : -1;
+        float from = mSampleDegrees[(mSampleCount - 1) % VELOCITY_SAMPLES];
+        float to = from + direction * velocity * velocity / (2 * FLING_DECELERATION);
+        int toDegrees = ((Math.round(to) % 360) + 360) % 360;
+        int value = getSettleValue(index, toDegrees, direction);
+        if (value == -1) {
+            return false;
+        }
+        float valueDegrees = value * MINUTE_VALUE_TO_DEGREES_STEP_SIZE;
+        float offset = (valueDegrees - toDegrees) % 360;
+        if (direction > 0 && offset < 0) {
+            offset += 360;
+        } else if (direction < 0 && offset > 0) {
+            offset -= 360;
+        }
+        to = Math.round(to) + offset;
+
+        mFlingIndex = index;
+        mFlingFromDegrees = from;
+        mFlingToDegrees = to;
+        mFlingDegrees = from;
+        mFlingValue = value;
+        mFlingStartTime = 0;
+        // Slowing down evenly from the release velocity to 0 over the distance takes twice as
+        // long as covering the distance at the release velocity.
+        mFlingDuration = Math.min(MAX_FLING_DURATION,
+                (long) (2 * Math.abs(to - from) / Math.abs(velocity) * 1000000000L));
+        if (mFlingFrameCallback == null) {
+            mFlingFrameCallback = new Choreographer.FrameCallback() {
+                @Override
+                public void doFrame(long frameTimeNanos) {
+                    onFlingFrame(frameTimeNanos);
+                }
+            };
+        }
+        Choreographer.getInstance().postFrameCallback(
+                (Choreographer.FrameCallback) mFlingFrameCallback);
+        return true;
+    }
+
+    @SuppressLint("NewApi")
+    private void onFlingFrame(long frameTimeNanos) {
+        if (mFlingIndex == -1) {
+            return;
+        }
+        if (mFlingStartTime == 0) {
+            mFlingStartTime = frameTimeNanos;
+        }
+        float fraction = mFlingDuration <= 0 ? 1
+                : Math.min(1f, (float) (frameTimeNanos - mFlingStartTime) / mFlingDuration);
+        if (fraction >= 1) {
+            finishFling(mFlingValue, true);
+            return;
+        }
+        float remaining = 1 - fraction;
+        mFlingDegrees = mFlingFromDegrees
+                + (mFlingToDegrees - mFlingFromDegrees) * (1 - remaining * remaining);
+        int degrees = ((Math.round(mFlingDegrees) % 360) + 360) % 360;
+        RadialSelectorView selector = getRadialSelectorView(mFlingIndex);
+        selector.setSelection(degrees, false, true);
+        selector.invalidate();
+        Choreographer.getInstance().postFrameCallback(
+                (Choreographer.FrameCallback) mFlingFrameCallback);
+    }
+
+    /**
+     * Stops the running fling on the given value, and tells the listener.
+     * @param autoAdvance Whether the picker may go on to the next dial, as after a release.
+     */
+    private void finishFling(int value, boolean autoAdvance) {
+        int index = mFlingIndex;
+        cancelFling();
+        if (index == -1 || index != getCurrentItemShowing()) {
+            return;
+        }
+        // The value was already checked by getSettleValue, so put the selector exactly on it
+        // rather than snapping its angle again.
+        RadialSelectorView selector = getRadialSelectorView(index);
+        selector.setSelection(value * MINUTE_VALUE_TO_DEGREES_STEP_SIZE, false, false);
+        selector.invalidate();
+        mHapticFeedbackController.tryVibrate();
+        setValueForItem(index, value);
+        mListener.onValueSelected(index, value, autoAdvance);
+    }
+
+    @SuppressLint("NewApi")
+    private void cancelFling() {
+        if (mFlingIndex == -1) {
+            return;
+        }
+        mFlingIndex = -1;
+        Choreographer.getInstance().removeFrameCallback(
+                (Choreographer.FrameCallback) mFlingFrameCallback);
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        cancelFling();
+    }
+
+    private void postTapCallback(Runnable callback) {
+        removeTapCallbacks();
+        mTapCallbackPending = true;
+        mHandler.postDelayed(callback, TAP_TIMEOUT);
+    }
+
+    private void removeTapCallbacks() {
+        if (mTapCallbackPending) {
+            mHandler.removeCallbacks(mPressAmOrPmRunnable);
+            mHandler.removeCallbacks(mSelectDownValueRunnable);
+            mTapCallbackPending = false;
+        }
+    }
+
     /**
      * Set touch input as enabled or disabled, for use with keyboard mode.
      */
@@ -762,8 +1670,11 @@ public class RadialPickerLayout extends FrameLayout implements OnTouchListener {
             // we'll allow the touch event to continue before disabling input.
             return false;
         }
+        if (!inputEnabled && mFlingIndex != -1) {
+            finishFling(mFlingValue, false);
+        }
         mInputEnabled = inputEnabled;
-        mGrayBox.setVisibility(inputEnabled? View.INVISIBLE : View.VISIBLE);
+        mDialView.setDimmed(!inputEnabled);
         return true;
     }
 
@@ -827,10 +1738,16 @@ public class RadialPickerLayout extends FrameLayout implements OnTouchListener {
                 value %= 12;
             } else if (currentItemShowing == MINUTE_INDEX) {
                 stepSize = MINUTE_VALUE_TO_DEGREES_STEP_SIZE;
+            } else if (currentItemShowing == SECOND_INDEX) {
+                stepSize = SECOND_VALUE_TO_DEGREES_STEP_SIZE;
             }
 
             int degrees = value * stepSize;
-            degrees = snapOnly30s(degrees, changeMultiplier);
+            int scrollDegrees = HOUR_VALUE_TO_DEGREES_STEP_SIZE;
+            if (currentItemShowing == MINUTE_INDEX && mMinuteInterval > 1) {
+                scrollDegrees = mMinuteInterval * MINUTE_VALUE_TO_DEGREES_STEP_SIZE;
+            }
+            degrees = snapToStep(degrees, scrollDegrees, changeMultiplier);
             value = degrees / stepSize;
             int maxValue = 0;
             int minValue = 0;
@@ -842,7 +1759,7 @@ public class RadialPickerLayout extends FrameLayout implements OnTouchListener {
                     minValue = 1;
                 }
             } else {
-                maxValue = 55;
+                maxValue = 60 - scrollDegrees / stepSize;
             }
             if (value > maxValue) {
                 // If we scrolled forward past the highest number, wrap around to the lowest.
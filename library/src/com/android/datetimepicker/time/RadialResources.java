@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.android.datetimepicker.time;
+
+import android.content.res.Resources;
+import android.graphics.Typeface;
+
+import com.android.datetimepicker.R;
+import com.android.datetimepicker.TypefaceCache;
+
+import java.text.DateFormatSymbols;
+import java.util.Locale;
+
+/**
+ * Values derived from resources and the locale that every part of the radial time picker needs:
+ * the size multipliers, the typefaces, and the labels for the numbers and the AM/PM circles.
+ * They are parsed and formatted once per locale instead of once per view. Instances are
+ * immutable and may be built from any thread, see
+ * {@link TimePickerDialog#prewarm(android.content.Context)}.
+ */
+final class RadialResources {
+
+    private static volatile RadialResources sInstance;
+
+    private final Locale mLocale;
+
+    final float circleRadiusMultiplier;
+    final float circleRadiusMultiplier24HourMode;
+    final float ampmCircleRadiusMultiplier;
+    final float selectionRadiusMultiplier;
+    final float numbersRadiusMultiplierNormal;
+    final float numbersRadiusMultiplierInner;
+    final float numbersRadiusMultiplierOuter;
+    final float textSizeMultiplierNormal;
+    final float textSizeMultiplierInner;
+    final float textSizeMultiplierOuter;
+
+    final Typeface numbersTypeface;
+    final Typeface regularTypeface;
+
+    // Labels in dial order, starting at the top and going clockwise.
+    final String[] hoursTexts = new String[12];
+    final String[] hours24Texts = new String[12];
+    final String[] minutesTexts = new String[12];
+    final String amText;
+    final String pmText;
+
+    /**
+     * @return The values for the current default locale, rebuilding them if it has changed.
+     */
+    static RadialResources getInstance(Resources res) {
+        final Locale locale = Locale.getDefault();
+        RadialResources instance = sInstance;
+        if (instance == null || !instance.mLocale.equals(locale)) {
+            instance = new RadialResources(res, locale);
+            sInstance = instance;
+        }
+        return instance;
+    }
+
+    private RadialResources(Resources res, Locale locale) {
+        mLocale = locale;
+
+        circleRadiusMultiplier = parseFloat(res, R.string.circle_radius_multiplier);
+        circleRadiusMultiplier24HourMode =
+                parseFloat(res, R.string.circle_radius_multiplier_24HourMode);
+        ampmCircleRadiusMultiplier = parseFloat(res, R.string.ampm_circle_radius_multiplier);
+        selectionRadiusMultiplier = parseFloat(res, R.string.selection_radius_multiplier);
+        numbersRadiusMultiplierNormal = parseFloat(res, R.string.numbers_radius_multiplier_normal);
+        numbersRadiusMultiplierInner = parseFloat(res, R.string.numbers_radius_multiplier_inner);
+        numbersRadiusMultiplierOuter = parseFloat(res, R.string.numbers_radius_multiplier_outer);
+        textSizeMultiplierNormal = parseFloat(res, R.string.text_size_multiplier_normal);
+        textSizeMultiplierInner = parseFloat(res, R.string.text_size_multiplier_inner);
+        textSizeMultiplierOuter = parseFloat(res, R.string.text_size_multiplier_outer);
+
+        numbersTypeface =
+                TypefaceCache.get(res.getString(R.string.radial_numbers_typeface), Typeface.NORMAL);
+        regularTypeface = TypefaceCache.get(res.getString(R.string.sans_serif), Typeface.NORMAL);
+
+        int[] hours = {12, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11};
+        int[] hours_24 = {0, 13, 14, 15, 16, 17, 18, 19, 20, 21, 22, 23};
+        int[] minutes = {0, 5, 10, 15, 20, 25, 30, 35, 40, 45, 50, 55};
+        for (int i = 0; i < 12; i++) {
+            hoursTexts[i] = String.format(locale, "%d", hours[i]);
+            hours24Texts[i] = String.format(locale, "%02d", hours_24[i]);
+            minutesTexts[i] = String.format(locale, "%02d", minutes[i]);
+        }
+
+        String[] amPmTexts = DateFormatSymbols.getInstance(locale).getAmPmStrings();
+        amText = amPmTexts[0];
+        pmText = amPmTexts[1];
+    }
+
+    private static float parseFloat(Resources res, int id) {
+        return Float.parseFloat(res.getString(id));
+    }
+}
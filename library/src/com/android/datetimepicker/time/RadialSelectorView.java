@@ -16,17 +16,11 @@
 
 package com.android.datetimepicker.time;
 
-import android.animation.Keyframe;
-import android.animation.ObjectAnimator;
-import android.animation.PropertyValuesHolder;
-import android.animation.ValueAnimator;
-import android.animation.ValueAnimator.AnimatorUpdateListener;
 import android.content.Context;
 import android.content.res.Resources;
 import android.graphics.Canvas;
 import android.graphics.Paint;
 import android.util.Log;
-import android.view.View;
 
 import com.android.datetimepicker.R;
 import com.android.datetimepicker.Utils;
@@ -35,7 +29,7 @@ import com.android.datetimepicker.Utils;
  * View to show what number is selected. This will draw a blue circle over the number, with a blue
  * line coming from the center of the main circle to the edge of the blue selection.
  */
-class RadialSelectorView extends View {
+class RadialSelectorView extends RadialLayer {
     private static final String TAG = "RadialSelectorView";
 
     // Alpha level for selected circle.
@@ -43,56 +37,55 @@ class RadialSelectorView extends View {
     private static final int SELECTED_ALPHA_THEME_DARK = Utils.SELECTED_ALPHA_THEME_DARK;
     // Alpha level for the line.
     private static final int FULL_ALPHA = Utils.FULL_ALPHA;
+    // Degrees run from 0 to 360 inclusive, since the hour constraint treats 0 and 360 apart.
+    private static final int DEGREES_COUNT = 361;
 
     private final Paint mPaint = new Paint();
 
     private boolean mIsInitialized;
-    private boolean mDrawValuesReady;
 
-    private float mCircleRadiusMultiplier;
-    private float mAmPmCircleRadiusMultiplier;
     private float mInnerNumbersRadiusMultiplier;
     private float mOuterNumbersRadiusMultiplier;
     private float mNumbersRadiusMultiplier;
     private float mSelectionRadiusMultiplier;
     private float mAnimationRadiusMultiplier;
-    private boolean mIs24HourMode;
     private boolean mHasInnerCircle;
     private int mSelectionAlpha;
 
-    private int mXCenter;
-    private int mYCenter;
-    private int mCircleRadius;
     private float mTransitionMidRadiusMultiplier;
     private float mTransitionEndRadiusMultiplier;
     private int mLineLength;
-    private int mSelectionRadius;
-    private InvalidateUpdateListener mInvalidateUpdateListener;
 
     private int mSelectionDegrees;
-    private double mSelectionRadians;
     private boolean mForceDrawDot;
 
-    private int mMinHour;
-    private int mMinMinute;
-    private int mMaxHour;
-    private int mMaxMinute;
+    // Which dial this is, and the values that may be picked on it given the selected hour.
+    private TimeAvailability mAvailability;
+    private int mIndex;
+    private long mAvailableValues;
     private int mSelectedHour;
 
-    private boolean innerRadiusSelection;
-    private boolean mIsHourSelection;
+    // The inner numbers' radius multiplier, even without an inner circle; a selection drawn at
+    // that radius is checked against the inner circle's hours.
+    private float mInnerRadiusMultiplierValue;
+    private boolean mInnerRadiusSelection;
     private final float COMPARING_FLOATS_EPSILON = 0.001f;
 
-    public RadialSelectorView(Context context) {
-        super(context);
+    // Bit d is set if selecting d degrees picks an available value, for a selection on
+    // the inner circle and on the outer (or only) circle. Rebuilt when the constraints or the
+    // selected hour change, so that drawing only needs to test the selection's bit.
+    private final long[] mLegalInnerDegrees = new long[(DEGREES_COUNT + 63) / 64];
+    private final long[] mLegalOuterDegrees = new long[(DEGREES_COUNT + 63) / 64];
+    private boolean mSelectionLegal;
+
+    public RadialSelectorView(RadialDialView host) {
+        super(host);
         mIsInitialized = false;
     }
 
     /**
      * Initialize this selector with the state of the picker.
      * @param context Current context.
-     * @param is24HourMode Whether the selector is in 24-hour mode, which will tell us
-     * whether the circle's center is moved up slightly to make room for the AM/PM circles.
      * @param hasInnerCircle Whether we have both an inner and an outer circle of numbers
      * that may be selected. Should be true for 24-hour mode in the hours circle.
      * @param disappearsOut Whether the numbers' animation will have them disappearing out
@@ -101,20 +94,17 @@ class RadialSelectorView extends View {
      * @param isInnerCircle Whether the initial selection is in the inner or outer circle.
      * Will be ignored when hasInnerCircle is false.
      */
-    public void initialize(Context context, boolean is24HourMode, boolean hasInnerCircle,
-            boolean disappearsOut, int selectionDegrees, boolean isInnerCircle, int minHour, int maxHour, int minMinute, int maxMinute) {
+    public void initialize(Context context, boolean hasInnerCircle,
+            boolean disappearsOut, int selectionDegrees, boolean isInnerCircle,
+            TimeAvailability availability, int index) {
         if (mIsInitialized) {
             Log.e(TAG, "This RadialSelectorView may only be initialized once.");
             return;
         }
 
-        mMinHour = minHour;
-        mMaxHour = maxHour;
-        if (mMaxHour == 0) mMaxHour = 23;
-        mMinMinute = minMinute;
-        mMaxMinute = maxMinute;
-        if (mMaxMinute == 0) mMaxMinute = 59;
-        mIsHourSelection = disappearsOut;
+        mAvailability = availability;
+        mIndex = index;
+        mAvailableValues = availability.getAvailableValues(index, mSelectedHour);
 
         Resources res = context.getResources();
 
@@ -123,38 +113,24 @@ class RadialSelectorView extends View {
         mPaint.setAntiAlias(true);
         mSelectionAlpha = SELECTED_ALPHA;
 
-        // Calculate values for the circle radius size.
-        mIs24HourMode = is24HourMode;
-        if (is24HourMode) {
-            mCircleRadiusMultiplier = Float.parseFloat(
-                    res.getString(R.string.circle_radius_multiplier_24HourMode));
-        } else {
-            mCircleRadiusMultiplier = Float.parseFloat(
-                    res.getString(R.string.circle_radius_multiplier));
-            mAmPmCircleRadiusMultiplier =
-                    Float.parseFloat(res.getString(R.string.ampm_circle_radius_multiplier));
-        }
-
         // Calculate values for the radius size(s) of the numbers circle(s).
+        RadialResources radialRes = RadialResources.getInstance(res);
         mHasInnerCircle = hasInnerCircle;
         if (hasInnerCircle) {
-            mInnerNumbersRadiusMultiplier =
-                    Float.parseFloat(res.getString(R.string.numbers_radius_multiplier_inner));
-            mOuterNumbersRadiusMultiplier =
-                    Float.parseFloat(res.getString(R.string.numbers_radius_multiplier_outer));
+            mInnerNumbersRadiusMultiplier = radialRes.numbersRadiusMultiplierInner;
+            mOuterNumbersRadiusMultiplier = radialRes.numbersRadiusMultiplierOuter;
         } else {
-            mNumbersRadiusMultiplier =
-                    Float.parseFloat(res.getString(R.string.numbers_radius_multiplier_normal));
+            mNumbersRadiusMultiplier = radialRes.numbersRadiusMultiplierNormal;
         }
-        mSelectionRadiusMultiplier =
-                Float.parseFloat(res.getString(R.string.selection_radius_multiplier));
+        mSelectionRadiusMultiplier = radialRes.selectionRadiusMultiplier;
+        mInnerRadiusMultiplierValue = radialRes.numbersRadiusMultiplierInner;
 
         // Calculate values for the transition mid-way states.
         mAnimationRadiusMultiplier = 1;
         mTransitionMidRadiusMultiplier = 1f + (0.05f * (disappearsOut? -1 : 1));
         mTransitionEndRadiusMultiplier = 1f + (0.3f * (disappearsOut? 1 : -1));
-        mInvalidateUpdateListener = new InvalidateUpdateListener();
 
+        rebuildLegalDegrees();
         setSelection(selectionDegrees, isInnerCircle, false);
         mIsInitialized = true;
     }
@@ -170,6 +146,7 @@ class RadialSelectorView extends View {
             mSelectionAlpha = SELECTED_ALPHA;
         }
         mPaint.setColor(color);
+        invalidate();
     }
 
     /**
@@ -183,7 +160,6 @@ class RadialSelectorView extends View {
      */
     public void setSelection(int selectionDegrees, boolean isInnerCircle, boolean forceDrawDot) {
         mSelectionDegrees = selectionDegrees;
-        mSelectionRadians = selectionDegrees * Math.PI / 180;
         mForceDrawDot = forceDrawDot;
 
         if (mHasInnerCircle) {
@@ -193,14 +169,8 @@ class RadialSelectorView extends View {
                 mNumbersRadiusMultiplier = mOuterNumbersRadiusMultiplier;
             }
         }
-    }
-
-    /**
-     * Allows for smoother animations.
-     */
-    @Override
-    public boolean hasOverlappingRendering() {
-        return false;
+        mInnerRadiusSelection = equals(mNumbersRadiusMultiplier, mInnerRadiusMultiplierValue);
+        updateSelectionLegal();
     }
 
     /**
@@ -211,22 +181,27 @@ class RadialSelectorView extends View {
     }
 
     public int getDegreesFromCoords(float pointX, float pointY, boolean forceLegal,
-                                    final Boolean[] isInnerCircle) {
-        if (!mDrawValuesReady) {
+                                    final boolean[] isInnerCircle) {
+        RadialGeometry geometry = getGeometry();
+        if (geometry == null || !mIsInitialized) {
             return -1;
         }
+        final int xCenter = geometry.xCenter;
+        final int yCenter = geometry.yCenter;
+        final int circleRadius = geometry.circleRadius;
+        final int selectionRadius = getSelectionRadius(geometry);
 
         double hypotenuse = Math.sqrt(
-                (pointY - mYCenter)*(pointY - mYCenter) +
-                        (pointX - mXCenter)*(pointX - mXCenter));
+                (pointY - yCenter)*(pointY - yCenter) +
+                        (pointX - xCenter)*(pointX - xCenter));
         // Check if we're outside the range
         if (mHasInnerCircle) {
             if (forceLegal) {
                 // If we're told to force the coordinates to be legal, we'll set the isInnerCircle
                 // boolean based based off whichever number the coordinates are closer to.
-                int innerNumberRadius = (int) (mCircleRadius * mInnerNumbersRadiusMultiplier);
+                int innerNumberRadius = (int) (circleRadius * mInnerNumbersRadiusMultiplier);
                 int distanceToInnerNumber = (int) Math.abs(hypotenuse - innerNumberRadius);
-                int outerNumberRadius = (int) (mCircleRadius * mOuterNumbersRadiusMultiplier);
+                int outerNumberRadius = (int) (circleRadius * mOuterNumbersRadiusMultiplier);
                 int distanceToOuterNumber = (int) Math.abs(hypotenuse - outerNumberRadius);
 
                 isInnerCircle[0] = (distanceToInnerNumber <= distanceToOuterNumber);
@@ -235,10 +210,10 @@ class RadialSelectorView extends View {
                 // two allotted equally), set the isInnerCircle boolean as the closer one.
                 // appropriately, but otherwise return -1.
                 int minAllowedHypotenuseForInnerNumber =
-                        (int) (mCircleRadius * mInnerNumbersRadiusMultiplier) - mSelectionRadius;
+                        (int) (circleRadius * mInnerNumbersRadiusMultiplier) - selectionRadius;
                 int maxAllowedHypotenuseForOuterNumber =
-                        (int) (mCircleRadius * mOuterNumbersRadiusMultiplier) + mSelectionRadius;
-                int halfwayHypotenusePoint = (int) (mCircleRadius *
+                        (int) (circleRadius * mOuterNumbersRadiusMultiplier) + selectionRadius;
+                int halfwayHypotenusePoint = (int) (circleRadius *
                         ((mOuterNumbersRadiusMultiplier + mInnerNumbersRadiusMultiplier) / 2));
 
                 if (hypotenuse >= minAllowedHypotenuseForInnerNumber &&
@@ -259,7 +234,7 @@ class RadialSelectorView extends View {
                 int distanceToNumber = (int) Math.abs(hypotenuse - mLineLength);
                 // The max allowed distance will be defined as the distance from the center of the
                 // number to the edge of the circle.
-                int maxAllowedDistance = (int) (mCircleRadius * (1 - mNumbersRadiusMultiplier));
+                int maxAllowedDistance = (int) (circleRadius * (1 - mNumbersRadiusMultiplier));
                 if (distanceToNumber > maxAllowedDistance) {
                     return -1;
                 }
@@ -267,13 +242,12 @@ class RadialSelectorView extends View {
         }
 
 
-        float opposite = Math.abs(pointY - mYCenter);
-        double radians = Math.asin(opposite / hypotenuse);
-        int degrees = (int) (radians * 180 / Math.PI);
+        float opposite = Math.abs(pointY - yCenter);
+        int degrees = RadialMath.getDegreesFromSineRatio(opposite / hypotenuse);
 
         // Now we have to translate to the correct quadrant.
-        boolean rightSide = (pointX > mXCenter);
-        boolean topSide = (pointY < mYCenter);
+        boolean rightSide = (pointX > xCenter);
+        boolean topSide = (pointY < yCenter);
         if (rightSide && topSide) {
             degrees = 90 - degrees;
         } else if (rightSide && !topSide) {
@@ -287,154 +261,147 @@ class RadialSelectorView extends View {
     }
 
     @Override
-    public void onDraw(Canvas canvas) {
-        int viewWidth = getWidth();
-        if (viewWidth == 0 || !mIsInitialized) {
-            return;
-        }
+    boolean isStatic() {
+        return false;
+    }
 
-        if (!mDrawValuesReady) {
-            mXCenter = getWidth() / 2;
-            mYCenter = getHeight() / 2;
-            mCircleRadius = (int) (Math.min(mXCenter, mYCenter) * mCircleRadiusMultiplier);
-
-            if (!mIs24HourMode) {
-                // We'll need to draw the AM/PM circles, so the main circle will need to have
-                // a slightly higher center. To keep the entire view centered vertically, we'll
-                // have to push it up by half the radius of the AM/PM circles.
-                int amPmCircleRadius = (int) (mCircleRadius * mAmPmCircleRadiusMultiplier);
-                mYCenter -= amPmCircleRadius / 2;
-            }
+    /* package */ int getSelectionDegrees() {
+        return mSelectionDegrees;
+    }
+
+    /* package */ int getSelectionRadius(RadialGeometry geometry) {
+        return (int) (geometry.circleRadius * mSelectionRadiusMultiplier);
+    }
 
-            mSelectionRadius = (int) (mCircleRadius * mSelectionRadiusMultiplier);
+    /**
+     * @return The distance from the center of the dial to the center of the selection circle.
+     */
+    /* package */ int getLineLength(RadialGeometry geometry) {
+        return (int) (geometry.circleRadius * mNumbersRadiusMultiplier
+                * mAnimationRadiusMultiplier);
+    }
 
-            mDrawValuesReady = true;
+    @Override
+    void draw(Canvas canvas) {
+        RadialGeometry geometry = getGeometry();
+        if (geometry == null || !mIsInitialized) {
+            return;
         }
+        final int xCenter = geometry.xCenter;
+        final int yCenter = geometry.yCenter;
+        final int selectionRadius = getSelectionRadius(geometry);
 
         // Calculate the current radius at which to place the selection circle.
-        mLineLength = (int) (mCircleRadius * mNumbersRadiusMultiplier * mAnimationRadiusMultiplier);
-        int pointX = mXCenter + (int) (mLineLength * Math.sin(mSelectionRadians));
-        int pointY = mYCenter - (int) (mLineLength * Math.cos(mSelectionRadians));
+        mLineLength = getLineLength(geometry);
+        int pointX = xCenter + (int) (mLineLength * RadialMath.sin(mSelectionDegrees));
+        int pointY = yCenter - (int) (mLineLength * RadialMath.cos(mSelectionDegrees));
 
         // Draw the selection circle.
-        mPaint.setAlpha(mSelectionAlpha);
+        mPaint.setAlpha(fade(mSelectionAlpha));
 
-        innerRadiusSelection = equals(mNumbersRadiusMultiplier, Float.parseFloat(getResources().getString(R.string.numbers_radius_multiplier_inner)));
-
-        if (constraintsAreMet(innerRadiusSelection, mSelectionDegrees)){
-            canvas.drawCircle(pointX, pointY, mSelectionRadius, mPaint);
+        if (mSelectionLegal) {
+            canvas.drawCircle(pointX, pointY, selectionRadius, mPaint);
         }
 
         if (mForceDrawDot | mSelectionDegrees % 30 != 0) {
             // We're not on a direct tick (or we've been told to draw the dot anyway).
-            mPaint.setAlpha(FULL_ALPHA);
+            mPaint.setAlpha(fade(FULL_ALPHA));
 
-            if (constraintsAreMet(innerRadiusSelection, mSelectionDegrees)){
-                canvas.drawCircle(pointX, pointY, (mSelectionRadius * 2 / 7), mPaint);
+            if (mSelectionLegal) {
+                canvas.drawCircle(pointX, pointY, (selectionRadius * 2 / 7), mPaint);
             }
         } else {
             // We're not drawing the dot, so shorten the line to only go as far as the edge of the
             // selection circle.
             int lineLength = mLineLength;
-            lineLength -= mSelectionRadius;
-            pointX = mXCenter + (int) (lineLength * Math.sin(mSelectionRadians));
-            pointY = mYCenter - (int) (lineLength * Math.cos(mSelectionRadians));
+            lineLength -= selectionRadius;
+            pointX = xCenter + (int) (lineLength * RadialMath.sin(mSelectionDegrees));
+            pointY = yCenter - (int) (lineLength * RadialMath.cos(mSelectionDegrees));
         }
 
         // Draw the line from the center of the circle.
-        mPaint.setAlpha(255);
+        mPaint.setAlpha(fade(255));
         mPaint.setStrokeWidth(1);
-        if (constraintsAreMet(innerRadiusSelection, mSelectionDegrees)){
-            canvas.drawLine(mXCenter, mYCenter, pointX, pointY, mPaint);
+        if (mSelectionLegal) {
+            canvas.drawLine(xCenter, yCenter, pointX, pointY, mPaint);
         }
     }
 
-    public ObjectAnimator getDisappearAnimator() {
-        if (!mIsInitialized || !mDrawValuesReady) {
-            Log.e(TAG, "RadialSelectorView was not ready for animation.");
-            return null;
-        }
-
-        Keyframe kf0, kf1, kf2;
-        float midwayPoint = 0.2f;
-        int duration = 500;
-
-        kf0 = Keyframe.ofFloat(0f, 1);
-        kf1 = Keyframe.ofFloat(midwayPoint, mTransitionMidRadiusMultiplier);
-        kf2 = Keyframe.ofFloat(1f, mTransitionEndRadiusMultiplier);
-        PropertyValuesHolder radiusDisappear = PropertyValuesHolder.ofKeyframe(
-                "animationRadiusMultiplier", kf0, kf1, kf2);
-
-        kf0 = Keyframe.ofFloat(0f, 1f);
-        kf1 = Keyframe.ofFloat(1f, 0f);
-        PropertyValuesHolder fadeOut = PropertyValuesHolder.ofKeyframe("alpha", kf0, kf1);
-
-        ObjectAnimator disappearAnimator = ObjectAnimator.ofPropertyValuesHolder(
-                this, radiusDisappear, fadeOut).setDuration(duration);
-        disappearAnimator.addUpdateListener(mInvalidateUpdateListener);
-
-        return disappearAnimator;
+    /**
+     * Moves and fades this view for the given point of the transition between the hours and the
+     * minutes dial.
+     * @param disappearing Whether this view is disappearing rather than reappearing.
+     * @param fraction The fraction of the transition that has elapsed.
+     */
+    /* package */ void setTransitionFraction(boolean disappearing, float fraction) {
+        setAnimationRadiusMultiplier(DialTransition.getRadiusMultiplier(disappearing, fraction,
+                mTransitionMidRadiusMultiplier, mTransitionEndRadiusMultiplier));
+        setAlpha(DialTransition.getAlpha(disappearing, fraction));
+        invalidate();
     }
 
-    public ObjectAnimator getReappearAnimator() {
-        if (!mIsInitialized || !mDrawValuesReady) {
-            Log.e(TAG, "RadialSelectorView was not ready for animation.");
-            return null;
+    /**
+     * @param selectedHour What the values that may be picked depend on, see
+     * {@link RadialTextsView#setSelectedHour(int)}.
+     */
+    public void setSelectedHour(int selectedHour){
+        if (mSelectedHour == selectedHour) {
+            return;
+        }
+        mSelectedHour = selectedHour;
+        if (mIsInitialized) {
+            mAvailableValues = mAvailability.getAvailableValues(mIndex, selectedHour);
+            rebuildLegalDegrees();
+            updateSelectionLegal();
         }
-
-        Keyframe kf0, kf1, kf2, kf3;
-        float midwayPoint = 0.2f;
-        int duration = 500;
-
-        // The time points are half of what they would normally be, because this animation is
-        // staggered against the disappear so they happen seamlessly. The reappear starts
-        // halfway into the disappear.
-        float delayMultiplier = 0.25f;
-        float transitionDurationMultiplier = 1f;
-        float totalDurationMultiplier = transitionDurationMultiplier + delayMultiplier;
-        int totalDuration = (int) (duration * totalDurationMultiplier);
-        float delayPoint = (delayMultiplier * duration) / totalDuration;
-        midwayPoint = 1 - (midwayPoint * (1 - delayPoint));
-
-        kf0 = Keyframe.ofFloat(0f, mTransitionEndRadiusMultiplier);
-        kf1 = Keyframe.ofFloat(delayPoint, mTransitionEndRadiusMultiplier);
-        kf2 = Keyframe.ofFloat(midwayPoint, mTransitionMidRadiusMultiplier);
-        kf3 = Keyframe.ofFloat(1f, 1);
-        PropertyValuesHolder radiusReappear = PropertyValuesHolder.ofKeyframe(
-                "animationRadiusMultiplier", kf0, kf1, kf2, kf3);
-
-        kf0 = Keyframe.ofFloat(0f, 0f);
-        kf1 = Keyframe.ofFloat(delayPoint, 0f);
-        kf2 = Keyframe.ofFloat(1f, 1f);
-        PropertyValuesHolder fadeIn = PropertyValuesHolder.ofKeyframe("alpha", kf0, kf1, kf2);
-
-        ObjectAnimator reappearAnimator = ObjectAnimator.ofPropertyValuesHolder(
-                this, radiusReappear, fadeIn).setDuration(totalDuration);
-        reappearAnimator.addUpdateListener(mInvalidateUpdateListener);
-        return reappearAnimator;
     }
 
     /**
-     * We'll need to invalidate during the animation.
+     * Replaces the times that may be picked, see {@link RadialTextsView#setAvailability}.
      */
-    private class InvalidateUpdateListener implements AnimatorUpdateListener {
-        @Override
-        public void onAnimationUpdate(ValueAnimator animation) {
-            RadialSelectorView.this.invalidate();
+    /* package */ void setAvailability(TimeAvailability availability) {
+        mAvailability = availability;
+        if (mIsInitialized) {
+            mAvailableValues = mAvailability.getAvailableValues(mIndex, mSelectedHour);
+            rebuildLegalDegrees();
+            updateSelectionLegal();
+            invalidate();
         }
     }
 
-    public void setSelectedHour(int selectedHour){
-        mSelectedHour = selectedHour;
+    private void rebuildLegalDegrees() {
+        for (int degrees = 0; degrees < DEGREES_COUNT; degrees++) {
+            setBit(mLegalInnerDegrees, degrees, constraintsAreMet(true, degrees));
+            setBit(mLegalOuterDegrees, degrees, constraintsAreMet(false, degrees));
+        }
+    }
+
+    private void updateSelectionLegal() {
+        final long[] legalDegrees = mInnerRadiusSelection ? mLegalInnerDegrees : mLegalOuterDegrees;
+        final int degrees = mSelectionDegrees;
+        mSelectionLegal = degrees >= 0 && degrees < DEGREES_COUNT
+                && (legalDegrees[degrees >> 6] & (1L << degrees)) != 0;
+    }
+
+    private static void setBit(long[] bits, int index, boolean value) {
+        if (value) {
+            bits[index >> 6] |= 1L << index;
+        } else {
+            bits[index >> 6] &= ~(1L << index);
+        }
     }
 
     private boolean equals(float val1, float val2){
         return Math.abs(val1 - val2) < COMPARING_FLOATS_EPSILON;
     }
 
-    private boolean minAndMaxHourConstraintIsMet(boolean isInnerRadius,int selectionDegrees){
+    private boolean hourIsAvailable(boolean isInnerRadius, int selectionDegrees){
         float hour_float = selectionDegrees / 30.0f;
         int hour = (int)hour_float + ((hour_float - (int)hour_float) < 0.5f ? 0 : 1);
+        if (!mHasInnerCircle) {
+            // The 12-hour dial's availability is indexed by the hour modulo 12.
+            return (mAvailableValues & (1L << (hour % 12))) != 0;
+        }
         if (isInnerRadius){
             if (hour == 0){
                 hour = 12;
@@ -446,27 +413,15 @@ class RadialSelectorView extends View {
                 hour = 0;
             }
         }
-        return (hour >= mMinHour) && (hour <= mMaxHour);
-    }
-
-    private boolean minAndMaxMinutesConstraintIsMet(int selectionDegrees){
-        int selectedMinute = selectionDegrees / 6;
-        boolean checkedMinMinute = true;
-        boolean checkedMaxMinute = true;
-        if (mSelectedHour == mMinHour){
-            checkedMinMinute = (selectedMinute >= mMinMinute);
-        }
-        if (mSelectedHour == mMaxHour){
-            checkedMaxMinute = (selectedMinute <= mMaxMinute);
-        }
-        return checkedMaxMinute && checkedMinMinute;
+        return (mAvailableValues & (1L << hour)) != 0;
     }
 
     private boolean constraintsAreMet(boolean isInnerRadius,int selectionDegrees) {
-        if (mIsHourSelection) {
-            return minAndMaxHourConstraintIsMet(isInnerRadius,selectionDegrees);
+        if (mIndex == TimePickerDialog.HOUR_INDEX) {
+            return hourIsAvailable(isInnerRadius, selectionDegrees);
         } else {
-            return minAndMaxMinutesConstraintIsMet(selectionDegrees);
+            // 360 degrees is 0 minutes or seconds.
+            return (mAvailableValues & (1L << ((selectionDegrees / 6) % 60))) != 0;
         }
     }
 }
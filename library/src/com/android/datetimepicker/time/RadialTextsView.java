@@ -16,11 +16,6 @@
 
 package com.android.datetimepicker.time;
 
-import android.animation.Keyframe;
-import android.animation.ObjectAnimator;
-import android.animation.PropertyValuesHolder;
-import android.animation.ValueAnimator;
-import android.animation.ValueAnimator.AnimatorUpdateListener;
 import android.content.Context;
 import android.content.res.Resources;
 import android.graphics.Canvas;
@@ -28,43 +23,40 @@ import android.graphics.Paint;
 import android.graphics.Typeface;
 import android.graphics.Paint.Align;
 import android.util.Log;
-import android.view.View;
 
 import com.android.datetimepicker.R;
 
 /**
  * A view to show a series of numbers in a circular pattern.
  */
-class RadialTextsView extends View {
+class RadialTextsView extends RadialLayer {
     private final static String TAG = "RadialTextsView";
 
     private final Paint mPaint = new Paint();
 
-    private boolean mDrawValuesReady;
     private boolean mIsInitialized;
 
     private Typeface mTypefaceLight;
     private Typeface mTypefaceRegular;
     private String[] mTexts;
     private String[] mInnerTexts;
-    private boolean mIs24HourMode;
+    // The numbers behind the texts, and a mask with bit i set if texts[i] may be selected.
+    private int[] mValues;
+    private int[] mInnerValues;
+    private int mEnabledMask;
+    private int mInnerEnabledMask;
     private boolean mHasInnerCircle;
-    private float mCircleRadiusMultiplier;
-    private float mAmPmCircleRadiusMultiplier;
     private float mNumbersRadiusMultiplier;
     private float mInnerNumbersRadiusMultiplier;
     private float mTextSizeMultiplier;
     private float mInnerTextSizeMultiplier;
-    private int mMinHour;
-    private int mMaxHour;
-    private int mMaxMinute;
-    private int mMinMinute;
+    // Which dial this is, and the values that may be picked on it given the selected hour.
+    private TimeAvailability mAvailability;
+    private int mIndex;
+    private long mAvailableValues;
     protected int mDisabledTextColor;
     protected int mTextColorNormal;
     private int mSelectedHour;
-    private int mXCenter;
-    private int mYCenter;
-    private float mCircleRadius;
     private boolean mTextGridValuesDirty;
     private float mTextSize;
     private float mInnerTextSize;
@@ -76,17 +68,15 @@ class RadialTextsView extends View {
     private float mAnimationRadiusMultiplier;
     private float mTransitionMidRadiusMultiplier;
     private float mTransitionEndRadiusMultiplier;
-    ObjectAnimator mDisappearAnimator;
-    ObjectAnimator mReappearAnimator;
-    private InvalidateUpdateListener mInvalidateUpdateListener;
 
-    public RadialTextsView(Context context) {
-        super(context);
+    public RadialTextsView(RadialDialView host) {
+        super(host);
         mIsInitialized = false;
     }
 
     public void initialize(Resources res, String[] texts, String[] innerTexts,
-            boolean is24HourMode, boolean disappearsOut, int minHour, int maxHour, int minMinute, int maxMinute) {
+            boolean disappearsOut, TimeAvailability availability,
+            int index) {
         if (mIsInitialized) {
             Log.e(TAG, "This RadialTextsView may only be initialized once.");
             return;
@@ -94,63 +84,44 @@ class RadialTextsView extends View {
 
         mDisabledTextColor = res.getColor(R.color.date_picker_text_disabled);
         mTextColorNormal = res.getColor(R.color.date_picker_text_normal);
-        mMinHour = minHour;
-        mMaxHour = maxHour;
-        mMinMinute = minMinute;
-        mMaxMinute = maxMinute;
+        mAvailability = availability;
+        mIndex = index;
 
         // Set up the paint.
         int numbersTextColor = res.getColor(R.color.numbers_text_color);
         mPaint.setColor(numbersTextColor);
-        String typefaceFamily = res.getString(R.string.radial_numbers_typeface);
-        mTypefaceLight = Typeface.create(typefaceFamily, Typeface.NORMAL);
-        String typefaceFamilyRegular = res.getString(R.string.sans_serif);
-        mTypefaceRegular = Typeface.create(typefaceFamilyRegular, Typeface.NORMAL);
+        RadialResources radialRes = RadialResources.getInstance(res);
+        mTypefaceLight = radialRes.numbersTypeface;
+        mTypefaceRegular = radialRes.regularTypeface;
         mPaint.setAntiAlias(true);
         mPaint.setTextAlign(Align.CENTER);
 
         mTexts = texts;
         mInnerTexts = innerTexts;
-        mIs24HourMode = is24HourMode;
         mHasInnerCircle = (innerTexts != null);
-
-        // Calculate the radius for the main circle.
-        if (is24HourMode) {
-            mCircleRadiusMultiplier = Float.parseFloat(
-                    res.getString(R.string.circle_radius_multiplier_24HourMode));
-        } else {
-            mCircleRadiusMultiplier = Float.parseFloat(
-                    res.getString(R.string.circle_radius_multiplier));
-            mAmPmCircleRadiusMultiplier =
-                    Float.parseFloat(res.getString(R.string.ampm_circle_radius_multiplier));
-        }
+        mValues = parseValues(texts);
+        mInnerValues = mHasInnerCircle ? parseValues(innerTexts) : null;
+        updateEnabledMasks();
 
         // Initialize the widths and heights of the grid, and calculate the values for the numbers.
         mTextGridHeights = new float[7];
         mTextGridWidths = new float[7];
         if (mHasInnerCircle) {
-            mNumbersRadiusMultiplier = Float.parseFloat(
-                    res.getString(R.string.numbers_radius_multiplier_outer));
-            mTextSizeMultiplier = Float.parseFloat(
-                    res.getString(R.string.text_size_multiplier_outer));
-            mInnerNumbersRadiusMultiplier = Float.parseFloat(
-                    res.getString(R.string.numbers_radius_multiplier_inner));
-            mInnerTextSizeMultiplier = Float.parseFloat(
-                    res.getString(R.string.text_size_multiplier_inner));
+            mNumbersRadiusMultiplier = radialRes.numbersRadiusMultiplierOuter;
+            mTextSizeMultiplier = radialRes.textSizeMultiplierOuter;
+            mInnerNumbersRadiusMultiplier = radialRes.numbersRadiusMultiplierInner;
+            mInnerTextSizeMultiplier = radialRes.textSizeMultiplierInner;
 
             mInnerTextGridHeights = new float[7];
             mInnerTextGridWidths = new float[7];
         } else {
-            mNumbersRadiusMultiplier = Float.parseFloat(
-                    res.getString(R.string.numbers_radius_multiplier_normal));
-            mTextSizeMultiplier = Float.parseFloat(
-                    res.getString(R.string.text_size_multiplier_normal));
+            mNumbersRadiusMultiplier = radialRes.numbersRadiusMultiplierNormal;
+            mTextSizeMultiplier = radialRes.textSizeMultiplierNormal;
         }
 
         mAnimationRadiusMultiplier = 1;
         mTransitionMidRadiusMultiplier = 1f + (0.05f * (disappearsOut? -1 : 1));
         mTransitionEndRadiusMultiplier = 1f + (0.3f * (disappearsOut? 1 : -1));
-        mInvalidateUpdateListener = new InvalidateUpdateListener();
 
         mTextGridValuesDirty = true;
         mIsInitialized = true;
@@ -165,14 +136,7 @@ class RadialTextsView extends View {
             textColor = res.getColor(R.color.numbers_text_color);
         }
         mPaint.setColor(textColor);
-    }
-
-    /**
-     * Allows for smoother animation.
-     */
-    @Override
-    public boolean hasOverlappingRendering() {
-        return false;
+        invalidate();
     }
 
     /**
@@ -181,61 +145,47 @@ class RadialTextsView extends View {
     public void setAnimationRadiusMultiplier(float animationRadiusMultiplier) {
         mAnimationRadiusMultiplier = animationRadiusMultiplier;
         mTextGridValuesDirty = true;
+        invalidate();
     }
 
     @Override
-    public void onDraw(Canvas canvas) {
-        int viewWidth = getWidth();
-        if (viewWidth == 0 || !mIsInitialized) {
-            return;
-        }
-
-        if (!mDrawValuesReady) {
-            mXCenter = getWidth() / 2;
-            mYCenter = getHeight() / 2;
-            mCircleRadius = Math.min(mXCenter, mYCenter) * mCircleRadiusMultiplier;
-            if (!mIs24HourMode) {
-                // We'll need to draw the AM/PM circles, so the main circle will need to have
-                // a slightly higher center. To keep the entire view centered vertically, we'll
-                // have to push it up by half the radius of the AM/PM circles.
-                float amPmCircleRadius = mCircleRadius * mAmPmCircleRadiusMultiplier;
-                mYCenter -= amPmCircleRadius / 2;
-            }
-
-            mTextSize = mCircleRadius * mTextSizeMultiplier;
-            if (mHasInnerCircle) {
-                mInnerTextSize = mCircleRadius * mInnerTextSizeMultiplier;
-            }
-
-            // Because the text positions will be static, pre-render the animations.
-            renderAnimations();
+    void onGeometryChanged() {
+        mTextGridValuesDirty = true;
+    }
 
-            mTextGridValuesDirty = true;
-            mDrawValuesReady = true;
+    @Override
+    void draw(Canvas canvas) {
+        RadialGeometry geometry = getGeometry();
+        if (geometry == null || !mIsInitialized) {
+            return;
         }
 
-        // Calculate the text positions, but only if they've changed since the last onDraw.
+        // Calculate the text positions, but only if they've changed since the last draw.
         if (mTextGridValuesDirty) {
+            float circleRadius = geometry.circleRadius;
+            mTextSize = circleRadius * mTextSizeMultiplier;
             float numbersRadius =
-                    mCircleRadius * mNumbersRadiusMultiplier * mAnimationRadiusMultiplier;
+                    circleRadius * mNumbersRadiusMultiplier * mAnimationRadiusMultiplier;
 
             // Calculate the positions for the 12 numbers in the main circle.
-            calculateGridSizes(numbersRadius, mXCenter, mYCenter,
+            calculateGridSizes(numbersRadius, geometry.xCenter, geometry.yCenter,
                     mTextSize, mTextGridHeights, mTextGridWidths);
             if (mHasInnerCircle) {
                 // If we have an inner circle, calculate those positions too.
+                mInnerTextSize = circleRadius * mInnerTextSizeMultiplier;
                 float innerNumbersRadius =
-                        mCircleRadius * mInnerNumbersRadiusMultiplier * mAnimationRadiusMultiplier;
-                calculateGridSizes(innerNumbersRadius, mXCenter, mYCenter,
+                        circleRadius * mInnerNumbersRadiusMultiplier * mAnimationRadiusMultiplier;
+                calculateGridSizes(innerNumbersRadius, geometry.xCenter, geometry.yCenter,
                         mInnerTextSize, mInnerTextGridHeights, mInnerTextGridWidths);
             }
             mTextGridValuesDirty = false;
         }
 
         // Draw the texts in the pre-calculated positions.
-        drawTexts(canvas, mTextSize, mTypefaceLight, mTexts, mTextGridWidths, mTextGridHeights);
+        drawTexts(canvas, mTextSize, mTypefaceLight, mTexts, mEnabledMask,
+                mTextGridWidths, mTextGridHeights);
         if (mHasInnerCircle) {
-            drawTexts(canvas, mInnerTextSize, mTypefaceRegular, mInnerTexts,
+            drawTexts(canvas, mInnerTextSize, mTypefaceRegular, mInnerTexts, mInnerEnabledMask,
                     mInnerTextGridWidths, mInnerTextGridHeights);
         }
     }
@@ -252,7 +202,7 @@ class RadialTextsView extends View {
          */
         float offset1 = numbersRadius;
         // cos(30) = a / r => r * cos(30) = a => r * √3/2 = a
-        float offset2 = numbersRadius * ((float) Math.sqrt(3)) / 2f;
+        float offset2 = numbersRadius * RadialMath.SQRT_3 / 2f;
         // sin(30) = o / r => r * sin(30) = o => r / 2 = a
         float offset3 = numbersRadius / 2f;
         mPaint.setTextSize(textSize);
@@ -279,127 +229,108 @@ class RadialTextsView extends View {
      * Draw the 12 text values at the positions specified by the textGrid parameters.
      */
     private void drawTexts(Canvas canvas, float textSize, Typeface typeface, String[] texts,
-            float[] textGridWidths, float[] textGridHeights) {
+            int enabledMask, float[] textGridWidths, float[] textGridHeights) {
         mPaint.setTextSize(textSize);
         mPaint.setTypeface(typeface);
-        drawText(canvas, texts[0], textGridWidths[3], textGridHeights[0]);
-        drawText(canvas, texts[1], textGridWidths[4], textGridHeights[1]);
-        drawText(canvas, texts[2], textGridWidths[5], textGridHeights[2]);
-        drawText(canvas, texts[3], textGridWidths[6], textGridHeights[3]);
-        drawText(canvas, texts[4], textGridWidths[5], textGridHeights[4]);
-        drawText(canvas, texts[5], textGridWidths[4], textGridHeights[5]);
-        drawText(canvas, texts[6], textGridWidths[3], textGridHeights[6]);
-        drawText(canvas, texts[7], textGridWidths[2], textGridHeights[5]);
-        drawText(canvas, texts[8], textGridWidths[1], textGridHeights[4]);
-        drawText(canvas, texts[9], textGridWidths[0], textGridHeights[3]);
-        drawText(canvas, texts[10], textGridWidths[1], textGridHeights[2]);
-        drawText(canvas, texts[11], textGridWidths[2], textGridHeights[1]);
+        drawText(canvas, texts[0], enabledMask, 0, textGridWidths[3], textGridHeights[0]);
+        drawText(canvas, texts[1], enabledMask, 1, textGridWidths[4], textGridHeights[1]);
+        drawText(canvas, texts[2], enabledMask, 2, textGridWidths[5], textGridHeights[2]);
+        drawText(canvas, texts[3], enabledMask, 3, textGridWidths[6], textGridHeights[3]);
+        drawText(canvas, texts[4], enabledMask, 4, textGridWidths[5], textGridHeights[4]);
+        drawText(canvas, texts[5], enabledMask, 5, textGridWidths[4], textGridHeights[5]);
+        drawText(canvas, texts[6], enabledMask, 6, textGridWidths[3], textGridHeights[6]);
+        drawText(canvas, texts[7], enabledMask, 7, textGridWidths[2], textGridHeights[5]);
+        drawText(canvas, texts[8], enabledMask, 8, textGridWidths[1], textGridHeights[4]);
+        drawText(canvas, texts[9], enabledMask, 9, textGridWidths[0], textGridHeights[3]);
+        drawText(canvas, texts[10], enabledMask, 10, textGridWidths[1], textGridHeights[2]);
+        drawText(canvas, texts[11], enabledMask, 11, textGridWidths[2], textGridHeights[1]);
     }
 
-    private void drawText(Canvas canvas, String text, float width, float height){
-        setPaintColorEnabledOrDisabled(text);
+    private void drawText(Canvas canvas, String text, int enabledMask, int index, float width,
+            float height) {
+        mPaint.setColor((enabledMask & (1 << index)) != 0 ? mTextColorNormal : mDisabledTextColor);
+        mPaint.setAlpha(fade(mPaint.getAlpha()));
         canvas.drawText(text, width, height, mPaint);
     }
 
+    /**
+     * @param selectedHour What the values that may be picked depend on: the selected hour of the
+     * day for the minutes, the selected minute of the day for the seconds, and for the hours
+     * AM or PM, or -1 for a 24-hour dial.
+     */
     public void setSelectedHour(int selectedHour){
+        if (mSelectedHour == selectedHour) {
+            return;
+        }
         mSelectedHour = selectedHour;
+        if (mIsInitialized) {
+            updateEnabledMasks();
+        }
     }
 
     /**
-     * Render the animations for appearing and disappearing.
+     * Replaces the times that may be picked, e.g. once more constraints are known.
      */
-    private void renderAnimations() {
-        Keyframe kf0, kf1, kf2, kf3;
-        float midwayPoint = 0.2f;
-        int duration = 500;
-
-        // Set up animator for disappearing.
-        kf0 = Keyframe.ofFloat(0f, 1);
-        kf1 = Keyframe.ofFloat(midwayPoint, mTransitionMidRadiusMultiplier);
-        kf2 = Keyframe.ofFloat(1f, mTransitionEndRadiusMultiplier);
-        PropertyValuesHolder radiusDisappear = PropertyValuesHolder.ofKeyframe(
-                "animationRadiusMultiplier", kf0, kf1, kf2);
-
-        kf0 = Keyframe.ofFloat(0f, 1f);
-        kf1 = Keyframe.ofFloat(1f, 0f);
-        PropertyValuesHolder fadeOut = PropertyValuesHolder.ofKeyframe("alpha", kf0, kf1);
-
-        mDisappearAnimator = ObjectAnimator.ofPropertyValuesHolder(
-                this, radiusDisappear, fadeOut).setDuration(duration);
-        mDisappearAnimator.addUpdateListener(mInvalidateUpdateListener);
-
-
-        // Set up animator for reappearing.
-        float delayMultiplier = 0.25f;
-        float transitionDurationMultiplier = 1f;
-        float totalDurationMultiplier = transitionDurationMultiplier + delayMultiplier;
-        int totalDuration = (int) (duration * totalDurationMultiplier);
-        float delayPoint = (delayMultiplier * duration) / totalDuration;
-        midwayPoint = 1 - (midwayPoint * (1 - delayPoint));
-
-        kf0 = Keyframe.ofFloat(0f, mTransitionEndRadiusMultiplier);
-        kf1 = Keyframe.ofFloat(delayPoint, mTransitionEndRadiusMultiplier);
-        kf2 = Keyframe.ofFloat(midwayPoint, mTransitionMidRadiusMultiplier);
-        kf3 = Keyframe.ofFloat(1f, 1);
-        PropertyValuesHolder radiusReappear = PropertyValuesHolder.ofKeyframe(
-                "animationRadiusMultiplier", kf0, kf1, kf2, kf3);
-
-        kf0 = Keyframe.ofFloat(0f, 0f);
-        kf1 = Keyframe.ofFloat(delayPoint, 0f);
-        kf2 = Keyframe.ofFloat(1f, 1f);
-        PropertyValuesHolder fadeIn = PropertyValuesHolder.ofKeyframe("alpha", kf0, kf1, kf2);
-
-        mReappearAnimator = ObjectAnimator.ofPropertyValuesHolder(
-                this, radiusReappear, fadeIn).setDuration(totalDuration);
-        mReappearAnimator.addUpdateListener(mInvalidateUpdateListener);
-    }
-
-    public ObjectAnimator getDisappearAnimator() {
-        if (!mIsInitialized || !mDrawValuesReady || mDisappearAnimator == null) {
-            Log.e(TAG, "RadialTextView was not ready for animation.");
-            return null;
+    /* package */ void setAvailability(TimeAvailability availability) {
+        mAvailability = availability;
+        if (mIsInitialized) {
+            updateEnabledMasks();
         }
+    }
 
-        return mDisappearAnimator;
+    /**
+     * Moves and fades this view for the given point of the transition between the hours and the
+     * minutes dial.
+     * @param disappearing Whether this view is disappearing rather than reappearing.
+     * @param fraction The fraction of the transition that has elapsed.
+     */
+    /* package */ void setTransitionFraction(boolean disappearing, float fraction) {
+        setAnimationRadiusMultiplier(DialTransition.getRadiusMultiplier(disappearing, fraction,
+                mTransitionMidRadiusMultiplier, mTransitionEndRadiusMultiplier));
+        setAlpha(DialTransition.getAlpha(disappearing, fraction));
+        invalidate();
     }
 
-    public ObjectAnimator getReappearAnimator() {
-        if (!mIsInitialized || !mDrawValuesReady || mReappearAnimator == null) {
-            Log.e(TAG, "RadialTextView was not ready for animation.");
-            return null;
+    private static int[] parseValues(String[] texts) {
+        int[] values = new int[texts.length];
+        for (int i = 0; i < texts.length; i++) {
+            values[i] = Integer.parseInt(texts[i]);
         }
-
-        return mReappearAnimator;
+        return values;
     }
 
-    private class InvalidateUpdateListener implements AnimatorUpdateListener {
-        @Override
-        public void onAnimationUpdate(ValueAnimator animation) {
-            RadialTextsView.this.invalidate();
+    /**
+     * Recomputes which texts are drawn as enabled. Called when the constraints or the selected
+     * hour change, so that drawing needs no parsing or comparisons.
+     */
+    private void updateEnabledMasks() {
+        int enabledMask = mEnabledMask;
+        int innerEnabledMask = mInnerEnabledMask;
+        mAvailableValues = mAvailability.getAvailableValues(mIndex, mSelectedHour);
+        mEnabledMask = getEnabledMask(mValues);
+        if (mHasInnerCircle) {
+            mInnerEnabledMask = getEnabledMask(mInnerValues);
+        }
+        if (mEnabledMask != enabledMask || mInnerEnabledMask != innerEnabledMask) {
+            invalidate();
         }
     }
 
-    private void setPaintColorEnabledOrDisabled(String text){
-        if (mHasInnerCircle) {
-            if ((Integer.parseInt(text) >= mMinHour) && (Integer.parseInt(text) <= mMaxHour)){
-                mPaint.setColor(mTextColorNormal);
-            } else {
-                mPaint.setColor(mDisabledTextColor);
-            }
-        }else{
-            boolean checkedMinMinute = true;
-            boolean checkedMaxMinute = true;
-            if (mSelectedHour == mMinHour){
-                checkedMinMinute = (Integer.parseInt(text) >= mMinMinute);
-            }
-            if (mSelectedHour == mMaxHour){
-                checkedMaxMinute = (Integer.parseInt(text) <= mMaxMinute);
-            }
-            if (checkedMinMinute && checkedMaxMinute){
-                mPaint.setColor(mTextColorNormal);
-            } else {
-                mPaint.setColor(mDisabledTextColor);
+    private int getEnabledMask(int[] values) {
+        int mask = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (isValueEnabled(values[i])) {
+                mask |= 1 << i;
             }
         }
+        return mask;
+    }
+
+    private boolean isValueEnabled(int value) {
+        if (mIndex == TimePickerDialog.HOUR_INDEX && mSelectedHour >= 0) {
+            // The 12-hour dial's availability is indexed by the hour modulo 12.
+            value %= 12;
+        }
+        return (mAvailableValues & (1L << value)) != 0;
     }
 }
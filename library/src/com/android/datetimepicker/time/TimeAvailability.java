@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.datetimepicker.time;
+
+import java.util.Arrays;
+
+/**
+ * The times of the day that may be picked: those between the minimum and the maximum time, less
+ * any disabled ranges. It is kept as one bit per minute of the day, with one summary bit per
+ * hour, so that the dials and the keyboard mode can check any value with a bit test. The seconds
+ * are only restricted within the minutes of the minimum and the maximum time. Instances are
+ * immutable.
+ */
+final class TimeAvailability {
+
+    static final int MINUTES_PER_DAY = 24 * 60;
+    static final int SECONDS_PER_DAY = MINUTES_PER_DAY * 60;
+
+    private static final long ALL_SIXTY = (1L << 60) - 1;
+
+    private final int mMinTime;
+    private final int mMaxTime;
+    // Bit m is set if minute m of the day is available.
+    private final long[] mMinuteBits = new long[(MINUTES_PER_DAY + 63) / 64];
+    // Bit h is set if any minute of hour h is available.
+    private final int mHourBits;
+
+    /**
+     * @param minTime The minimum time, in seconds of the day.
+     * @param maxTime The maximum time, in seconds of the day.
+     * @param disabledRanges Pairs of minutes of the day; the minutes from the first of each pair
+     * up to, but not including, the second are disabled. May be null.
+     */
+    TimeAvailability(int minTime, int maxTime, int[] disabledRanges) {
+        mMinTime = minTime;
+        mMaxTime = maxTime;
+        for (int minute = minTime / 60; minute <= maxTime / 60 && minute < MINUTES_PER_DAY;
+                minute++) {
+            mMinuteBits[minute >> 6] |= 1L << minute;
+        }
+        if (disabledRanges != null) {
+            for (int i = 0; i + 1 < disabledRanges.length; i += 2) {
+                int end = Math.min(disabledRanges[i + 1], MINUTES_PER_DAY);
+                for (int minute = Math.max(disabledRanges[i], 0); minute < end; minute++) {
+                    mMinuteBits[minute >> 6] &= ~(1L << minute);
+                }
+            }
+        }
+        int hourBits = 0;
+        for (int hour = 0; hour < 24; hour++) {
+            if (getAvailableMinutes(hour) != 0) {
+                hourBits |= 1 << hour;
+            }
+        }
+        mHourBits = hourBits;
+    }
+
+    int getMinTime() {
+        return mMinTime;
+    }
+
+    int getMaxTime() {
+        return mMaxTime;
+    }
+
+    boolean isHourAvailable(int hourOfDay) {
+        return hourOfDay >= 0 && hourOfDay < 24 && (mHourBits & (1 << hourOfDay)) != 0;
+    }
+
+    boolean isMinuteAvailable(int minuteOfDay) {
+        return minuteOfDay >= 0 && minuteOfDay < MINUTES_PER_DAY
+                && (mMinuteBits[minuteOfDay >> 6] & (1L << minuteOfDay)) != 0;
+    }
+
+    /**
+     * @return A mask with bit h set if any minute of hour h is available.
+     */
+    int getAvailableHours() {
+        return mHourBits;
+    }
+
+    /**
+     * @return A mask with bit m set if minute m of the given hour is available.
+     */
+    long getAvailableMinutes(int hourOfDay) {
+        if (hourOfDay < 0 || hourOfDay >= 24) {
+            return 0;
+        }
+        int first = hourOfDay * 60;
+        int shift = first & 63;
+        long minutes = mMinuteBits[first >> 6] >>> shift;
+        if (shift > 4) {
+            // The hour continues in the next word.
+            minutes |= mMinuteBits[(first >> 6) + 1] << (64 - shift);
+        }
+        return minutes & ALL_SIXTY;
+    }
+
+    /**
+     * @return A mask with bit s set if second s of the given minute of the day is available.
+     */
+    long getAvailableSeconds(int minuteOfDay) {
+        if (!isMinuteAvailable(minuteOfDay)) {
+            return 0;
+        }
+        long seconds = ALL_SIXTY;
+        if (minuteOfDay == mMinTime / 60) {
+            seconds &= ALL_SIXTY << (mMinTime % 60);
+        }
+        if (minuteOfDay == mMaxTime / 60) {
+            seconds &= ALL_SIXTY >>> (59 - mMaxTime % 60);
+        }
+        return seconds & ALL_SIXTY;
+    }
+
+    /**
+     * @param index TimePickerDialog.HOUR_INDEX, MINUTE_INDEX or SECOND_INDEX.
+     * @param selected For the hours, TimePickerDialog.AM or PM for a 12-hour dial, or -1 for a
+     * 24-hour dial. For the minutes, the selected hour of the day, and for the seconds, the
+     * selected minute of the day.
+     * @return A mask with a bit set for each value of the dial that may be picked. The bits of a
+     * 12-hour dial are the hours modulo 12.
+     */
+    long getAvailableValues(int index, int selected) {
+        if (index == TimePickerDialog.HOUR_INDEX) {
+            if (selected == TimePickerDialog.AM) {
+                return mHourBits & 0xFFF;
+            } else if (selected == TimePickerDialog.PM) {
+                return (mHourBits >>> 12) & 0xFFF;
+            }
+            return mHourBits;
+        } else if (index == TimePickerDialog.MINUTE_INDEX) {
+            return getAvailableMinutes(selected);
+        } else if (index == TimePickerDialog.SECOND_INDEX) {
+            return getAvailableSeconds(selected);
+        }
+        return 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof TimeAvailability)) {
+            return false;
+        }
+        TimeAvailability other = (TimeAvailability) o;
+        return mMinTime == other.mMinTime && mMaxTime == other.mMaxTime
+                && Arrays.equals(mMinuteBits, other.mMinuteBits);
+    }
+
+    @Override
+    public int hashCode() {
+        return (mMinTime * 31 + mMaxTime) * 31 + Arrays.hashCode(mMinuteBits);
+    }
+}
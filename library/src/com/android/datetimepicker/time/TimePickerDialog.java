@@ -22,7 +22,9 @@ import android.app.DialogFragment;
 import android.content.Context;
 import android.content.res.ColorStateList;
 import android.content.res.Resources;
+import android.os.AsyncTask;
 import android.os.Bundle;
+import android.os.Handler;
 import android.util.Log;
 import android.view.KeyCharacterMap;
 import android.view.KeyEvent;
@@ -40,9 +42,10 @@ import com.android.datetimepicker.R;
 import com.android.datetimepicker.Utils;
 import com.android.datetimepicker.time.RadialPickerLayout.OnValueSelectedListener;
 
-import java.text.DateFormatSymbols;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.Executor;
 
 /**
  * Dialog to set a time.
@@ -60,6 +63,14 @@ public class TimePickerDialog extends DialogFragment implements OnValueSelectedL
     private static final String KEY_IN_KB_MODE = "in_kb_mode";
     private static final String KEY_TYPED_TIMES = "typed_times";
     private static final String KEY_DARK_THEME = "dark_theme";
+    private static final String KEY_SECOND = "second";
+    private static final String KEY_ENABLE_SECONDS = "enable_seconds";
+    private static final String KEY_RANGE_MODE = "range_mode";
+    private static final String KEY_ACTIVE_HANDLE = "active_handle";
+    private static final String KEY_END_HOUR_OF_DAY = "end_hour_of_day";
+    private static final String KEY_END_MINUTE = "end_minute";
+    private static final String KEY_END_SECOND = "end_second";
+    private static final String KEY_DURATION_MODE = "duration_mode";
 
     public static final int HOUR_INDEX = 0;
     public static final int MINUTE_INDEX = 1;
@@ -67,8 +78,20 @@ public class TimePickerDialog extends DialogFragment implements OnValueSelectedL
     public static final int AMPM_INDEX = 2;
     // Also NOT a real index, just used for keyboard mode.
     public static final int ENABLE_PICKER_INDEX = 3;
+    public static final int SECOND_INDEX = 4;
+    // NOT a real index either, used when the other handle of a range becomes the active one.
+    public static final int RANGE_HANDLE_INDEX = 5;
     public static final int AM = 0;
     public static final int PM = 1;
+    // The handles of a range of times.
+    public static final int RANGE_START = 0;
+    public static final int RANGE_END = 1;
+
+    // The most keys a time is typed with: two for each of the hours, minutes and seconds, and AM/PM.
+    private static final int MAX_TYPED_KEYS = 7;
+    // A typed duration has up to this many digits of hours, then two of minutes and seconds.
+    private static final int MAX_DURATION_HOUR_DIGITS = 4;
+    private static final int MAX_DURATION_TYPED_KEYS = MAX_DURATION_HOUR_DIGITS + 4;
 
     // Delay before starting the pulse animation, in ms.
     private static final int PULSE_ANIMATOR_DELAY = 300;
@@ -82,23 +105,53 @@ public class TimePickerDialog extends DialogFragment implements OnValueSelectedL
     private TextView mHourSpaceView;
     private TextView mMinuteView;
     private TextView mMinuteSpaceView;
+    private TextView mSecondView;
+    private TextView mSecondSpaceView;
     private TextView mAmPmTextView;
     private View mAmPmHitspace;
+    private TextView mRangeLabel;
     private RadialPickerLayout mTimePicker;
 
     private int mSelectedColor;
     private int mUnselectedColor;
     private String mAmText;
     private String mPmText;
+    private String mRangeStartText;
+    private String mRangeEndText;
     private int mMinHour = 0;
     private int mMinMinute = 0;
     private int mMaxHour = 23;
     private int mMaxMinute = 59;
+    private int mMinSecond = 0;
+    private int mMaxSecond = 59;
+    private int mMinuteInterval = 1;
+    // Pairs of minutes of the day, from the first up to the second of which may not be picked.
+    private int[] mDisabledRanges = new int[0];
+    private TimeAvailability mAvailability;
+    private ZoneDay mZoneDay;
+    private AvailabilityProvider mAvailabilityProvider;
+    private Executor mAvailabilityExecutor;
+    private final Handler mHandler = new Handler();
+    // The minutes the provider gave for each hour it was asked about, with bit h of
+    // mProvidedHours set for each such hour h.
+    private final long[] mProvidedMinutes = new long[24];
+    private int mProvidedHours;
+    private AvailabilityRequest mPendingRequest;
 
     private boolean mAllowAutoAdvance;
     private int mInitialHourOfDay;
     private int mInitialMinute;
+    private int mInitialSecond;
+    private boolean mEnableSeconds;
+    private boolean mRangeMode;
+    private int mInitialEndHourOfDay;
+    private int mInitialEndMinute;
+    private int mInitialEndSecond;
+    private int mInitialActiveHandle = RANGE_START;
+    private boolean mDurationMode;
     private boolean mIs24HourMode;
+    // Whether the header shows the hours without AM/PM, as in 24-hour or duration mode.
+    private boolean mHideAmPm;
     private boolean mThemeDark;
 
     // For hardware IME input.
@@ -106,8 +159,11 @@ public class TimePickerDialog extends DialogFragment implements OnValueSelectedL
     private String mDoublePlaceholderText;
     private String mDeletedKeyFormat;
     private boolean mInKbMode;
-    private ArrayList<Integer> mTypedTimes;
-    private Node mLegalTimesTree;
+    // The keys typed so far, and the automaton's state before the first and after each of them.
+    private final int[] mTypedKeys = new int[MAX_DURATION_TYPED_KEYS];
+    private final int[] mTypedStates = new int[MAX_DURATION_TYPED_KEYS + 1];
+    private int mTypedCount;
+    private TypedTimeAutomaton mTypedTimeAutomaton;
     private int mAmKeyCode;
     private int mPmKeyCode;
 
@@ -116,6 +172,8 @@ public class TimePickerDialog extends DialogFragment implements OnValueSelectedL
     private String mSelectHours;
     private String mMinutePickerDescription;
     private String mSelectMinutes;
+    private String mSecondPickerDescription;
+    private String mSelectSeconds;
 
     /**
      * The callback interface used to indicate the user is done filling in
@@ -124,13 +182,79 @@ public class TimePickerDialog extends DialogFragment implements OnValueSelectedL
     public interface OnTimeSetListener {
 
         /**
-         * @param view The view associated with this listener.
+         * @param view The view associated with this listener. If the seconds are enabled, the
+         * second that was set is available from {@link RadialPickerLayout#getSeconds()}.
          * @param hourOfDay The hour that was set.
          * @param minute The minute that was set.
          */
         void onTimeSet(RadialPickerLayout view, int hourOfDay, int minute);
     }
 
+    /**
+     * The callback interface used to indicate the user is done filling in the time, when the
+     * picker was given a date and time zone with {@link #setTimeZoneContext}. It is called instead
+     * of {@link OnTimeSetListener#onTimeSet} then.
+     */
+    public interface OnZonedTimeSetListener extends OnTimeSetListener {
+
+        /**
+         * @param view The view associated with this listener.
+         * @param hourOfDay The hour that was set.
+         * @param minute The minute that was set.
+         * @param timeInMillis The instant at which the time happens on the given date. For a time
+         * which happens twice, as the clocks go back, this is the first time.
+         * @param isRepeated Whether the time happens twice on the given date.
+         */
+        void onZonedTimeSet(RadialPickerLayout view, int hourOfDay, int minute,
+                long timeInMillis, boolean isRepeated);
+    }
+
+    /**
+     * The callback interface used to indicate the user is done filling in a range of times, in
+     * range mode. It is called instead of {@link OnTimeSetListener#onTimeSet} then.
+     */
+    public interface OnTimeRangeSetListener extends OnTimeSetListener {
+
+        /**
+         * @param view The view associated with this listener. If the seconds are enabled, the
+         * seconds that were set are available from {@link RadialPickerLayout#getSeconds(int)}.
+         * @param startHourOfDay The hour the range starts at.
+         * @param startMinute The minute the range starts at.
+         * @param endHourOfDay The hour the range ends at. The range runs clockwise from its start,
+         * so it may end on the next day, at an earlier time than it starts.
+         * @param endMinute The minute the range ends at.
+         */
+        void onTimeRangeSet(RadialPickerLayout view, int startHourOfDay, int startMinute,
+                int endHourOfDay, int endMinute);
+    }
+
+    /**
+     * The callback interface used to indicate the user is done filling in a duration, in
+     * duration mode. It is called instead of {@link OnTimeSetListener#onTimeSet} then.
+     */
+    public interface OnDurationSetListener extends OnTimeSetListener {
+
+        /**
+         * @param view The view associated with this listener.
+         * @param durationMillis The duration that was set, in milliseconds.
+         */
+        void onDurationSet(RadialPickerLayout view, long durationMillis);
+    }
+
+    /**
+     * Provides the minutes that may be picked, e.g. from a database, on top of the min and max
+     * time and the disabled ranges.
+     */
+    public interface AvailabilityProvider {
+
+        /**
+         * Called on a background thread, once for each hour of the day that gets selected.
+         * @param hourOfDay The selected hour (0-23).
+         * @return A mask with bit m set if minute m of the hour may be picked.
+         */
+        long getAvailableMinutes(int hourOfDay);
+    }
+
     public TimePickerDialog() {
         // Empty constructor required for dialog fragment.
     }
@@ -147,8 +271,50 @@ public class TimePickerDialog extends DialogFragment implements OnValueSelectedL
         return ret;
     }
 
+    /**
+     * @return A dialog in range mode, picking the start and end of a range of times.
+     */
+    public static TimePickerDialog newRangeInstance(OnTimeRangeSetListener callback,
+            int startHourOfDay, int startMinute, int endHourOfDay, int endMinute,
+            boolean is24HourMode) {
+        TimePickerDialog ret = new TimePickerDialog();
+        ret.initialize(callback, startHourOfDay, startMinute, is24HourMode);
+        ret.setEndTime(endHourOfDay, endMinute);
+        return ret;
+    }
+
+    /**
+     * @return A dialog in duration mode, picking a number of hours, minutes and optionally
+     * seconds.
+     */
+    public static TimePickerDialog newDurationInstance(OnDurationSetListener callback,
+            long durationMillis, boolean enableSeconds) {
+        TimePickerDialog ret = new TimePickerDialog();
+        ret.initialize(callback, 0, 0, true);
+        ret.setDurationMode(true);
+        ret.setEnableSeconds(enableSeconds);
+        ret.setDuration(durationMillis);
+        return ret;
+    }
+
+    /**
+     * Parses the dial dimensions and builds the typefaces and locale-dependent labels used by the
+     * time picker on a background thread, so that a dialog shown afterwards can draw its first
+     * frame without doing so. Safe to call more than once.
+     */
+    public static void prewarm(Context context) {
+        final Resources res = context.getApplicationContext().getResources();
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                RadialResources.getInstance(res);
+            }
+        });
+    }
+
     public void initialize(OnTimeSetListener callback,
             int hourOfDay, int minute, boolean is24HourMode) {
+        checkDurationCallback(callback, mDurationMode);
         mCallback = callback;
 
         mInitialHourOfDay = hourOfDay;
@@ -170,6 +336,7 @@ public class TimePickerDialog extends DialogFragment implements OnValueSelectedL
     }
 
     public void setOnTimeSetListener(OnTimeSetListener callback) {
+        checkDurationCallback(callback, mDurationMode);
         mCallback = callback;
     }
 
@@ -179,6 +346,87 @@ public class TimePickerDialog extends DialogFragment implements OnValueSelectedL
         mInKbMode = false;
     }
 
+    public void setStartTime(int hourOfDay, int minute, int second) {
+        setStartTime(hourOfDay, minute);
+        mInitialSecond = second;
+    }
+
+    /**
+     * Show a third ring for picking the seconds. NOTE: this will only take effect for the next
+     * onCreateView.
+     */
+    public void setEnableSeconds(boolean enableSeconds) {
+        mEnableSeconds = enableSeconds;
+    }
+
+    public boolean isEnableSeconds() {
+        return mEnableSeconds;
+    }
+
+    /**
+     * Pick a range of times, with a start and an end handle on the same dials, rather than a
+     * single time. The start time is the one the dialog was initialized with. NOTE: this will only
+     * take effect for the next onCreateView.
+     */
+    public void setRangeMode(boolean rangeMode) {
+        mRangeMode = rangeMode;
+    }
+
+    public boolean isRangeMode() {
+        return mRangeMode;
+    }
+
+    /**
+     * Sets the end of the range, and turns range mode on.
+     */
+    public void setEndTime(int hourOfDay, int minute) {
+        mInitialEndHourOfDay = hourOfDay;
+        mInitialEndMinute = minute;
+        mRangeMode = true;
+        mInKbMode = false;
+    }
+
+    public void setEndTime(int hourOfDay, int minute, int second) {
+        setEndTime(hourOfDay, minute);
+        mInitialEndSecond = second;
+    }
+
+    /**
+     * Pick a duration, with as many hours as needed, rather than a time of day. The hours dial
+     * adds 12 hours each time its hand goes round past 12, and typed durations are read from the
+     * right, so that 90 typed minutes are 1:30. The min and max time, disabled ranges, time zone
+     * context and range mode do not apply. NOTE: this will only take effect for the next
+     * onCreateView.
+     * @throws IllegalArgumentException If durationMode is true and the listener is not an
+     * {@link OnDurationSetListener}, as a duration does not fit
+     * {@link OnTimeSetListener#onTimeSet}.
+     */
+    public void setDurationMode(boolean durationMode) {
+        checkDurationCallback(mCallback, durationMode);
+        mDurationMode = durationMode;
+    }
+
+    private static void checkDurationCallback(OnTimeSetListener callback, boolean durationMode) {
+        if (durationMode && callback != null && !(callback instanceof OnDurationSetListener)) {
+            throw new IllegalArgumentException("Duration mode requires an OnDurationSetListener");
+        }
+    }
+
+    public boolean isDurationMode() {
+        return mDurationMode;
+    }
+
+    /**
+     * Sets the initial duration, in duration mode.
+     */
+    public void setDuration(long durationMillis) {
+        long totalSeconds = Math.max(0, durationMillis / 1000);
+        mInitialHourOfDay = (int) Math.min(totalSeconds / 3600, Integer.MAX_VALUE);
+        mInitialMinute = (int) (totalSeconds / 60 % 60);
+        mInitialSecond = (int) (totalSeconds % 60);
+        mInKbMode = false;
+    }
+
     @Override
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -190,6 +438,14 @@ public class TimePickerDialog extends DialogFragment implements OnValueSelectedL
             mIs24HourMode = savedInstanceState.getBoolean(KEY_IS_24_HOUR_VIEW);
             mInKbMode = savedInstanceState.getBoolean(KEY_IN_KB_MODE);
             mThemeDark = savedInstanceState.getBoolean(KEY_DARK_THEME);
+            mInitialSecond = savedInstanceState.getInt(KEY_SECOND);
+            mEnableSeconds = savedInstanceState.getBoolean(KEY_ENABLE_SECONDS);
+            mRangeMode = savedInstanceState.getBoolean(KEY_RANGE_MODE);
+            mInitialEndHourOfDay = savedInstanceState.getInt(KEY_END_HOUR_OF_DAY);
+            mInitialEndMinute = savedInstanceState.getInt(KEY_END_MINUTE);
+            mInitialEndSecond = savedInstanceState.getInt(KEY_END_SECOND);
+            mInitialActiveHandle = savedInstanceState.getInt(KEY_ACTIVE_HANDLE, RANGE_START);
+            mDurationMode = savedInstanceState.getBoolean(KEY_DURATION_MODE);
         }
     }
 
@@ -207,6 +463,8 @@ public class TimePickerDialog extends DialogFragment implements OnValueSelectedL
         mSelectHours = res.getString(R.string.select_hours);
         mMinutePickerDescription = res.getString(R.string.minute_picker_description);
         mSelectMinutes = res.getString(R.string.select_minutes);
+        mSecondPickerDescription = res.getString(R.string.second_picker_description);
+        mSelectSeconds = res.getString(R.string.select_seconds);
         mSelectedColor = res.getColor(mThemeDark? R.color.red : R.color.blue);
         mUnselectedColor =
                 res.getColor(mThemeDark? android.R.color.white : R.color.numbers_text_color);
@@ -217,19 +475,40 @@ public class TimePickerDialog extends DialogFragment implements OnValueSelectedL
         mMinuteSpaceView = (TextView) view.findViewById(R.id.minutes_space);
         mMinuteView = (TextView) view.findViewById(R.id.minutes);
         mMinuteView.setOnKeyListener(keyboardListener);
+        mSecondSpaceView = (TextView) view.findViewById(R.id.seconds_space);
+        mSecondView = (TextView) view.findViewById(R.id.seconds);
+        mSecondView.setOnKeyListener(keyboardListener);
         mAmPmTextView = (TextView) view.findViewById(R.id.ampm_label);
         mAmPmTextView.setOnKeyListener(keyboardListener);
-        String[] amPmTexts = new DateFormatSymbols().getAmPmStrings();
-        mAmText = amPmTexts[0];
-        mPmText = amPmTexts[1];
+        RadialResources radialRes = RadialResources.getInstance(res);
+        mAmText = radialRes.amText;
+        mPmText = radialRes.pmText;
+        mRangeStartText = res.getString(R.string.range_start_label);
+        mRangeEndText = res.getString(R.string.range_end_label);
 
         mHapticFeedbackController = new HapticFeedbackController(getActivity());
 
+        mHideAmPm = mIs24HourMode || mDurationMode;
         mTimePicker = (RadialPickerLayout) view.findViewById(R.id.time_picker);
         mTimePicker.setOnValueSelectedListener(this);
         mTimePicker.setOnKeyListener(keyboardListener);
-        mTimePicker.initialize(getActivity(), mHapticFeedbackController, mInitialHourOfDay,
-            mInitialMinute, mIs24HourMode, mMinHour, mMaxHour, mMinMinute, mMaxMinute);
+        mTimePicker.setMinuteInterval(mMinuteInterval);
+        if (mDurationMode) {
+            mTimePicker.setDurationMode(true);
+        }
+        mAvailability = buildAvailability();
+        // In duration mode, the hours dial is the 12-hour one, and goes round as many times as
+        // there are hours.
+        mTimePicker.initialize(getActivity(), mHapticFeedbackController,
+                mDurationMode ? 0 : mInitialHourOfDay, mInitialMinute, mInitialSecond,
+                mDurationMode ? false : mIs24HourMode, mEnableSeconds, mAvailability);
+        if (mDurationMode) {
+            mTimePicker.setDuration(mInitialHourOfDay, mInitialMinute, mInitialSecond);
+        }
+        if (isRangeActive()) {
+            mTimePicker.initializeRange(getActivity(), mInitialEndHourOfDay, mInitialEndMinute,
+                    mInitialEndSecond);
+        }
         int currentItemShowing = HOUR_INDEX;
         if (savedInstanceState != null &&
                 savedInstanceState.containsKey(KEY_CURRENT_ITEM_SHOWING)) {
@@ -252,6 +531,18 @@ public class TimePickerDialog extends DialogFragment implements OnValueSelectedL
                 tryVibrate();
             }
         });
+        if (mEnableSeconds) {
+            view.findViewById(R.id.seconds_separator).setVisibility(View.VISIBLE);
+            mSecondSpaceView.setVisibility(View.INVISIBLE);
+            view.findViewById(R.id.seconds_frame).setVisibility(View.VISIBLE);
+            mSecondView.setOnClickListener(new OnClickListener() {
+                @Override
+                public void onClick(View v) {
+                    setCurrentItemShowing(SECOND_INDEX, true, false, true);
+                    tryVibrate();
+                }
+            });
+        }
 
         mDoneButton = (TextView) view.findViewById(R.id.done_button);
         mDoneButton.setOnClickListener(new OnClickListener() {
@@ -262,10 +553,8 @@ public class TimePickerDialog extends DialogFragment implements OnValueSelectedL
                 } else {
                     tryVibrate();
                 }
-                if (mCallback != null) {
-                    mCallback.onTimeSet(mTimePicker,
-                            mTimePicker.getHours(), mTimePicker.getMinutes());
-                }
+                notifyTimeSet(mTimePicker.getHours(RANGE_START),
+                        mTimePicker.getMinutes(RANGE_START), mTimePicker.getSeconds(RANGE_START));
                 dismiss();
             }
         });
@@ -273,7 +562,7 @@ public class TimePickerDialog extends DialogFragment implements OnValueSelectedL
 
         // Enable or disable the AM/PM view.
         mAmPmHitspace = view.findViewById(R.id.ampm_hitspace);
-        if (mIs24HourMode) {
+        if (mHideAmPm) {
             mAmPmTextView.setVisibility(View.GONE);
 
             RelativeLayout.LayoutParams paramsSeparator = new RelativeLayout.LayoutParams(
@@ -301,23 +590,53 @@ public class TimePickerDialog extends DialogFragment implements OnValueSelectedL
         }
 
         mAllowAutoAdvance = true;
-        setHour(mInitialHourOfDay, true);
-        setMinute(mInitialMinute);
+        setHour(getDisplayedHours(), true);
+        // The picker may have snapped the initial minute to the minute interval.
+        setMinute(mTimePicker.getMinutes());
+        if (mEnableSeconds) {
+            setSecond(mInitialSecond);
+        }
+
+        // In range mode, a label above the dials shows which handle they move; tapping it
+        // switches to the other handle, as does touching the dial closer to the other handle.
+        mRangeLabel = (TextView) view.findViewById(R.id.range_label);
+        if (isRangeActive()) {
+            mRangeLabel.setVisibility(View.VISIBLE);
+            mRangeLabel.setText(mRangeStartText);
+            mRangeLabel.setOnKeyListener(keyboardListener);
+            mRangeLabel.setOnClickListener(new OnClickListener() {
+                @Override
+                public void onClick(View v) {
+                    if (mInKbMode) {
+                        if (!isTypedTimeFullyLegal()) {
+                            return;
+                        }
+                        finishKbMode(true);
+                    }
+                    tryVibrate();
+                    mTimePicker.setActiveRangeHandle(
+                            mTimePicker.getActiveRangeHandle() == RANGE_START
+                                    ? RANGE_END : RANGE_START);
+                }
+            });
+            mTimePicker.setActiveRangeHandle(mInitialActiveHandle);
+        }
 
         // Set up for keyboard mode.
         mDoublePlaceholderText = res.getString(R.string.time_placeholder);
         mDeletedKeyFormat = res.getString(R.string.deleted_key);
         mPlaceholderText = mDoublePlaceholderText.charAt(0);
         mAmKeyCode = mPmKeyCode = -1;
-        generateLegalTimesTree();
+        updateTypedTimeAutomaton();
+        mTypedStates[0] = TypedTimeAutomaton.START_STATE;
         if (mInKbMode) {
-            mTypedTimes = savedInstanceState.getIntegerArrayList(KEY_TYPED_TIMES);
+            setTypedKeys(savedInstanceState.getIntArray(KEY_TYPED_TIMES));
             tryStartingKbMode(-1);
             mHourView.invalidate();
-        } else if (mTypedTimes == null) {
-            mTypedTimes = new ArrayList<Integer>();
         }
 
+        requestAvailableMinutes();
+
         // Set the theme at the end so that the initialize()s above don't counteract the theme.
         mTimePicker.setTheme(getActivity().getApplicationContext(), mThemeDark);
         // Prepare some colors to use.
@@ -338,7 +657,11 @@ public class TimePickerDialog extends DialogFragment implements OnValueSelectedL
         view.findViewById(R.id.time_display_background).setBackgroundColor(mThemeDark? darkGray : white);
         view.findViewById(R.id.time_display).setBackgroundColor(mThemeDark? darkGray : white);
         ((TextView) view.findViewById(R.id.separator)).setTextColor(mThemeDark? white : timeDisplay);
+        ((TextView) view.findViewById(R.id.seconds_separator))
+                .setTextColor(mThemeDark? white : timeDisplay);
         ((TextView) view.findViewById(R.id.ampm_label)).setTextColor(mThemeDark? white : timeDisplay);
+        mRangeLabel.setBackgroundColor(mThemeDark? darkGray : white);
+        mRangeLabel.setTextColor(mThemeDark? white : timeDisplay);
         view.findViewById(R.id.line).setBackgroundColor(mThemeDark? darkLine : line);
         mDoneButton.setTextColor(mThemeDark? darkDoneTextColor : doneTextColor);
         mTimePicker.setBackgroundColor(mThemeDark? lightGray : circleBackground);
@@ -346,6 +669,12 @@ public class TimePickerDialog extends DialogFragment implements OnValueSelectedL
         return view;
     }
 
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        cancelAvailabilityRequest();
+    }
+
     @Override
     public void onResume() {
         super.onResume();
@@ -362,6 +691,10 @@ public class TimePickerDialog extends DialogFragment implements OnValueSelectedL
         mHapticFeedbackController.tryVibrate();
     }
 
+    /* package */ HapticFeedbackController getHapticFeedbackController() {
+        return mHapticFeedbackController;
+    }
+
     private void updateAmPmDisplay(int amOrPm) {
         if (amOrPm == AM) {
             mAmPmTextView.setText(mAmText);
@@ -379,15 +712,32 @@ public class TimePickerDialog extends DialogFragment implements OnValueSelectedL
     @Override
     public void onSaveInstanceState(Bundle outState) {
         if (mTimePicker != null) {
-            outState.putInt(KEY_HOUR_OF_DAY, mTimePicker.getHours());
-            outState.putInt(KEY_MINUTE, mTimePicker.getMinutes());
+            outState.putInt(KEY_HOUR_OF_DAY, mDurationMode ? mTimePicker.getDurationHours()
+                    : mTimePicker.getHours(RANGE_START));
+            outState.putInt(KEY_MINUTE, mTimePicker.getMinutes(RANGE_START));
             outState.putBoolean(KEY_IS_24_HOUR_VIEW, mIs24HourMode);
             outState.putInt(KEY_CURRENT_ITEM_SHOWING, mTimePicker.getCurrentItemShowing());
             outState.putBoolean(KEY_IN_KB_MODE, mInKbMode);
             if (mInKbMode) {
-                outState.putIntegerArrayList(KEY_TYPED_TIMES, mTypedTimes);
+                outState.putIntArray(KEY_TYPED_TIMES, Arrays.copyOf(mTypedKeys, mTypedCount));
             }
             outState.putBoolean(KEY_DARK_THEME, mThemeDark);
+            outState.putInt(KEY_SECOND, mTimePicker.getSeconds(RANGE_START));
+            outState.putBoolean(KEY_ENABLE_SECONDS, mEnableSeconds);
+            outState.putBoolean(KEY_RANGE_MODE, mRangeMode);
+            outState.putBoolean(KEY_DURATION_MODE, mDurationMode);
+            if (isRangeActive()) {
+                outState.putInt(KEY_END_HOUR_OF_DAY, mTimePicker.getHours(RANGE_END));
+                outState.putInt(KEY_END_MINUTE, mTimePicker.getMinutes(RANGE_END));
+                outState.putInt(KEY_END_SECOND, mTimePicker.getSeconds(RANGE_END));
+                outState.putInt(KEY_ACTIVE_HANDLE, mTimePicker.getActiveRangeHandle());
+            } else if (mRangeMode) {
+                // Keep the configured range for when duration mode is turned off again.
+                outState.putInt(KEY_END_HOUR_OF_DAY, mInitialEndHourOfDay);
+                outState.putInt(KEY_END_MINUTE, mInitialEndMinute);
+                outState.putInt(KEY_END_SECOND, mInitialEndSecond);
+                outState.putInt(KEY_ACTIVE_HANDLE, mInitialActiveHandle);
+            }
         }
     }
 
@@ -398,7 +748,7 @@ public class TimePickerDialog extends DialogFragment implements OnValueSelectedL
     public void onValueSelected(int pickerIndex, int newValue, boolean autoAdvance) {
         if (pickerIndex == HOUR_INDEX) {
             if (valueRespectsHoursConstraint(newValue)) {
-                setHour(newValue, false);
+                setHour(mDurationMode ? mTimePicker.getDurationHours() : newValue, false);
                 String announcement = String.format("%d", newValue);
                 if (mAllowAutoAdvance && autoAdvance) {
                     setCurrentItemShowing(MINUTE_INDEX, true, true, false);
@@ -412,21 +762,57 @@ public class TimePickerDialog extends DialogFragment implements OnValueSelectedL
         } else if (pickerIndex == MINUTE_INDEX){
             if (valueRespectsMinutesConstraint(newValue)) {
                 setMinute(newValue);
-                mTimePicker.setContentDescription(mMinutePickerDescription + ": " + newValue);
+                if (mEnableSeconds && mAllowAutoAdvance && autoAdvance) {
+                    setCurrentItemShowing(SECOND_INDEX, true, true, false);
+                    Utils.tryAccessibilityAnnounce(mTimePicker,
+                            String.format("%d", newValue) + ". " + mSelectSeconds);
+                } else {
+                    mTimePicker.setContentDescription(mMinutePickerDescription + ": " + newValue);
+                }
+            }
+        } else if (pickerIndex == SECOND_INDEX) {
+            if (valueRespectsSecondsConstraint(newValue)) {
+                setSecond(newValue);
+                mTimePicker.setContentDescription(mSecondPickerDescription + ": " + newValue);
             }
         } else if (pickerIndex == AMPM_INDEX) {
             updateAmPmDisplay(newValue);
+        } else if (pickerIndex == RANGE_HANDLE_INDEX) {
+            updateRangeDisplay(newValue);
         } else if (pickerIndex == ENABLE_PICKER_INDEX) {
             if (!isTypedTimeFullyLegal()) {
-                mTypedTimes.clear();
+                mTypedCount = 0;
             }
             finishKbMode(true);
         }
+        if (!mInKbMode) {
+            mDoneButton.setEnabled(mTimePicker.isTimeAvailable());
+        }
+        requestAvailableMinutes();
+    }
+
+    /**
+     * Shows which handle of the range is active, and its time.
+     */
+    private void updateRangeDisplay(int handle) {
+        String label = handle == RANGE_START ? mRangeStartText : mRangeEndText;
+        mRangeLabel.setText(label);
+        Utils.tryAccessibilityAnnounce(mTimePicker, label);
+        int hour = mTimePicker.getHours();
+        setHour(hour, false);
+        setMinute(mTimePicker.getMinutes());
+        if (mEnableSeconds) {
+            setSecond(mTimePicker.getSeconds());
+        }
+        if (!mHideAmPm) {
+            updateAmPmDisplay(hour < 12? AM : PM);
+        }
+        setCurrentItemShowing(mTimePicker.getCurrentItemShowing(), false, false, false);
     }
 
     private void setHour(int value, boolean announce) {
         String format;
-        if (mIs24HourMode) {
+        if (mHideAmPm) {
             format = "%02d";
         } else {
             format = "%d";
@@ -454,15 +840,25 @@ public class TimePickerDialog extends DialogFragment implements OnValueSelectedL
         mMinuteSpaceView.setText(text);
     }
 
-    // Show either Hours or Minutes.
+    private void setSecond(int value) {
+        if (value == 60) {
+            value = 0;
+        }
+        CharSequence text = String.format(Locale.getDefault(), "%02d", value);
+        Utils.tryAccessibilityAnnounce(mTimePicker, text);
+        mSecondView.setText(text);
+        mSecondSpaceView.setText(text);
+    }
+
+    // Show either Hours, Minutes or Seconds.
     private void setCurrentItemShowing(int index, boolean animateCircle, boolean delayLabelAnimate,
             boolean announce) {
         mTimePicker.setCurrentItemShowing(index, animateCircle);
 
         TextView labelToAnimate;
         if (index == HOUR_INDEX) {
-            int hours = mTimePicker.getHours();
-            if (!mIs24HourMode) {
+            int hours = getDisplayedHours();
+            if (!mHideAmPm) {
                 hours = hours % 12;
             }
             mTimePicker.setContentDescription(mHourPickerDescription + ": " + hours);
@@ -470,6 +866,13 @@ public class TimePickerDialog extends DialogFragment implements OnValueSelectedL
                 Utils.tryAccessibilityAnnounce(mTimePicker, mSelectHours);
             }
             labelToAnimate = mHourView;
+        } else if (index == SECOND_INDEX) {
+            int seconds = mTimePicker.getSeconds();
+            mTimePicker.setContentDescription(mSecondPickerDescription + ": " + seconds);
+            if (announce) {
+                Utils.tryAccessibilityAnnounce(mTimePicker, mSelectSeconds);
+            }
+            labelToAnimate = mSecondView;
         } else {
             int minutes = mTimePicker.getMinutes();
             mTimePicker.setContentDescription(mMinutePickerDescription + ": " + minutes);
@@ -483,6 +886,7 @@ public class TimePickerDialog extends DialogFragment implements OnValueSelectedL
         int minuteColor = (index == MINUTE_INDEX)? mSelectedColor : mUnselectedColor;
         mHourView.setTextColor(hourColor);
         mMinuteView.setTextColor(minuteColor);
+        mSecondView.setTextColor((index == SECOND_INDEX)? mSelectedColor : mUnselectedColor);
 
         ObjectAnimator pulseAnimator = Utils.getPulseAnimator(labelToAnimate, 0.85f, 1.1f);
         if (delayLabelAnimate) {
@@ -513,16 +917,16 @@ public class TimePickerDialog extends DialogFragment implements OnValueSelectedL
                     return true;
                 }
                 finishKbMode(false);
+            } else if (!mTimePicker.isTimeAvailable()) {
+                return true;
             }
-            if (mCallback != null) {
-                mCallback.onTimeSet(mTimePicker,
-                        mTimePicker.getHours(), mTimePicker.getMinutes());
-            }
+            notifyTimeSet(mTimePicker.getHours(RANGE_START), mTimePicker.getMinutes(RANGE_START),
+                    mTimePicker.getSeconds(RANGE_START));
             dismiss();
             return true;
         } else if (keyCode == KeyEvent.KEYCODE_DEL) {
             if (mInKbMode) {
-                if (!mTypedTimes.isEmpty()) {
+                if (mTypedCount != 0) {
                     int deleted = deleteLastTypedKey();
                     String deletedKeyStr;
                     if (deleted == getAmOrPmKeyCode(AM)) {
@@ -542,7 +946,7 @@ public class TimePickerDialog extends DialogFragment implements OnValueSelectedL
                 || keyCode == KeyEvent.KEYCODE_4 || keyCode == KeyEvent.KEYCODE_5
                 || keyCode == KeyEvent.KEYCODE_6 || keyCode == KeyEvent.KEYCODE_7
                 || keyCode == KeyEvent.KEYCODE_8 || keyCode == KeyEvent.KEYCODE_9
-                || (!mIs24HourMode &&
+                || (!mHideAmPm &&
                         (keyCode == getAmOrPmKeyCode(AM) || keyCode == getAmOrPmKeyCode(PM)))) {
             if (!mInKbMode) {
                 if (mTimePicker == null) {
@@ -550,7 +954,7 @@ public class TimePickerDialog extends DialogFragment implements OnValueSelectedL
                     Log.e(TAG, "Unable to initiate keyboard mode, TimePicker was null.");
                     return true;
                 }
-                mTypedTimes.clear();
+                mTypedCount = 0;
                 tryStartingKbMode(keyCode);
                 return true;
             }
@@ -580,26 +984,38 @@ public class TimePickerDialog extends DialogFragment implements OnValueSelectedL
     }
 
     private boolean addKeyIfLegal(int keyCode) {
-        // If we're in 24hour mode, we'll need to check if the input is full. If in AM/PM mode,
-        // we'll need to see if AM/PM have been typed.
-        if ((mIs24HourMode && mTypedTimes.size() == 4) ||
-                (!mIs24HourMode && isTypedTimeFullyLegal())) {
-            return false;
+        if (mDurationMode) {
+            // Any digits make a duration, read from the right, but a leading zero adds nothing.
+            int val = getValFromKeyCode(keyCode);
+            if (val == -1 || (mTypedCount == 0 && val == 0)
+                    || mTypedCount == getMaxDurationTypedKeys()) {
+                return false;
+            }
+            mTypedKeys[mTypedCount++] = keyCode;
+            Utils.tryAccessibilityAnnounce(mTimePicker, String.format("%d", val));
+            mDoneButton.setEnabled(true);
+            return true;
         }
-
-        mTypedTimes.add(keyCode);
-        if (!isTypedTimeLegalSoFar()) {
-            deleteLastTypedKey();
+        // The automaton only accepts keys which can still lead to a time within the min and max
+        // time, so a full or finished time doesn't accept any more.
+        int state = mTypedTimeAutomaton.next(mTypedStates[mTypedCount], keyCode);
+        if (state == TypedTimeAutomaton.NO_STATE) {
             return false;
         }
+        mTypedKeys[mTypedCount] = keyCode;
+        mTypedStates[++mTypedCount] = state;
 
         int val = getValFromKeyCode(keyCode);
         Utils.tryAccessibilityAnnounce(mTimePicker, String.format("%d", val));
         // Automatically fill in 0's if AM or PM was legally entered.
         if (isTypedTimeFullyLegal()) {
-            if (!mIs24HourMode && mTypedTimes.size() <= 3) {
-                mTypedTimes.add(mTypedTimes.size() - 1, KeyEvent.KEYCODE_0);
-                mTypedTimes.add(mTypedTimes.size() - 1, KeyEvent.KEYCODE_0);
+            if (!mHideAmPm && mTypedCount <= 3) {
+                int zeros = mEnableSeconds ? 4 : 2;
+                mTypedKeys[mTypedCount - 1 + zeros] = keyCode;
+                for (int i = mTypedCount - 1; i < mTypedCount - 1 + zeros; i++) {
+                    mTypedKeys[i] = KeyEvent.KEYCODE_0;
+                }
+                setTypedKeys(Arrays.copyOf(mTypedKeys, mTypedCount + zeros));
             }
             mDoneButton.setEnabled(true);
         }
@@ -608,39 +1024,43 @@ public class TimePickerDialog extends DialogFragment implements OnValueSelectedL
     }
 
     /**
-     * Traverse the tree to see if the keys that have been typed so far are legal as is,
-     * or may become legal as more keys are typed (excluding backspace).
+     * Replaces the typed keys, e.g. the ones saved in the instance state, keeping the legal ones.
      */
-    private boolean isTypedTimeLegalSoFar() {
-        Node node = mLegalTimesTree;
-        for (int keyCode : mTypedTimes) {
-            node = node.canReach(keyCode);
-            if (node == null) {
-                return false;
+    private void setTypedKeys(int[] keys) {
+        mTypedCount = 0;
+        if (keys == null) {
+            return;
+        }
+        if (mDurationMode) {
+            for (int i = 0; i < keys.length; i++) {
+                if (!addKeyIfLegal(keys[i])) {
+                    break;
+                }
             }
+            return;
+        }
+        for (int i = 0; i < keys.length && i < MAX_TYPED_KEYS; i++) {
+            int state = mTypedTimeAutomaton.next(mTypedStates[mTypedCount], keys[i]);
+            if (state == TypedTimeAutomaton.NO_STATE) {
+                break;
+            }
+            mTypedKeys[mTypedCount] = keys[i];
+            mTypedStates[++mTypedCount] = state;
         }
-        return true;
     }
 
     /**
      * Check if the time that has been typed so far is completely legal, as is.
      */
     private boolean isTypedTimeFullyLegal() {
-        if (mIs24HourMode) {
-            // For 24-hour mode, the time is legal if the hours and minutes are each legal. Note:
-            // getEnteredTime() will ONLY call isTypedTimeFullyLegal() when NOT in 24hour mode.
-            int[] values = getEnteredTime(null);
-            return (values[0] >= 0 && values[1] >= 0 && values[1] < 60);
-        } else {
-            // For AM/PM mode, the time is legal if it contains an AM or PM, as those can only be
-            // legally added at specific times based on the tree's algorithm.
-            return (mTypedTimes.contains(getAmOrPmKeyCode(AM)) ||
-                    mTypedTimes.contains(getAmOrPmKeyCode(PM)));
+        if (mDurationMode) {
+            return mTypedCount > 0;
         }
+        return mTypedTimeAutomaton.isAccepting(mTypedStates[mTypedCount]);
     }
 
     private int deleteLastTypedKey() {
-        int deleted = mTypedTimes.remove(mTypedTimes.size() - 1);
+        int deleted = mTypedKeys[--mTypedCount];
         if (!isTypedTimeFullyLegal()) {
             mDoneButton.setEnabled(false);
         }
@@ -648,18 +1068,25 @@ public class TimePickerDialog extends DialogFragment implements OnValueSelectedL
     }
 
     /**
-     * Get out of keyboard mode. If there is nothing in typedTimes, revert to TimePicker's time.
+     * Get out of keyboard mode. If no keys have been typed, revert to TimePicker's time.
      * @param changeDisplays If true, update the displays with the relevant time.
      */
     private void finishKbMode(boolean updateDisplays) {
         mInKbMode = false;
-        if (!mTypedTimes.isEmpty()) {
+        if (mTypedCount != 0) {
             int values[] = getEnteredTime(null);
-            mTimePicker.setTime(values[0], values[1]);
-            if (!mIs24HourMode) {
+            if (mDurationMode) {
+                // The typed minutes and seconds may be 60 or more, and carry over.
+                mTimePicker.setDuration(Math.max(values[0], 0), Math.max(values[1], 0),
+                        Math.max(values[3], 0));
+            } else {
+                mTimePicker.setTime(values[0], values[1], values[3]);
+            }
+            if (!mHideAmPm) {
                 mTimePicker.setAmOrPm(values[2]);
             }
-            mTypedTimes.clear();
+            mTypedCount = 0;
+            requestAvailableMinutes();
         }
         if (updateDisplays) {
             updateDisplay(false);
@@ -668,25 +1095,28 @@ public class TimePickerDialog extends DialogFragment implements OnValueSelectedL
     }
 
     /**
-     * Update the hours, minutes, and AM/PM displays with the typed times. If the typedTimes is
-     * empty, either show an empty display (filled with the placeholder text), or update from the
+     * Update the hours, minutes, and AM/PM displays with the typed keys. If no keys have been
+     * typed, either show an empty display (filled with the placeholder text), or update from the
      * timepicker's values.
-     * @param allowEmptyDisplay if true, then if the typedTimes is empty, use the placeholder text.
+     * @param allowEmptyDisplay if true, then if no keys have been typed, use the placeholder text.
      * Otherwise, revert to the timepicker's values.
      */
     private void updateDisplay(boolean allowEmptyDisplay) {
-        if (!allowEmptyDisplay && mTypedTimes.isEmpty()) {
+        if (!allowEmptyDisplay && mTypedCount == 0) {
             int hour = mTimePicker.getHours();
             int minute = mTimePicker.getMinutes();
-            setHour(hour, true);
+            setHour(getDisplayedHours(), true);
             setMinute(minute);
-            if (!mIs24HourMode) {
+            if (mEnableSeconds) {
+                setSecond(mTimePicker.getSeconds());
+            }
+            if (!mHideAmPm) {
                 updateAmPmDisplay(hour < 12? AM : PM);
             }
             setCurrentItemShowing(mTimePicker.getCurrentItemShowing(), true, true, true);
-            mDoneButton.setEnabled(true);
+            mDoneButton.setEnabled(mTimePicker.isTimeAvailable());
         } else {
-            Boolean[] enteredZeros = {false, false};
+            Boolean[] enteredZeros = {false, false, false};
             int[] values = getEnteredTime(enteredZeros);
             String hourFormat = enteredZeros[0]? "%02d" : "%2d";
             String minuteFormat = (enteredZeros[1])? "%02d" : "%2d";
@@ -700,7 +1130,15 @@ public class TimePickerDialog extends DialogFragment implements OnValueSelectedL
             mMinuteView.setText(minuteStr);
             mMinuteSpaceView.setText(minuteStr);
             mMinuteView.setTextColor(mUnselectedColor);
-            if (!mIs24HourMode) {
+            if (mEnableSeconds) {
+                String secondFormat = (enteredZeros[2])? "%02d" : "%2d";
+                String secondStr = (values[3] == -1)? mDoublePlaceholderText :
+                    String.format(secondFormat, values[3]).replace(' ', mPlaceholderText);
+                mSecondView.setText(secondStr);
+                mSecondSpaceView.setText(secondStr);
+                mSecondView.setTextColor(mUnselectedColor);
+            }
+            if (!mHideAmPm) {
                 updateAmPmDisplay(values[2]);
             }
         }
@@ -734,18 +1172,20 @@ public class TimePickerDialog extends DialogFragment implements OnValueSelectedL
     }
 
     /**
-     * Get the currently-entered time, as integer values of the hours and minutes typed.
-     * @param enteredZeros A size-2 boolean array, which the caller should initialize, and which
+     * Get the currently-entered time, as integer values of the hours, minutes and seconds typed.
+     * @param enteredZeros A size-3 boolean array, which the caller should initialize, and which
      * may then be used for the caller to know whether zeros had been explicitly entered as either
-     * hours of minutes. This is helpful for deciding whether to show the dashes, or actual 0's.
-     * @return A size-3 int array. The first value will be the hours, the second value will be the
-     * minutes, and the third will be either TimePickerDialog.AM or TimePickerDialog.PM.
+     * hours, minutes or seconds. This is helpful for deciding whether to show the dashes, or
+     * actual 0's.
+     * @return A size-4 int array. The first value will be the hours, the second value will be the
+     * minutes, the third will be either TimePickerDialog.AM or TimePickerDialog.PM, and the
+     * fourth will be the seconds, or 0 if they are not enabled.
      */
     private int[] getEnteredTime(Boolean[] enteredZeros) {
         int amOrPm = -1;
         int startIndex = 1;
-        if (!mIs24HourMode && isTypedTimeFullyLegal()) {
-            int keyCode = mTypedTimes.get(mTypedTimes.size() - 1);
+        if (!mHideAmPm && isTypedTimeFullyLegal()) {
+            int keyCode = mTypedKeys[mTypedCount - 1];
             if (keyCode == getAmOrPmKeyCode(AM)) {
                 amOrPm = AM;
             } else if (keyCode == getAmOrPmKeyCode(PM)){
@@ -753,10 +1193,28 @@ public class TimePickerDialog extends DialogFragment implements OnValueSelectedL
             }
             startIndex = 2;
         }
+        int second = 0;
+        if (mEnableSeconds) {
+            // The seconds are always typed as the last two digits.
+            second = -1;
+            for (int i = startIndex; i <= mTypedCount && i < startIndex + 2; i++) {
+                int val = getValFromKeyCode(mTypedKeys[mTypedCount - i]);
+                if (i == startIndex) {
+                    second = val;
+                } else {
+                    second += 10*val;
+                    if (enteredZeros != null && val == 0) {
+                        enteredZeros[2] = true;
+                    }
+                }
+            }
+            startIndex += 2;
+        }
         int minute = -1;
         int hour = -1;
-        for (int i = startIndex; i <= mTypedTimes.size(); i++) {
-            int val = getValFromKeyCode(mTypedTimes.get(mTypedTimes.size() - i));
+        int hourPlace = 1;
+        for (int i = startIndex; i <= mTypedCount; i++) {
+            int val = getValFromKeyCode(mTypedKeys[mTypedCount - i]);
             if (i == startIndex) {
                 minute = val;
             } else if (i == startIndex+1) {
@@ -766,18 +1224,39 @@ public class TimePickerDialog extends DialogFragment implements OnValueSelectedL
                 }
             } else if (i == startIndex+2) {
                 hour = val;
-            } else if (i == startIndex+3) {
-                hour += 10*val;
-                if (enteredZeros != null && val == 0) {
+            } else {
+                // Only a duration has more than two digits of hours.
+                hourPlace *= 10;
+                hour += hourPlace*val;
+                if (enteredZeros != null && val == 0 && i == startIndex+3) {
                     enteredZeros[0] = true;
                 }
             }
         }
 
-        int[] ret = {hour, minute, amOrPm};
+        int[] ret = {hour, minute, amOrPm, second};
         return ret;
     }
 
+    /**
+     * @return Whether the dials pick a range of times. A duration is not a time of day, so it has
+     * neither a range nor a time zone, whatever was set for the time of day.
+     */
+    private boolean isRangeActive() {
+        return mRangeMode && !mDurationMode;
+    }
+
+    private int getMaxDurationTypedKeys() {
+        return mEnableSeconds ? MAX_DURATION_TYPED_KEYS : MAX_DURATION_TYPED_KEYS - 2;
+    }
+
+    /**
+     * @return The hours to show in the header: the hour of the day, or the hours of the duration.
+     */
+    private int getDisplayedHours() {
+        return mDurationMode ? mTimePicker.getDurationHours() : mTimePicker.getHours();
+    }
+
     /**
      * Get the keycode value for AM and PM in the current language.
      */
@@ -813,220 +1292,309 @@ public class TimePickerDialog extends DialogFragment implements OnValueSelectedL
         return -1;
     }
 
+    private class KeyboardListener implements OnKeyListener {
+        @Override
+        public boolean onKey(View v, int keyCode, KeyEvent event) {
+            if (event.getAction() == KeyEvent.ACTION_UP) {
+                return processKeyUp(keyCode);
+            }
+            return false;
+        }
+    }
+
     /**
-     * Create a tree for deciding what keys can legally be typed.
+     * Optional method for setting the MinTime on the TimePicker
      */
-    private void generateLegalTimesTree() {
-        // Create a quick cache of numbers to their keycodes.
-        int k0 = KeyEvent.KEYCODE_0;
-        int k1 = KeyEvent.KEYCODE_1;
-        int k2 = KeyEvent.KEYCODE_2;
-        int k3 = KeyEvent.KEYCODE_3;
-        int k4 = KeyEvent.KEYCODE_4;
-        int k5 = KeyEvent.KEYCODE_5;
-        int k6 = KeyEvent.KEYCODE_6;
-        int k7 = KeyEvent.KEYCODE_7;
-        int k8 = KeyEvent.KEYCODE_8;
-        int k9 = KeyEvent.KEYCODE_9;
-
-        // The root of the tree doesn't contain any numbers.
-        mLegalTimesTree = new Node();
-        if (mIs24HourMode) {
-            // We'll be re-using these nodes, so we'll save them.
-            Node minuteFirstDigit = new Node(k0, k1, k2, k3, k4, k5);
-            Node minuteSecondDigit = new Node(k0, k1, k2, k3, k4, k5, k6, k7, k8, k9);
-            // The first digit must be followed by the second digit.
-            minuteFirstDigit.addChild(minuteSecondDigit);
-
-            // The first digit may be 0-1.
-            Node firstDigit = new Node(k0, k1);
-            mLegalTimesTree.addChild(firstDigit);
-
-            // When the first digit is 0-1, the second digit may be 0-5.
-            Node secondDigit = new Node(k0, k1, k2, k3, k4, k5);
-            firstDigit.addChild(secondDigit);
-            // We may now be followed by the first minute digit. E.g. 00:09, 15:58.
-            secondDigit.addChild(minuteFirstDigit);
-
-            // When the first digit is 0-1, and the second digit is 0-5, the third digit may be 6-9.
-            Node thirdDigit = new Node(k6, k7, k8, k9);
-            // The time must now be finished. E.g. 0:55, 1:08.
-            secondDigit.addChild(thirdDigit);
-
-            // When the first digit is 0-1, the second digit may be 6-9.
-            secondDigit = new Node(k6, k7, k8, k9);
-            firstDigit.addChild(secondDigit);
-            // We must now be followed by the first minute digit. E.g. 06:50, 18:20.
-            secondDigit.addChild(minuteFirstDigit);
-
-            // The first digit may be 2.
-            firstDigit = new Node(k2);
-            mLegalTimesTree.addChild(firstDigit);
-
-            // When the first digit is 2, the second digit may be 0-3.
-            secondDigit = new Node(k0, k1, k2, k3);
-            firstDigit.addChild(secondDigit);
-            // We must now be followed by the first minute digit. E.g. 20:50, 23:09.
-            secondDigit.addChild(minuteFirstDigit);
-
-            // When the first digit is 2, the second digit may be 4-5.
-            secondDigit = new Node(k4, k5);
-            firstDigit.addChild(secondDigit);
-            // We must now be followd by the last minute digit. E.g. 2:40, 2:53.
-            secondDigit.addChild(minuteSecondDigit);
-
-            // The first digit may be 3-9.
-            firstDigit = new Node(k3, k4, k5, k6, k7, k8, k9);
-            mLegalTimesTree.addChild(firstDigit);
-            // We must now be followed by the first minute digit. E.g. 3:57, 8:12.
-            firstDigit.addChild(minuteFirstDigit);
-        } else {
-            // We'll need to use the AM/PM node a lot.
-            // Set up AM and PM to respond to "a" and "p".
-            Node ampm = new Node(getAmOrPmKeyCode(AM), getAmOrPmKeyCode(PM));
-
-            // The first hour digit may be 1.
-            Node firstDigit = new Node(k1);
-            mLegalTimesTree.addChild(firstDigit);
-            // We'll allow quick input of on-the-hour times. E.g. 1pm.
-            firstDigit.addChild(ampm);
-
-            // When the first digit is 1, the second digit may be 0-2.
-            Node secondDigit = new Node(k0, k1, k2);
-            firstDigit.addChild(secondDigit);
-            // Also for quick input of on-the-hour times. E.g. 10pm, 12am.
-            secondDigit.addChild(ampm);
-
-            // When the first digit is 1, and the second digit is 0-2, the third digit may be 0-5.
-            Node thirdDigit = new Node(k0, k1, k2, k3, k4, k5);
-            secondDigit.addChild(thirdDigit);
-            // The time may be finished now. E.g. 1:02pm, 1:25am.
-            thirdDigit.addChild(ampm);
-
-            // When the first digit is 1, the second digit is 0-2, and the third digit is 0-5,
-            // the fourth digit may be 0-9.
-            Node fourthDigit = new Node(k0, k1, k2, k3, k4, k5, k6, k7, k8, k9);
-            thirdDigit.addChild(fourthDigit);
-            // The time must be finished now. E.g. 10:49am, 12:40pm.
-            fourthDigit.addChild(ampm);
-
-            // When the first digit is 1, and the second digit is 0-2, the third digit may be 6-9.
-            thirdDigit = new Node(k6, k7, k8, k9);
-            secondDigit.addChild(thirdDigit);
-            // The time must be finished now. E.g. 1:08am, 1:26pm.
-            thirdDigit.addChild(ampm);
-
-            // When the first digit is 1, the second digit may be 3-5.
-            secondDigit = new Node(k3, k4, k5);
-            firstDigit.addChild(secondDigit);
-
-            // When the first digit is 1, and the second digit is 3-5, the third digit may be 0-9.
-            thirdDigit = new Node(k0, k1, k2, k3, k4, k5, k6, k7, k8, k9);
-            secondDigit.addChild(thirdDigit);
-            // The time must be finished now. E.g. 1:39am, 1:50pm.
-            thirdDigit.addChild(ampm);
-
-            // The hour digit may be 2-9.
-            firstDigit = new Node(k2, k3, k4, k5, k6, k7, k8, k9);
-            mLegalTimesTree.addChild(firstDigit);
-            // We'll allow quick input of on-the-hour-times. E.g. 2am, 5pm.
-            firstDigit.addChild(ampm);
-
-            // When the first digit is 2-9, the second digit may be 0-5.
-            secondDigit = new Node(k0, k1, k2, k3, k4, k5);
-            firstDigit.addChild(secondDigit);
-
-            // When the first digit is 2-9, and the second digit is 0-5, the third digit may be 0-9.
-            thirdDigit = new Node(k0, k1, k2, k3, k4, k5, k6, k7, k8, k9);
-            secondDigit.addChild(thirdDigit);
-            // The time must be finished now. E.g. 2:57am, 9:30pm.
-            thirdDigit.addChild(ampm);
-        }
+    @SuppressWarnings("unused")
+    public void setMinTime(int minHour,int minMinute) {
+        mMinHour = minHour;
+        mMinMinute = minMinute;
     }
 
     /**
-     * Simple node class to be used for traversal to check for legal times.
-     * mLegalKeys represents the keys that can be typed to get to the node.
-     * mChildren are the children that can be reached from this node.
+     * Optional method for setting the MaxTime on the TimePicker
      */
-    private class Node {
-        private int[] mLegalKeys;
-        private ArrayList<Node> mChildren;
+    @SuppressWarnings("unused")
+    public void setMaxTime(int maxHour,int maxMinute) {
+        mMaxHour = maxHour;
+        mMaxMinute = maxMinute;
+    }
 
-        public Node(int... legalKeys) {
-            mLegalKeys = legalKeys;
-            mChildren = new ArrayList<Node>();
+    /**
+     * Optional method for only allowing multiples of minuteInterval to be picked as the minutes,
+     * e.g. 15 for quarter-hour slots. The interval must divide an hour evenly. NOTE: this will
+     * only take effect for the next onCreateView.
+     */
+    public void setMinuteInterval(int minuteInterval) {
+        mMinuteInterval = minuteInterval;
+    }
+
+    /**
+     * Optional method for setting the MinTime, down to the second, on the TimePicker
+     */
+    public void setMinTime(int minHour, int minMinute, int minSecond) {
+        setMinTime(minHour, minMinute);
+        mMinSecond = minSecond;
+    }
+
+    /**
+     * Optional method for setting the MaxTime, down to the second, on the TimePicker
+     */
+    public void setMaxTime(int maxHour, int maxMinute, int maxSecond) {
+        setMaxTime(maxHour, maxMinute);
+        mMaxSecond = maxSecond;
+    }
+
+    /**
+     * Optional method for disabling a range of times on the TimePicker, e.g. a lunch break. May
+     * be called several times. NOTE: this will only take effect for the next onCreateView.
+     * @param startHourOfDay The hour of the first disabled minute.
+     * @param startMinute The first disabled minute.
+     * @param endHourOfDay The hour of the first minute after the range, which is enabled again.
+     * @param endMinute The first minute after the range, which is enabled again.
+     */
+    public void addDisabledTimeRange(int startHourOfDay, int startMinute, int endHourOfDay,
+            int endMinute) {
+        int length = mDisabledRanges.length;
+        mDisabledRanges = Arrays.copyOf(mDisabledRanges, length + 2);
+        mDisabledRanges[length] = startHourOfDay * 60 + startMinute;
+        mDisabledRanges[length + 1] = endHourOfDay * 60 + endMinute;
+    }
+
+    public void clearDisabledTimeRanges() {
+        mDisabledRanges = new int[0];
+    }
+
+    /**
+     * Optional method for giving the date and time zone of the time being picked. The times that
+     * do not exist on that date, as the clocks go forward, may then not be picked, and an
+     * {@link OnZonedTimeSetListener} is told the instant that was picked and whether that time
+     * happens twice. NOTE: this will only take effect for the next onCreateView.
+     * @param monthOfYear The month (0-11), as with the DatePickerDialog.
+     * @param timeZone The time zone, or null to pick a bare time again.
+     */
+    public void setTimeZoneContext(int year, int monthOfYear, int dayOfMonth,
+            TimeZone timeZone) {
+        mZoneDay = timeZone == null ? null
+                : new ZoneDay(year, monthOfYear, dayOfMonth, timeZone);
+    }
+
+    /**
+     * Like {@link #setTimeZoneContext}, but also applies the context to the dials at once if they
+     * are showing, e.g. once the date of the time being picked is known.
+     */
+    /* package */ void updateTimeZoneContext(int year, int monthOfYear, int dayOfMonth,
+            TimeZone timeZone) {
+        setTimeZoneContext(year, monthOfYear, dayOfMonth, timeZone);
+        if (mTimePicker != null) {
+            updateAvailability();
         }
+    }
 
-        public void addChild(Node child) {
-            mChildren.add(child);
+    /**
+     * Optional method for loading the minutes that may be picked in the background, e.g. from a
+     * database, rather than before the dialog is shown. The provider is asked about each hour as
+     * it gets selected, and the minutes it rules out are greyed out and skipped as soon as its
+     * answer arrives. An answer for an hour that is no longer selected is dropped. Does not apply
+     * in duration mode.
+     * @param executor The executor the provider is called on, or null for the AsyncTask thread
+     * pool.
+     */
+    public void setAvailabilityProvider(AvailabilityProvider provider, Executor executor) {
+        cancelAvailabilityRequest();
+        mAvailabilityProvider = provider;
+        mAvailabilityExecutor = executor != null ? executor : AsyncTask.THREAD_POOL_EXECUTOR;
+        mProvidedHours = 0;
+        if (mTimePicker != null) {
+            updateAvailability();
+            requestAvailableMinutes();
         }
+    }
 
-        public boolean containsKey(int key) {
-            for (int i = 0; i < mLegalKeys.length; i++) {
-                if (mLegalKeys[i] == key) {
-                    return true;
+    public void setAvailabilityProvider(AvailabilityProvider provider) {
+        setAvailabilityProvider(provider, null);
+    }
+
+    /**
+     * @return The times that may be picked, under all constraints known so far.
+     */
+    private TimeAvailability buildAvailability() {
+        if (mDurationMode) {
+            return new TimeAvailability(0, 24 * 3600 - 1, new int[0]);
+        }
+        int[] disabledRanges = mDisabledRanges;
+        if (mZoneDay != null) {
+            // The local times skipped as the clocks go forward may not be picked.
+            disabledRanges = appendRanges(disabledRanges, mZoneDay.getGapRanges());
+        }
+        if (mAvailabilityProvider != null && mProvidedHours != 0) {
+            // Each hour has at most 30 runs of minutes which may not be picked.
+            int[] providedRanges = new int[Integer.bitCount(mProvidedHours) * 60];
+            int count = 0;
+            for (int hour = 0; hour < 24; hour++) {
+                if ((mProvidedHours & (1 << hour)) == 0) {
+                    continue;
+                }
+                long minutes = mProvidedMinutes[hour];
+                int minute = 0;
+                while (minute < 60) {
+                    if ((minutes & (1L << minute)) != 0) {
+                        minute++;
+                        continue;
+                    }
+                    providedRanges[count++] = hour * 60 + minute;
+                    while (minute < 60 && (minutes & (1L << minute)) == 0) {
+                        minute++;
+                    }
+                    providedRanges[count++] = hour * 60 + minute;
                 }
             }
-            return false;
+            disabledRanges = appendRanges(disabledRanges, Arrays.copyOf(providedRanges, count));
         }
+        return new TimeAvailability(
+                mMinHour * 3600 + mMinMinute * 60 + (mEnableSeconds ? mMinSecond : 0),
+                mMaxHour * 3600 + mMaxMinute * 60 + (mEnableSeconds ? mMaxSecond : 59),
+                disabledRanges);
+    }
 
-        public Node canReach(int key) {
-            if (mChildren == null) {
-                return null;
-            }
-            for (Node child : mChildren) {
-                if (child.containsKey(key)) {
-                    return child;
-                }
-            }
-            return null;
+    private static int[] appendRanges(int[] ranges, int[] moreRanges) {
+        int[] ret = Arrays.copyOf(ranges, ranges.length + moreRanges.length);
+        System.arraycopy(moreRanges, 0, ret, ranges.length, moreRanges.length);
+        return ret;
+    }
+
+    /**
+     * Builds the automaton for the typed times, or gets the cached one if the constraints are the
+     * same. Typed durations only need counting, see addKeyIfLegal.
+     */
+    private void updateTypedTimeAutomaton() {
+        if (mDurationMode) {
+            return;
         }
+        mTypedTimeAutomaton = TypedTimeAutomaton.getInstance(mIs24HourMode, mEnableSeconds,
+                mIs24HourMode ? -1 : getAmOrPmKeyCode(AM),
+                mIs24HourMode ? -1 : getAmOrPmKeyCode(PM), mAvailability);
     }
 
-    private class KeyboardListener implements OnKeyListener {
-        @Override
-        public boolean onKey(View v, int keyCode, KeyEvent event) {
-            if (event.getAction() == KeyEvent.ACTION_UP) {
-                return processKeyUp(keyCode);
-            }
-            return false;
+    /**
+     * Applies the constraints known so far to the dials and the keyboard mode, keeping as many of
+     * the typed keys as are still legal.
+     */
+    private void updateAvailability() {
+        mAvailability = buildAvailability();
+        mTimePicker.setAvailability(mAvailability);
+        updateTypedTimeAutomaton();
+        if (mInKbMode) {
+            setTypedKeys(Arrays.copyOf(mTypedKeys, mTypedCount));
+            mDoneButton.setEnabled(isTypedTimeFullyLegal());
+            updateDisplay(true);
+        } else {
+            // Done stays disabled while the selected hour has no minute left which may be picked.
+            mDoneButton.setEnabled(mTimePicker.isTimeAvailable());
         }
     }
 
     /**
-     * Optional method for setting the MinTime on the TimePicker
+     * Asks the provider about the selected hour, unless it already has been, and drops the
+     * request for the hour selected before.
      */
-    @SuppressWarnings("unused")
-    public void setMinTime(int minHour,int minMinute) {
-        mMinHour = minHour;
-        mMinMinute = minMinute;
+    private void requestAvailableMinutes() {
+        if (mAvailabilityProvider == null || mDurationMode || mTimePicker == null) {
+            return;
+        }
+        int hourOfDay = mTimePicker.getHours();
+        if (mPendingRequest != null && mPendingRequest.mHourOfDay == hourOfDay) {
+            return;
+        }
+        cancelAvailabilityRequest();
+        if ((mProvidedHours & (1 << hourOfDay)) != 0) {
+            return;
+        }
+        mPendingRequest = new AvailabilityRequest(mAvailabilityProvider, hourOfDay);
+        mAvailabilityExecutor.execute(mPendingRequest);
+    }
+
+    private void cancelAvailabilityRequest() {
+        if (mPendingRequest != null) {
+            mPendingRequest.mCancelled = true;
+            mPendingRequest = null;
+        }
+    }
+
+    private void onAvailableMinutesLoaded(AvailabilityRequest request, long availableMinutes) {
+        if (request != mPendingRequest || mTimePicker == null) {
+            // The request was cancelled after the provider was called.
+            return;
+        }
+        mPendingRequest = null;
+        mProvidedMinutes[request.mHourOfDay] = availableMinutes;
+        mProvidedHours |= 1 << request.mHourOfDay;
+        updateAvailability();
     }
 
     /**
-     * Optional method for setting the MaxTime on the TimePicker
+     * Calls the provider in the background, and hands its answer back on the main thread.
      */
-    @SuppressWarnings("unused")
-    public void setMaxTime(int maxHour,int maxMinute) {
-        mMaxHour = maxHour;
-        mMaxMinute = maxMinute;
+    private class AvailabilityRequest implements Runnable {
+        private final AvailabilityProvider mProvider;
+        private final int mHourOfDay;
+        private volatile boolean mCancelled;
+
+        public AvailabilityRequest(AvailabilityProvider provider, int hourOfDay) {
+            mProvider = provider;
+            mHourOfDay = hourOfDay;
+        }
+
+        @Override
+        public void run() {
+            if (mCancelled) {
+                return;
+            }
+            final long availableMinutes = mProvider.getAvailableMinutes(mHourOfDay);
+            mHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    onAvailableMinutesLoaded(AvailabilityRequest.this, availableMinutes);
+                }
+            });
+        }
+    }
+
+    /**
+     * Called with the picked time when the user is done.
+     */
+    /* package */ void notifyTimeSet(int hourOfDay, int minute, int second) {
+        if (mCallback == null) {
+            return;
+        }
+        if (mDurationMode && mCallback instanceof OnDurationSetListener) {
+            ((OnDurationSetListener) mCallback).onDurationSet(mTimePicker,
+                    mTimePicker.getDurationMillis());
+        } else if (mDurationMode) {
+            Log.e(TAG, "A duration can only be set on an OnDurationSetListener.");
+        } else if (isRangeActive() && mCallback instanceof OnTimeRangeSetListener) {
+            ((OnTimeRangeSetListener) mCallback).onTimeRangeSet(mTimePicker, hourOfDay, minute,
+                    mTimePicker.getHours(RANGE_END), mTimePicker.getMinutes(RANGE_END));
+        } else if (mZoneDay != null && mCallback instanceof OnZonedTimeSetListener) {
+            long timeInMillis = mZoneDay.getTimeInMillis(hourOfDay, minute, second, false);
+            boolean isRepeated = mZoneDay.isRepeated(hourOfDay * 60 + minute);
+            ((OnZonedTimeSetListener) mCallback).onZonedTimeSet(mTimePicker, hourOfDay, minute,
+                    timeInMillis, isRepeated);
+        } else {
+            mCallback.onTimeSet(mTimePicker, hourOfDay, minute);
+        }
     }
 
     private boolean valueRespectsHoursConstraint(int value){
-        boolean respectsConstraint = (mMinHour <= value && mMaxHour >= value);
-        return respectsConstraint;
+        return mAvailability.isHourAvailable(value);
     }
 
     private boolean valueRespectsMinutesConstraint(int value){
-        int hour = mTimePicker.getHours();
-        boolean checkedMinMinute = true;
-        boolean checkedMaxMinute = true;
-        if (hour == mMinHour) {
-            checkedMinMinute = (value >= mMinMinute);
-        }
-        if (hour == mMaxHour) {
-            checkedMaxMinute = (value <= mMaxMinute);
-        }
-        return checkedMinMinute && checkedMaxMinute;
+        return (mAvailability.getAvailableMinutes(mTimePicker.getHours()) & (1L << value)) != 0;
+    }
+
+    private boolean valueRespectsSecondsConstraint(int value){
+        int minuteOfDay = mTimePicker.getHours() * 60 + mTimePicker.getMinutes();
+        return (mAvailability.getAvailableSeconds(minuteOfDay) & (1L << value)) != 0;
     }
 }
@@ -0,0 +1,353 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.datetimepicker.time;
+
+import android.view.KeyEvent;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+
+/**
+ * Decides which keys may legally be typed in the time picker's keyboard mode. A time is typed
+ * as the hour, the two digits of the minutes, optionally the two digits of the seconds and, in
+ * AM/PM mode, the AM or PM key, which may also directly follow the hour. Only the keys that can
+ * still lead to an available time are accepted, see {@link TimeAvailability}.
+ *
+ * The legal inputs are compiled into a table of states, so that each typed key costs a single
+ * lookup. Instances are immutable; the last one built is cached, as a picker is usually shown
+ * with the same settings again.
+ */
+final class TypedTimeAutomaton {
+
+    /** The state before any key has been typed. */
+    static final int START_STATE = 0;
+    /** Returned for keys which cannot lead to a legal time. */
+    static final int NO_STATE = -1;
+
+    private static final int AM_SYMBOL = 10;
+    private static final int PM_SYMBOL = 11;
+    private static final int SYMBOL_COUNT = 12;
+
+    private static volatile TypedTimeAutomaton sInstance;
+
+    private final boolean mIs24HourMode;
+    private final boolean mEnableSeconds;
+    private final int mAmKeyCode;
+    private final int mPmKeyCode;
+    private final TimeAvailability mAvailability;
+
+    // The next state for each state and symbol, at [state * SYMBOL_COUNT + symbol].
+    private final int[] mTransitions;
+    private final boolean[] mAccepting;
+
+    /**
+     * @return The automaton for the given settings, building it if they have changed.
+     */
+    static TypedTimeAutomaton getInstance(boolean is24HourMode, boolean enableSeconds,
+            int amKeyCode, int pmKeyCode, TimeAvailability availability) {
+        TypedTimeAutomaton instance = sInstance;
+        if (instance == null || instance.mIs24HourMode != is24HourMode
+                || instance.mEnableSeconds != enableSeconds
+                || instance.mAmKeyCode != amKeyCode || instance.mPmKeyCode != pmKeyCode
+                || !instance.mAvailability.equals(availability)) {
+            instance = new TypedTimeAutomaton(is24HourMode, enableSeconds, amKeyCode, pmKeyCode,
+                    availability);
+            sInstance = instance;
+        }
+        return instance;
+    }
+
+    /**
+     * @return The state after typing keyCode in the given state, or {@link #NO_STATE} if the key
+     * may not be typed there.
+     */
+    int next(int state, int keyCode) {
+        if (state == NO_STATE) {
+            return NO_STATE;
+        }
+        int symbol;
+        if (keyCode >= KeyEvent.KEYCODE_0 && keyCode <= KeyEvent.KEYCODE_9) {
+            symbol = keyCode - KeyEvent.KEYCODE_0;
+        } else if (!mIs24HourMode && keyCode == mAmKeyCode) {
+            symbol = AM_SYMBOL;
+        } else if (!mIs24HourMode && keyCode == mPmKeyCode) {
+            symbol = PM_SYMBOL;
+        } else {
+            return NO_STATE;
+        }
+        return mTransitions[state * SYMBOL_COUNT + symbol];
+    }
+
+    /**
+     * @return Whether the keys typed to reach the state make up a complete, legal time.
+     */
+    boolean isAccepting(int state) {
+        return state != NO_STATE && mAccepting[state];
+    }
+
+    private TypedTimeAutomaton(boolean is24HourMode, boolean enableSeconds, int amKeyCode,
+            int pmKeyCode, TimeAvailability availability) {
+        mIs24HourMode = is24HourMode;
+        mEnableSeconds = enableSeconds;
+        mAmKeyCode = amKeyCode;
+        mPmKeyCode = pmKeyCode;
+        mAvailability = availability;
+
+        Builder builder = new Builder(is24HourMode, enableSeconds, availability);
+        ArrayList<BitSet> states = new ArrayList<BitSet>();
+        HashMap<BitSet, Integer> stateIds = new HashMap<BitSet, Integer>();
+        BitSet start = builder.getStartStates();
+        states.add(start);
+        stateIds.put(start, START_STATE);
+
+        // Subset construction: each state of the table is a set of the builder's states, i.e. of
+        // the ways in which the keys typed so far may be read. The table's states are numbered in
+        // the order they are found, so the list grows while it is walked.
+        int[] transitions = new int[SYMBOL_COUNT * 16];
+        for (int state = 0; state < states.size(); state++) {
+            BitSet current = states.get(state);
+            if ((state + 1) * SYMBOL_COUNT > transitions.length) {
+                int[] grown = new int[transitions.length * 2];
+                System.arraycopy(transitions, 0, grown, 0, transitions.length);
+                transitions = grown;
+            }
+            for (int symbol = 0; symbol < SYMBOL_COUNT; symbol++) {
+                BitSet next = new BitSet();
+                for (int i = current.nextSetBit(0); i >= 0; i = current.nextSetBit(i + 1)) {
+                    int nextState = builder.next(i, symbol);
+                    if (nextState >= 0) {
+                        next.set(nextState);
+                    }
+                }
+                int nextId = NO_STATE;
+                if (!next.isEmpty()) {
+                    Integer id = stateIds.get(next);
+                    if (id == null) {
+                        id = states.size();
+                        states.add(next);
+                        stateIds.put(next, id);
+                    }
+                    nextId = id;
+                }
+                transitions[state * SYMBOL_COUNT + symbol] = nextId;
+            }
+        }
+
+        int stateCount = states.size();
+        mTransitions = new int[stateCount * SYMBOL_COUNT];
+        System.arraycopy(transitions, 0, mTransitions, 0, mTransitions.length);
+        mAccepting = new boolean[stateCount];
+        for (int state = 0; state < stateCount; state++) {
+            BitSet current = states.get(state);
+            for (int i = current.nextSetBit(0); i >= 0; i = current.nextSetBit(i + 1)) {
+                if (builder.isAccepting(i)) {
+                    mAccepting[state] = true;
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads typed keys one way at a time. Until the hour has been typed, a state is one of the
+     * hours, as it would be typed, and how many of its digits have been typed. Then it is the hour
+     * of the day and the tens of the minutes, if typed. After the minutes, it is how many digits
+     * of the seconds have been typed, whether they are still equal to the minimum or the maximum
+     * time, and which of AM or PM must follow.
+     */
+    private static class Builder {
+        private static final int NO_AMPM = 0;
+        // The states of each hour of the day while typing the minutes: none typed yet, or the tens.
+        private static final int MINUTE_STATES_PER_HOUR = 7;
+
+        private final TimeAvailability mAvailability;
+        private final boolean mIs24HourMode;
+        private final int[][] mHourDigits;
+        private final int[] mHourOfDay;
+        private final int mMinMinuteOfDay;
+        private final int mMaxMinuteOfDay;
+        // The digits of the seconds of the minimum and maximum time.
+        private final int[] mMinTail;
+        private final int[] mMaxTail;
+        private final int mTailLength;
+
+        private final int mMinuteStatesStart;
+        private final int mTailStatesStart;
+        private final int mAmPmTypedState;
+
+        Builder(boolean is24HourMode, boolean enableSeconds, TimeAvailability availability) {
+            mAvailability = availability;
+            mIs24HourMode = is24HourMode;
+            int minTime = availability.getMinTime();
+            int maxTime = availability.getMaxTime();
+            mMinMinuteOfDay = minTime / 60;
+            mMaxMinuteOfDay = maxTime / 60;
+            mTailLength = enableSeconds ? 2 : 0;
+            mMinTail = new int[] {(minTime % 60) / 10, minTime % 10};
+            mMaxTail = new int[] {(maxTime % 60) / 10, maxTime % 10};
+
+            // List the hours in every way they may be typed, leaving out the unavailable ones.
+            ArrayList<int[]> hours = new ArrayList<int[]>();
+            for (int hourOfDay = 0; hourOfDay < 24; hourOfDay++) {
+                if (!availability.isHourAvailable(hourOfDay)) {
+                    continue;
+                }
+                int hour = hourOfDay;
+                if (!is24HourMode) {
+                    hour = hourOfDay % 12 == 0 ? 12 : hourOfDay % 12;
+                } else if (hourOfDay < 10) {
+                    // E.g. 07:30 as well as 7:30.
+                    hours.add(new int[] {hourOfDay, hour / 10, hour % 10});
+                }
+                if (hour < 10) {
+                    hours.add(new int[] {hourOfDay, hour});
+                } else {
+                    hours.add(new int[] {hourOfDay, hour / 10, hour % 10});
+                }
+            }
+            int hourCount = hours.size();
+            mHourDigits = new int[hourCount][];
+            mHourOfDay = new int[hourCount];
+            for (int i = 0; i < hourCount; i++) {
+                int[] hour = hours.get(i);
+                mHourOfDay[i] = hour[0];
+                mHourDigits[i] = new int[hour.length - 1];
+                System.arraycopy(hour, 1, mHourDigits[i], 0, hour.length - 1);
+            }
+
+            // Hour states come first, two per way of typing an hour; then the minute states of
+            // each hour of the day; then the tail states; then the state after AM or PM.
+            mMinuteStatesStart = hourCount * 2;
+            mTailStatesStart = mMinuteStatesStart + 24 * MINUTE_STATES_PER_HOUR;
+            mAmPmTypedState = mTailStatesStart + getTailState(mTailLength, true, true, PM_SYMBOL)
+                    + 1;
+        }
+
+        /**
+         * @return The index of a tail state, relative to the first one.
+         */
+        private static int getTailState(int position, boolean atMin, boolean atMax, int ampm) {
+            int ampmIndex = ampm == NO_AMPM ? 0 : ampm - AM_SYMBOL + 1;
+            return (((position * 2) + (atMin ? 1 : 0)) * 2 + (atMax ? 1 : 0)) * 3 + ampmIndex;
+        }
+
+        private int getAmPm(int hourOfDay) {
+            if (mIs24HourMode) {
+                return NO_AMPM;
+            }
+            return hourOfDay < 12 ? AM_SYMBOL : PM_SYMBOL;
+        }
+
+        BitSet getStartStates() {
+            BitSet start = new BitSet();
+            for (int i = 0; i < mHourDigits.length; i++) {
+                start.set(i * 2);
+            }
+            return start;
+        }
+
+        boolean isAccepting(int state) {
+            if (state == mAmPmTypedState) {
+                return true;
+            }
+            if (state < mTailStatesStart) {
+                return false;
+            }
+            int tailState = state - mTailStatesStart;
+            int ampmIndex = tailState % 3;
+            int position = tailState / 12;
+            return position == mTailLength && ampmIndex == 0;
+        }
+
+        /**
+         * @return The state after reading symbol in the given state, or -1 if it may not be read.
+         */
+        int next(int state, int symbol) {
+            if (state == mAmPmTypedState) {
+                return -1;
+            }
+            boolean isAmPm = symbol == AM_SYMBOL || symbol == PM_SYMBOL;
+            if (state < mMinuteStatesStart) {
+                int hour = state / 2;
+                int typed = state % 2;
+                int[] digits = mHourDigits[hour];
+                if (symbol != digits[typed]) {
+                    return -1;
+                }
+                if (typed + 1 < digits.length) {
+                    return state + 1;
+                }
+                return mMinuteStatesStart + mHourOfDay[hour] * MINUTE_STATES_PER_HOUR;
+            }
+
+            if (state < mTailStatesStart) {
+                int hourOfDay = (state - mMinuteStatesStart) / MINUTE_STATES_PER_HOUR;
+                int tens = (state - mMinuteStatesStart) % MINUTE_STATES_PER_HOUR - 1;
+                if (isAmPm) {
+                    // AM or PM may directly follow the hour, for on-the-hour times.
+                    if (tens < 0 && symbol == getAmPm(hourOfDay)
+                            && (mAvailability.getAvailableSeconds(hourOfDay * 60) & 1) != 0) {
+                        return mAmPmTypedState;
+                    }
+                    return -1;
+                }
+                long minutes = mAvailability.getAvailableMinutes(hourOfDay);
+                if (tens < 0) {
+                    if (symbol > 5 || ((minutes >>> (symbol * 10)) & 0x3FF) == 0) {
+                        return -1;
+                    }
+                    return state + 1 + symbol;
+                }
+                int minute = tens * 10 + symbol;
+                if ((minutes & (1L << minute)) == 0) {
+                    return -1;
+                }
+                int minuteOfDay = hourOfDay * 60 + minute;
+                return mTailStatesStart + getTailState(0, minuteOfDay == mMinMinuteOfDay,
+                        minuteOfDay == mMaxMinuteOfDay, getAmPm(hourOfDay));
+            }
+
+            int tailState = state - mTailStatesStart;
+            int ampmIndex = tailState % 3;
+            boolean atMax = ((tailState / 3) % 2) != 0;
+            boolean atMin = ((tailState / 6) % 2) != 0;
+            int position = tailState / 12;
+            int ampm = ampmIndex == 0 ? NO_AMPM : AM_SYMBOL + ampmIndex - 1;
+
+            if (isAmPm) {
+                if (symbol == ampm && position == mTailLength) {
+                    return mAmPmTypedState;
+                }
+                return -1;
+            }
+
+            if (position == mTailLength) {
+                return -1;
+            }
+            // The tens of the seconds go up to 5.
+            int maxDigit = (position == 0) ? 5 : 9;
+            if (symbol > maxDigit || (atMin && symbol < mMinTail[position])
+                    || (atMax && symbol > mMaxTail[position])) {
+                return -1;
+            }
+            return mTailStatesStart + getTailState(position + 1,
+                    atMin && symbol == mMinTail[position], atMax && symbol == mMaxTail[position],
+                    ampm);
+        }
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2013 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.datetimepicker.time;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+/**
+ * One day in a time zone, with the local times that do not exist on it (skipped when the clocks
+ * go forward) and those that happen twice (when the clocks go back). The zone rules are read
+ * once, when the instance is built; afterwards a time of the day is resolved with a short scan
+ * of the day's few offset changes. Instances are immutable.
+ */
+final class ZoneDay {
+
+    private static final long MINUTE_IN_MILLIS = 60 * 1000;
+    private static final long HOUR_IN_MILLIS = 60 * MINUTE_IN_MILLIS;
+    private static final long DAY_IN_MILLIS = 24 * HOUR_IN_MILLIS;
+    // No zone is further than this from UTC.
+    private static final long MAX_OFFSET = 15 * HOUR_IN_MILLIS;
+
+    private final int mYear;
+    private final int mMonthOfYear;
+    private final int mDayOfMonth;
+    private final TimeZone mTimeZone;
+
+    // The local midnight starting the day, as if it were UTC.
+    private final long mLocalStart;
+    // The instants from which each offset applies, and the offsets, covering every instant that
+    // may fall on the day. The first segment starts before the day.
+    private final long[] mSegmentStarts;
+    private final int[] mSegmentOffsets;
+    // Pairs of minutes of the day; the minutes from the first of each pair up to, but not
+    // including, the second are skipped, or repeated.
+    private final int[] mGapRanges;
+    private final int[] mOverlapRanges;
+
+    /**
+     * @param monthOfYear The month, 0-11, as with {@link Calendar#MONTH}.
+     */
+    ZoneDay(int year, int monthOfYear, int dayOfMonth, TimeZone timeZone) {
+        mYear = year;
+        mMonthOfYear = monthOfYear;
+        mDayOfMonth = dayOfMonth;
+        mTimeZone = timeZone;
+
+        Calendar utc = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+        utc.clear();
+        utc.set(year, monthOfYear, dayOfMonth);
+        mLocalStart = utc.getTimeInMillis();
+
+        // Offsets only change a few times a year, so look for changes an hour apart and narrow
+        // each one down to the minute.
+        long from = mLocalStart - MAX_OFFSET;
+        long to = mLocalStart + DAY_IN_MILLIS + MAX_OFFSET;
+        long[] starts = new long[4];
+        int[] offsets = new int[4];
+        int count = 0;
+        starts[count] = from;
+        offsets[count] = timeZone.getOffset(from);
+        count++;
+        for (long time = from; time < to; time += HOUR_IN_MILLIS) {
+            int offset = timeZone.getOffset(time + HOUR_IN_MILLIS);
+            if (offset == offsets[count - 1]) {
+                continue;
+            }
+            long low = time;
+            long high = time + HOUR_IN_MILLIS;
+            while (high - low > MINUTE_IN_MILLIS) {
+                long middle = low + (high - low) / 2 / MINUTE_IN_MILLIS * MINUTE_IN_MILLIS;
+                if (timeZone.getOffset(middle) == offsets[count - 1]) {
+                    low = middle;
+                } else {
+                    high = middle;
+                }
+            }
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+                offsets = Arrays.copyOf(offsets, count * 2);
+            }
+            starts[count] = high;
+            offsets[count] = offset;
+            count++;
+        }
+        mSegmentStarts = Arrays.copyOf(starts, count);
+        mSegmentOffsets = Arrays.copyOf(offsets, count);
+
+        // Count how many instants each minute of the day stands for.
+        int[] coverage = new int[TimeAvailability.MINUTES_PER_DAY + 1];
+        for (int i = 0; i < count; i++) {
+            long end = i + 1 < count ? mSegmentStarts[i + 1] : to;
+            int first = toMinuteOfDay(mSegmentStarts[i] + mSegmentOffsets[i]);
+            int last = toMinuteOfDay(end + mSegmentOffsets[i]);
+            coverage[first]++;
+            coverage[last]--;
+        }
+        int[] gaps = new int[0];
+        int[] overlaps = new int[0];
+        int covered = 0;
+        boolean inGap = false;
+        boolean inOverlap = false;
+        for (int minute = 0; minute < TimeAvailability.MINUTES_PER_DAY; minute++) {
+            covered += coverage[minute];
+            if ((covered == 0) != inGap) {
+                inGap = !inGap;
+                gaps = append(gaps, minute);
+            }
+            if ((covered > 1) != inOverlap) {
+                inOverlap = !inOverlap;
+                overlaps = append(overlaps, minute);
+            }
+        }
+        if (gaps.length % 2 != 0) {
+            gaps = append(gaps, TimeAvailability.MINUTES_PER_DAY);
+        }
+        if (overlaps.length % 2 != 0) {
+            overlaps = append(overlaps, TimeAvailability.MINUTES_PER_DAY);
+        }
+        mGapRanges = gaps;
+        mOverlapRanges = overlaps;
+    }
+
+    private int toMinuteOfDay(long localTime) {
+        long minute = (localTime - mLocalStart) / MINUTE_IN_MILLIS;
+        return (int) Math.max(0, Math.min(minute, TimeAvailability.MINUTES_PER_DAY));
+    }
+
+    private static int[] append(int[] array, int value) {
+        int[] appended = Arrays.copyOf(array, array.length + 1);
+        appended[array.length] = value;
+        return appended;
+    }
+
+    private static boolean isInRanges(int[] ranges, int minuteOfDay) {
+        for (int i = 0; i < ranges.length; i += 2) {
+            if (minuteOfDay >= ranges[i] && minuteOfDay < ranges[i + 1]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    int getYear() {
+        return mYear;
+    }
+
+    int getMonthOfYear() {
+        return mMonthOfYear;
+    }
+
+    int getDayOfMonth() {
+        return mDayOfMonth;
+    }
+
+    TimeZone getTimeZone() {
+        return mTimeZone;
+    }
+
+    /**
+     * @return Pairs of minutes of the day; the minutes from the first of each pair up to, but not
+     * including, the second do not exist on this day.
+     */
+    int[] getGapRanges() {
+        return mGapRanges.clone();
+    }
+
+    /**
+     * @return Pairs of minutes of the day; the minutes from the first of each pair up to, but not
+     * including, the second happen twice on this day.
+     */
+    int[] getOverlapRanges() {
+        return mOverlapRanges.clone();
+    }
+
+    boolean isSkipped(int minuteOfDay) {
+        return isInRanges(mGapRanges, minuteOfDay);
+    }
+
+    boolean isRepeated(int minuteOfDay) {
+        return isInRanges(mOverlapRanges, minuteOfDay);
+    }
+
+    /**
+     * @param later For a repeated time, whether to return its second occurrence.
+     * @return The instant, in milliseconds since the epoch, at which the local time happens on
+     * this day. A skipped time is taken with the offset from before the clocks went forward.
+     */
+    long getTimeInMillis(int hourOfDay, int minute, int second, boolean later) {
+        long localTime = mLocalStart + hourOfDay * HOUR_IN_MILLIS + minute * MINUTE_IN_MILLIS
+                + second * 1000L;
+        long result = localTime - mSegmentOffsets[0];
+        boolean found = false;
+        for (int i = 0; i < mSegmentStarts.length; i++) {
+            long time = localTime - mSegmentOffsets[i];
+            boolean inSegment = time >= mSegmentStarts[i]
+                    && (i + 1 == mSegmentStarts.length || time < mSegmentStarts[i + 1]);
+            if (inSegment) {
+                result = time;
+                if (!found && !later) {
+                    return result;
+                }
+                found = true;
+            } else if (!found && time >= mSegmentStarts[i]) {
+                // Past this segment: if the time is skipped, it is read with this offset.
+                result = time;
+            }
+        }
+        return result;
+    }
+}